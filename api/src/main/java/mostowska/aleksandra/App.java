@@ -1,12 +1,17 @@
 package mostowska.aleksandra;
 
+import mostowska.aleksandra.capacity.AvailabilityCounters;
+import mostowska.aleksandra.capacity.SlotAllocator;
 import mostowska.aleksandra.config.AppConfig;
 import mostowska.aleksandra.db_management.DbManagement;
 import mostowska.aleksandra.db_management.model.RowData;
+import mostowska.aleksandra.expiry.ReservationExpirySweeper;
 import mostowska.aleksandra.model.utils.ParcelStatus;
 import mostowska.aleksandra.repository.impl.ParcelLockerRepositoryImpl;
 import mostowska.aleksandra.repository.impl.ReservationRepositoryImpl;
+import mostowska.aleksandra.router.MetricsRouter;
 import mostowska.aleksandra.router.ParcelLockerRouter;
+import mostowska.aleksandra.router.ParcelRouter;
 import mostowska.aleksandra.router.ReservationRouter;
 import mostowska.aleksandra.router.UserRouter;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
@@ -57,8 +62,19 @@ public class App {
 
 
         var dbManagement = context.getBean("dbManagement", DbManagement.class);
+        dbManagement.createIndex("parcel_lockers", "latitude", "longitude");
+        dbManagement.createIndex("parcels", "parcel_locker_id", "status", "width", "length", "height");
+        dbManagement.createIndex("reservations", "release_time");
+        dbManagement.createIndex("reservations", "parcel_id", "release_time");
+        if ("database".equalsIgnoreCase(context.getEnvironment().getProperty("locker.search.strategy"))) {
+            dbManagement.addGeographicPointColumn("parcel_lockers", "location", "latitude", "longitude");
+        }
 //        dbManagement.insert("parcels", parcelData);
 
+        context.getBean("slotAllocator", SlotAllocator.class).reload();
+        context.getBean("availabilityCounters", AvailabilityCounters.class).reload();
+        context.getBean("reservationExpirySweeper", ReservationExpirySweeper.class).start();
+
 
         var parcelLockerServiceImpl = context.getBean("parcelLockerServiceImpl", ParcelLockerService.class);
 
@@ -67,8 +83,12 @@ public class App {
         parcelLockerRouter.routes();
         var reservationRouter = context.getBean("reservationRouter", ReservationRouter.class);
         reservationRouter.routes();
+        var parcelRouter = context.getBean("parcelRouter", ParcelRouter.class);
+        parcelRouter.routes();
         var userRouter = context.getBean("userRouter", UserRouter.class);
         userRouter.routes();
+        var metricsRouter = context.getBean("metricsRouter", MetricsRouter.class);
+        metricsRouter.routes();
 
         var reservationRepositoryImpl = context.getBean("reservationRepositoryImpl", ReservationRepositoryImpl.class);
         var parcelLockerRepositoryImpl = context.getBean("parcelLockerRepositoryImpl", ParcelLockerRepositoryImpl.class);
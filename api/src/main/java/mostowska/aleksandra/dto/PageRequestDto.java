@@ -0,0 +1,28 @@
+package mostowska.aleksandra.dto;
+
+import spark.Request;
+
+/**
+ * Keyset pagination parameters read from the `after` and `limit` query parameters.
+ *
+ * @param after The id after which the page starts, or null for the first page.
+ * @param limit The maximum number of items in the page.
+ */
+public record PageRequestDto(Long after, int limit) {
+
+    private static final int DEFAULT_LIMIT = 100;
+
+    /**
+     * Reads the pagination parameters of the request, using the default limit when none is given.
+     *
+     * @param request The HTTP request.
+     * @return The pagination parameters.
+     */
+    public static PageRequestDto from(Request request) {
+        var after = request.queryParams("after");
+        var limit = request.queryParams("limit");
+        return new PageRequestDto(
+                after == null ? null : Long.parseLong(after),
+                limit == null ? DEFAULT_LIMIT : Integer.parseInt(limit));
+    }
+}
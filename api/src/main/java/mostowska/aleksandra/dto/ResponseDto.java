@@ -1,12 +1,27 @@
 package mostowska.aleksandra.dto;
 
 
+import mostowska.aleksandra.repository.generic.Page;
+
+import java.util.List;
+
 /**
  * The `ResponseDto` class is used to represent a response that contains data and an optional error message.
  *
  * @param <T> The type of data returned in the response.
+ * @param next The cursor of the next page for paginated responses, null otherwise.
  */
-public record ResponseDto<T>(T data, String error) {
+public record ResponseDto<T>(T data, String error, Long next) {
+
+    /**
+     * Constructor for `ResponseDto` that creates an object with data and an error message.
+     *
+     * @param data The data to be included in the response.
+     * @param error The error message to be included in the response.
+     */
+    public ResponseDto(T data, String error) {
+        this(data, error, null);
+    }
 
     /**
      * Constructor for `ResponseDto` that creates an object with data and a default null error message.
@@ -26,4 +41,15 @@ public record ResponseDto<T>(T data, String error) {
     public ResponseDto(String error) {
         this(null, error);
     }
+
+    /**
+     * Creates a response containing the items of a page and the cursor of the next page.
+     *
+     * @param page The page to be included in the response.
+     * @param <E> The type of the page items.
+     * @return The response with the page items as data.
+     */
+    public static <E> ResponseDto<List<E>> ofPage(Page<E> page) {
+        return new ResponseDto<>(page.items(), null, page.nextCursor());
+    }
 }
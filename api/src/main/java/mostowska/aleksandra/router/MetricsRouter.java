@@ -0,0 +1,68 @@
+package mostowska.aleksandra.router;
+
+import lombok.RequiredArgsConstructor;
+import mostowska.aleksandra.config.metrics.MetricsSource;
+import mostowska.aleksandra.dto.ResponseDto;
+import org.springframework.stereotype.Component;
+import spark.ResponseTransformer;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static spark.Spark.get;
+import static spark.Spark.path;
+
+/**
+ * Router class for handling HTTP requests related to runtime metrics.
+ * Publishes the snapshots of all registered metrics sources.
+ */
+@Component
+@RequiredArgsConstructor
+public class MetricsRouter {
+
+    private final List<MetricsSource> metricsSources;
+    private final ResponseTransformer responseTransformer;
+
+    /**
+     * Defines the routes for metrics.
+     */
+    public void routes() {
+        path("/metrics", () -> {
+            /*
+             * Route to get snapshots of all metrics.
+             *
+             * @return A JSON response containing the metrics grouped by their source name.
+             */
+            get("",
+                    (request, response) -> {
+                        response.header("Content-Type", "application/json;charset=utf-8");
+                        var metrics = new LinkedHashMap<String, Object>();
+                        metricsSources.forEach(source -> metrics.put(source.metricsName(), source.metricsSnapshot()));
+                        return new ResponseDto<>(metrics);
+                    },
+                    responseTransformer
+            );
+
+            /*
+             * Route to get the snapshot of a single metrics source.
+             *
+             * @param name The name of the metrics source.
+             * @return A JSON response containing the metrics of the given source.
+             * @throws IllegalArgumentException if there is no source with the given name.
+             */
+            get("/:name",
+                    (request, response) -> {
+                        var name = request.params("name");
+                        response.header("Content-Type", "application/json;charset=utf-8");
+                        return new ResponseDto<>(metricsSources
+                                .stream()
+                                .filter(source -> source.metricsName().equals(name))
+                                .findFirst()
+                                .map(MetricsSource::metricsSnapshot)
+                                .orElseThrow(() -> new IllegalArgumentException("Metrics not found")));
+                    },
+                    responseTransformer
+            );
+        });
+    }
+}
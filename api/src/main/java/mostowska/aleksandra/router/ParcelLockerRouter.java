@@ -3,15 +3,24 @@ package mostowska.aleksandra.router;
 import com.google.gson.Gson;
 import lombok.RequiredArgsConstructor;
 import mostowska.aleksandra.ParcelLockerService;
+import mostowska.aleksandra.capacity.AvailabilityCounters;
+import mostowska.aleksandra.dto.PageRequestDto;
 import mostowska.aleksandra.dto.ResponseDto;
+import mostowska.aleksandra.model.dto.CoordinatesDto;
+import mostowska.aleksandra.model.dto.LockerDistanceDto;
+import mostowska.aleksandra.model.dto.NearestLockerDto;
 import mostowska.aleksandra.model.dto.ReservationRequestDto;
+import mostowska.aleksandra.model.utils.PackageDimensions;
 import mostowska.aleksandra.repository.ParcelLockerRepository;
+import mostowska.aleksandra.transformer.NdjsonWriter;
 import org.springframework.stereotype.Component;
 import spark.ResponseTransformer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
+
 import static spark.Spark.*;
 
 /**
@@ -24,7 +33,9 @@ public class ParcelLockerRouter {
 
     private final ParcelLockerService parcelLockerService;
     private final ParcelLockerRepository parcelLockerRepository;
+    private final AvailabilityCounters availabilityCounters;
     private final ResponseTransformer responseTransformer;
+    private final NdjsonWriter ndjsonWriter;
     private final Gson gson;
 
     private static final Logger logger = LoggerFactory.getLogger(ParcelLockerRouter.class);
@@ -35,14 +46,18 @@ public class ParcelLockerRouter {
     public void routes() {
         path("/lockers", () -> {
             /*
-             * Route to get all parcel lockers.
+             * Route to get a page of parcel lockers ordered by id.
              *
-             * @return A JSON response containing a list of all parcel lockers.
+             * @param after The id after which the page starts (optional).
+             * @param limit The maximum number of parcel lockers in the page (optional, capped by the repository).
+             * @return A JSON response containing the page of parcel lockers and the cursor of the next page.
              */
             get("",
                     (request, response) -> {
+                        var pageRequest = PageRequestDto.from(request);
                         response.header("Content-Type", "application/json;charset=utf-8");
-                        return new ResponseDto<>(parcelLockerRepository.findAll());
+                        return ResponseDto.ofPage(availabilityCounters.withCurrentAvailability(
+                                parcelLockerRepository.findPage(pageRequest.after(), pageRequest.limit())));
                     },
                     responseTransformer
             );
@@ -67,6 +82,71 @@ public class ParcelLockerRouter {
                     responseTransformer
             );
 
+            /*
+             * Route to find the nearest parcel locker for a batch of locations.
+             *
+             * @param request The HTTP request containing a JSON array of locations with latitude and longitude.
+             * @return A newline-delimited JSON stream of the nearest parcel lockers, in the order of the locations.
+             * @throws IllegalArgumentException if the batch is too large or no parcel lockers are found.
+             */
+            post(
+                    "/nearest/batch",
+                    (request, response) -> {
+                        var locations = Arrays.asList(gson.fromJson(request.body(), CoordinatesDto[].class));
+                        return ndjsonWriter.<NearestLockerDto>write(response, consumer -> parcelLockerService
+                                .findNearestLockers(locations, consumer));
+                    }
+            );
+
+            /*
+             * Route to find the nearest parcel lockers with a free parcel fitting the package.
+             *
+             * @param latitude  The latitude of the user's location.
+             * @param longitude The longitude of the user's location.
+             * @param width     The width of the package.
+             * @param length    The length of the package.
+             * @param height    The height of the package.
+             * @param k         The maximum number of lockers to be found (optional, defaults to 1).
+             * @return A JSON response containing the found parcel lockers ordered by distance.
+             */
+            get(
+                    "/nearest-available",
+                    (request, response) -> {
+                        var latitude = Double.parseDouble(request.queryParams("latitude"));
+                        var longitude = Double.parseDouble(request.queryParams("longitude"));
+                        var packageDimensions = new PackageDimensions(
+                                Double.parseDouble(request.queryParams("width")),
+                                Double.parseDouble(request.queryParams("length")),
+                                Double.parseDouble(request.queryParams("height")));
+                        var k = request.queryParams("k") == null ? 1 : Integer.parseInt(request.queryParams("k"));
+                        response.header("Content-Type", "application/json;charset=utf-8");
+                        return new ResponseDto<>(parcelLockerService
+                                .findNearestAvailableLockers(latitude, longitude, packageDimensions, k));
+                    },
+                    responseTransformer
+            );
+
+            /*
+             * Route to stream the parcel lockers within a radius of the user's location.
+             *
+             * @param latitude  The latitude of the user's location.
+             * @param longitude The longitude of the user's location.
+             * @param radiusKm  The radius of the search in kilometers.
+             * @param limit     The maximum number of lockers (optional, defaults to 100, capped by the service).
+             * @return A newline-delimited JSON stream of the parcel lockers and their distances, nearest first.
+             */
+            get(
+                    "/within",
+                    (request, response) -> {
+                        var latitude = Double.parseDouble(request.queryParams("latitude"));
+                        var longitude = Double.parseDouble(request.queryParams("longitude"));
+                        var radiusKm = Double.parseDouble(request.queryParams("radiusKm"));
+                        var limit = request.queryParams("limit") == null ? 100 : Integer.parseInt(request.queryParams("limit"));
+                        return ndjsonWriter.<LockerDistanceDto>write(response, consumer -> parcelLockerService
+                                .findLockersWithin(latitude, longitude, radiusKm, limit, consumer));
+                    }
+            );
+
             /*
              * Route to get a specific parcel locker by ID.
              *
@@ -79,7 +159,10 @@ public class ParcelLockerRouter {
                     (request, response) -> {
                         var id = Long.parseLong(request.params("id"));
                         response.header("Content-Type", "application/json;charset=utf-8");
-                        return new ResponseDto<>(parcelLockerRepository.findById(id).orElseThrow(() -> new IllegalArgumentException("Parcel locker not found")));
+                        return new ResponseDto<>(parcelLockerRepository
+                                .findById(id)
+                                .map(availabilityCounters::withCurrentAvailability)
+                                .orElseThrow(() -> new IllegalArgumentException("Parcel locker not found")));
                     },
                     responseTransformer
             );
@@ -0,0 +1,38 @@
+package mostowska.aleksandra.router;
+
+import lombok.RequiredArgsConstructor;
+import mostowska.aleksandra.model.Parcel;
+import mostowska.aleksandra.repository.ParcelRepository;
+import mostowska.aleksandra.transformer.NdjsonWriter;
+import org.springframework.stereotype.Component;
+
+import static spark.Spark.get;
+import static spark.Spark.path;
+
+/**
+ * Router class for handling HTTP requests related to parcels.
+ * Configures the routes for exporting parcel information.
+ */
+@Component
+@RequiredArgsConstructor
+public class ParcelRouter {
+
+    private final ParcelRepository parcelRepository;
+    private final NdjsonWriter ndjsonWriter;
+
+    /**
+     * Defines the routes for parcel-related operations.
+     */
+    public void routes() {
+        path("/parcels", () -> {
+            /*
+             * Route to export all parcels.
+             *
+             * @return A newline-delimited JSON stream of all parcels ordered by id.
+             */
+            get("/export",
+                    (request, response) -> ndjsonWriter.<Parcel>write(response, parcelRepository::streamAll)
+            );
+        });
+    }
+}
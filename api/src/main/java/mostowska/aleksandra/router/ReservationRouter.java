@@ -1,8 +1,11 @@
 package mostowska.aleksandra.router;
 
 import lombok.RequiredArgsConstructor;
+import mostowska.aleksandra.dto.PageRequestDto;
 import mostowska.aleksandra.dto.ResponseDto;
+import mostowska.aleksandra.model.Reservation;
 import mostowska.aleksandra.repository.ReservationRepository;
+import mostowska.aleksandra.transformer.NdjsonWriter;
 import org.springframework.stereotype.Component;
 import spark.ResponseTransformer;
 
@@ -18,6 +21,7 @@ public class ReservationRouter {
 
     private final ReservationRepository reservationRepository;
     private final ResponseTransformer responseTransformer;
+    private final NdjsonWriter ndjsonWriter;
 
     /**
      * Defines the routes for reservation-related operations.
@@ -25,17 +29,29 @@ public class ReservationRouter {
     public void routes() {
         path("/reservations", () -> {
             /*
-             * Route to get a list of all reservations.
+             * Route to get a page of reservations ordered by id.
              *
-             * @return A JSON response containing a list of all reservations.
+             * @param after The id after which the page starts (optional).
+             * @param limit The maximum number of reservations in the page (optional, capped by the repository).
+             * @return A JSON response containing the page of reservations and the cursor of the next page.
              */
             get("",
                     (request, response) -> {
+                        var pageRequest = PageRequestDto.from(request);
                         response.header("Content-Type", "application/json;charset=utf-8");
-                        return new ResponseDto<>(reservationRepository.findAll());
+                        return ResponseDto.ofPage(reservationRepository.findPage(pageRequest.after(), pageRequest.limit()));
                     },
                     responseTransformer
             );
+
+            /*
+             * Route to export all reservations.
+             *
+             * @return A newline-delimited JSON stream of all reservations ordered by id.
+             */
+            get("/export",
+                    (request, response) -> ndjsonWriter.<Reservation>write(response, reservationRepository::streamAll)
+            );
         });
     }
 }
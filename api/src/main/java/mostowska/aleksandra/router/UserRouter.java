@@ -3,6 +3,7 @@ package mostowska.aleksandra.router;
 
 import lombok.RequiredArgsConstructor;
 import mostowska.aleksandra.UserService;
+import mostowska.aleksandra.dto.PageRequestDto;
 import mostowska.aleksandra.dto.ResponseDto;
 import mostowska.aleksandra.repository.UserRepository;
 import org.springframework.stereotype.Component;
@@ -30,14 +31,17 @@ public class UserRouter {
         path("/users", () -> {
 
             /*
-             * Route to get all users.
+             * Route to get a page of users ordered by id.
              *
-             * @return A JSON response containing a list of all users.
+             * @param after The id after which the page starts (optional).
+             * @param limit The maximum number of users in the page (optional, capped by the repository).
+             * @return A JSON response containing the page of users and the cursor of the next page.
              */
             get("",
                     (request, response) -> {
+                        var pageRequest = PageRequestDto.from(request);
                         response.header("Content-Type", "application/json;charset=utf-8");
-                        return new ResponseDto<>(userRepository.findAll()); // Return all users in response
+                        return ResponseDto.ofPage(userRepository.findPage(pageRequest.after(), pageRequest.limit()));
                     },
                     responseTransformer
             );
@@ -0,0 +1,53 @@
+package mostowska.aleksandra.transformer;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import spark.Response;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Writes newline-delimited JSON (one compact JSON object per line) straight to the servlet output stream.
+ * Items are written as the source produces them, so the response is never held in memory.
+ */
+@Component
+@RequiredArgsConstructor
+public class NdjsonWriter {
+
+    public static final String CONTENT_TYPE = "application/x-ndjson;charset=utf-8";
+
+    private final Gson gson;
+
+    /**
+     * Streams the items produced by the source into the response body.
+     *
+     * @param response The HTTP response to write to.
+     * @param source   A producer passing every item to the given consumer, e.g. {@code repository::streamAll}.
+     * @param <T>      The type of the items.
+     * @return An empty string, to be returned by the route after the body has been written.
+     * @throws IOException if the response body cannot be written.
+     */
+    public <T> String write(Response response, Consumer<Consumer<T>> source) throws IOException {
+        response.type(CONTENT_TYPE);
+        var writer = new BufferedWriter(new OutputStreamWriter(response.raw().getOutputStream(), StandardCharsets.UTF_8));
+        var jsonWriter = new JsonWriter(writer);
+
+        source.accept(item -> {
+            try {
+                gson.toJson(item, item.getClass(), jsonWriter);
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+        return "";
+    }
+}
@@ -1,5 +1,9 @@
 package mostowska.aleksandra;
 
+import mostowska.aleksandra.distance.CoordinateColumns;
+import mostowska.aleksandra.distance.DistanceKernel;
+import mostowska.aleksandra.distance.DistanceRanking;
+
 public interface DistanceCalculator {
 
     /**
@@ -21,4 +25,34 @@ public interface DistanceCalculator {
         double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
         return R * c;
     }
+
+    /**
+     * Calculates the distances between one geographic coordinate and many locations at once,
+     * using the fastest {@link DistanceKernel} available.
+     *
+     * @param columns     The coordinates of the locations.
+     * @param latitude    Latitude of the point.
+     * @param longitude   Longitude of the point.
+     * @param distancesKm The array receiving the distances in kilometers, at the positions of the locations.
+     */
+    static void getDistances(CoordinateColumns columns, double latitude, double longitude, double[] distancesKm) {
+        DistanceKernel.best().distances(columns, latitude, longitude, distancesKm);
+    }
+
+    /**
+     * Ranks locations by their distance to a geographic coordinate. Only the order of the candidates
+     * is computed from a cheap chord-length approximation; the haversine distance is computed
+     * for the few best candidates only, which are then ordered exactly.
+     * No request path ranks all lockers by brute force at the moment: the nearest locker searches use
+     * the k-d tree and the grid, so this method is only measured by {@code RankNearestBenchmark}.
+     *
+     * @param columns   The coordinates of the locations.
+     * @param latitude  Latitude of the point.
+     * @param longitude Longitude of the point.
+     * @param k         The maximum number of locations to be ranked.
+     * @return The positions of the k nearest locations in the columns, nearest first.
+     */
+    static int[] rankNearest(CoordinateColumns columns, double latitude, double longitude, int k) {
+        return DistanceRanking.nearest(columns, latitude, longitude, k);
+    }
 }
@@ -2,40 +2,74 @@ package mostowska.aleksandra.config;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import mostowska.aleksandra.config.adapter.LocalDateTimeAdapter;
+import mostowska.aleksandra.config.metrics.ConnectionPoolMetrics;
 import org.jdbi.v3.core.Jdbi;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
 
+import javax.sql.DataSource;
 import java.time.LocalDateTime;
 
 /**
  * Spring configuration class that sets up the application's beans and component scanning.
  *
- * This class is responsible for configuring the Jdbi instance for database access
- * and the Gson instance for JSON serialization/deserialization. It also specifies
- * the base package for component scanning.
+ * This class is responsible for configuring the pooled DataSource and the Jdbi instance
+ * for database access and the Gson instance for JSON serialization/deserialization.
+ * It also specifies the base package for component scanning and loads the
+ * application properties.
  */
 @Configuration
 @ComponentScan("mostowska.aleksandra")
+@PropertySource("classpath:application.properties")
 public class AppConfig {
 
+    /**
+     * Creates and configures a pooled DataSource for the MySQL database.
+     *
+     * The pool size, connection validation, leak detection and acquire timeout are read
+     * from the {@code db.*} properties. Pool events are reported to the given metrics collector.
+     *
+     * @param env     The Spring environment holding the application properties.
+     * @param metrics The collector of connection pool metrics.
+     * @return A configured HikariCP DataSource.
+     */
+    @Bean(destroyMethod = "close")
+    public HikariDataSource dataSource(Environment env, ConnectionPoolMetrics metrics) {
+        var config = new HikariConfig();
+        config.setPoolName("parcel-locker-pool");
+        config.setJdbcUrl(env.getRequiredProperty("db.url"));
+        config.setUsername(env.getRequiredProperty("db.username"));
+        config.setPassword(env.getRequiredProperty("db.password"));
+        config.setMinimumIdle(env.getProperty("db.pool.min-idle", Integer.class, 2));
+        config.setMaximumPoolSize(env.getProperty("db.pool.max-size", Integer.class, 10));
+        config.setConnectionTimeout(env.getProperty("db.pool.acquire-timeout-ms", Long.class, 5_000L));
+        config.setValidationTimeout(env.getProperty("db.pool.validation-timeout-ms", Long.class, 1_000L));
+        config.setKeepaliveTime(env.getProperty("db.pool.keepalive-ms", Long.class, 120_000L));
+        config.setIdleTimeout(env.getProperty("db.pool.idle-timeout-ms", Long.class, 600_000L));
+        config.setMaxLifetime(env.getProperty("db.pool.max-lifetime-ms", Long.class, 1_800_000L));
+        config.setLeakDetectionThreshold(env.getProperty("db.pool.leak-detection-ms", Long.class, 0L));
+        config.setMetricsTrackerFactory(metrics);
+        return new HikariDataSource(config);
+    }
+
     /**
      * Creates and configures a Jdbi bean for database access.
      *
-     * The Jdbi instance is configured to connect to a MySQL database with
-     * the specified URL, username, and password. The connection URL includes options
-     * for timezone and Unicode support.
+     * The Jdbi instance obtains its connections from the pooled DataSource,
+     * so handles reuse already opened MySQL connections.
      *
+     * @param dataSource The pooled DataSource.
      * @return A configured Jdbi instance.
      */
     @Bean
-    public Jdbi jdbi() {
-        var URL = "jdbc:mysql://localhost:3307/db_1?useUnicode=true&useJDBCCompliantTimezoneShift=true&useLegacyDatetimeCode=false&serverTimezone=UTC";
-        var USERNAME = "user";
-        var PASSWORD = "user1234";
-        return Jdbi.create(URL, USERNAME, PASSWORD);
+    public Jdbi jdbi(DataSource dataSource) {
+        return Jdbi.create(dataSource);
     }
 
     /**
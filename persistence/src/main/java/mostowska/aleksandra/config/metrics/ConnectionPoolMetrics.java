@@ -0,0 +1,118 @@
+package mostowska.aleksandra.config.metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects connection pool metrics reported by HikariCP.
+ *
+ * <p>The pool reports every connection checkout, usage and timeout to the tracker created
+ * by this factory. Pool occupancy is read from the live {@link PoolStats} of the pool.</p>
+ */
+@Component
+public class ConnectionPoolMetrics implements MetricsTrackerFactory, MetricsSource {
+
+    private final LongAdder acquiredCount = new LongAdder();
+    private final LongAdder acquireNanosTotal = new LongAdder();
+    private final LongAccumulator acquireNanosMax = new LongAccumulator(Long::max, 0);
+    private final LongAdder usageMillisTotal = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+
+    private volatile PoolStats poolStats;
+
+    /**
+     * Point-in-time view of the connection pool.
+     *
+     * @param active          Connections currently checked out.
+     * @param idle            Connections waiting in the pool.
+     * @param total           All connections owned by the pool.
+     * @param pendingThreads  Threads waiting for a connection.
+     * @param minIdle         Configured minimum of idle connections.
+     * @param maxSize         Configured maximum pool size.
+     * @param acquired        Number of successful checkouts.
+     * @param avgWaitMillis   Average time spent waiting for a connection.
+     * @param maxWaitMillis   Longest time spent waiting for a connection.
+     * @param avgUsageMillis  Average time a connection was held by the application.
+     * @param timeouts        Number of checkouts that timed out.
+     * @param created         Number of physical connections opened.
+     */
+    public record Snapshot(int active, int idle, int total, int pendingThreads, int minIdle, int maxSize,
+                           long acquired, double avgWaitMillis, double maxWaitMillis, double avgUsageMillis,
+                           long timeouts, long created) {
+    }
+
+    /**
+     * Creates the metrics tracker for the pool and keeps a reference to its statistics.
+     *
+     * @param poolName  The name of the pool.
+     * @param poolStats The live statistics of the pool.
+     * @return The tracker recording pool events.
+     */
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolStats = poolStats;
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+                createdCount.increment();
+            }
+
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquiredCount.increment();
+                acquireNanosTotal.add(elapsedAcquiredNanos);
+                acquireNanosMax.accumulate(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usageMillisTotal.add(elapsedBorrowedMillis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeoutCount.increment();
+            }
+        };
+    }
+
+    @Override
+    public String metricsName() {
+        return "connectionPool";
+    }
+
+    /**
+     * Takes a snapshot of the pool occupancy, wait times and timeouts.
+     *
+     * @return The current {@link Snapshot}.
+     */
+    @Override
+    public Snapshot metricsSnapshot() {
+        var stats = poolStats;
+        var acquired = acquiredCount.sum();
+        return new Snapshot(
+                stats == null ? 0 : stats.getActiveConnections(),
+                stats == null ? 0 : stats.getIdleConnections(),
+                stats == null ? 0 : stats.getTotalConnections(),
+                stats == null ? 0 : stats.getPendingThreads(),
+                stats == null ? 0 : stats.getMinConnections(),
+                stats == null ? 0 : stats.getMaxConnections(),
+                acquired,
+                acquired == 0 ? 0.0 : toMillis(acquireNanosTotal.sum()) / acquired,
+                toMillis(acquireNanosMax.get()),
+                acquired == 0 ? 0.0 : (double) usageMillisTotal.sum() / acquired,
+                timeoutCount.sum(),
+                createdCount.sum());
+    }
+
+    private static double toMillis(long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
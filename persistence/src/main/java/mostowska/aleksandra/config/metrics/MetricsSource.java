@@ -0,0 +1,24 @@
+package mostowska.aleksandra.config.metrics;
+
+/**
+ * Component that exposes a named snapshot of runtime metrics.
+ *
+ * All beans implementing this interface are collected by the metrics endpoint,
+ * so adding a new group of metrics only requires registering another bean.
+ */
+public interface MetricsSource {
+
+    /**
+     * Retrieves the name under which the metrics are published.
+     *
+     * @return The metrics group name.
+     */
+    String metricsName();
+
+    /**
+     * Takes a point-in-time snapshot of the metrics.
+     *
+     * @return An object (usually a record) serializable to JSON.
+     */
+    Object metricsSnapshot();
+}
@@ -78,6 +78,67 @@ public class DbManagement {
         jdbi.useHandle(handle -> handle.execute(updateSql));
     }
 
+    /**
+     * Adds a geographic point column computed from the latitude and longitude columns of a table,
+     * together with a SPATIAL index on it. The column is a stored generated {@code POINT SRID 4326},
+     * so it always follows the coordinate columns. Does nothing if the column already exists.
+     *
+     * @param tableName       The name of the table.
+     * @param column          The name of the point column to be added.
+     * @param latitudeColumn  The name of the latitude column.
+     * @param longitudeColumn The name of the longitude column.
+     */
+    public void addGeographicPointColumn(String tableName, String column, String latitudeColumn, String longitudeColumn) {
+        var addColumnSql = """
+            alter table %s add column %s point srid 4326
+                generated always as (st_srid(point(%s, %s), 4326)) stored not null
+        """.formatted(tableName, column, longitudeColumn, latitudeColumn);
+        var addIndexSql = "create spatial index idx_%s_%s on %s (%s)".formatted(tableName, column, tableName, column);
+
+        jdbi.useHandle(handle -> {
+            var exists = handle
+                    .createQuery("""
+                        select count(*) from information_schema.columns
+                        where table_schema = database() and table_name = :table_name and column_name = :column_name
+                    """)
+                    .bind("table_name", tableName)
+                    .bind("column_name", column)
+                    .mapTo(Integer.class)
+                    .one() > 0;
+            if (!exists) {
+                handle.execute(addColumnSql);
+                handle.execute(addIndexSql);
+            }
+        });
+    }
+
+    /**
+     * Creates an index named {@code idx_<table>_<columns>} on the given columns of a table.
+     * Does nothing if an index with this name already exists.
+     *
+     * @param tableName The name of the table.
+     * @param columns   The indexed columns, in index order.
+     */
+    public void createIndex(String tableName, String... columns) {
+        var indexName = "idx_%s_%s".formatted(tableName, String.join("_", columns));
+        var createIndexSql = "create index %s on %s (%s)".formatted(indexName, tableName, String.join(", ", columns));
+
+        jdbi.useHandle(handle -> {
+            var exists = handle
+                    .createQuery("""
+                        select count(*) from information_schema.statistics
+                        where table_schema = database() and table_name = :table_name and index_name = :index_name
+                    """)
+                    .bind("table_name", tableName)
+                    .bind("index_name", indexName)
+                    .mapTo(Integer.class)
+                    .one() > 0;
+            if (!exists) {
+                handle.execute(createIndexSql);
+            }
+        });
+    }
+
     /**
      * Constructs the column definitions for creating a new table.
      *
@@ -0,0 +1,95 @@
+package mostowska.aleksandra.distance;
+
+import mostowska.aleksandra.model.ParcelLocker;
+
+import java.util.List;
+
+/**
+ * Coordinates of many locations stored as columns (structure of arrays).
+ *
+ * <p>Latitudes and longitudes are kept in radians in primitive arrays, together with the cosine of
+ * every latitude, so a {@link DistanceKernel} reads them sequentially without unboxing and without
+ * recomputing the per-location trigonometry on every query. The locations are also kept as points
+ * on the unit sphere, whose chord distances rank locations without any trigonometry.</p>
+ */
+public final class CoordinateColumns {
+
+    final int[] ids;
+    final double[] latitudes;
+    final double[] longitudes;
+    final double[] cosLatitudes;
+    final double[] xs;
+    final double[] ys;
+    final double[] zs;
+
+    private CoordinateColumns(int[] ids, double[] latitudes, double[] longitudes) {
+        this.ids = ids;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.cosLatitudes = new double[ids.length];
+        this.xs = new double[ids.length];
+        this.ys = new double[ids.length];
+        this.zs = new double[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            cosLatitudes[i] = Math.cos(latitudes[i]);
+            xs[i] = cosLatitudes[i] * Math.cos(longitudes[i]);
+            ys[i] = cosLatitudes[i] * Math.sin(longitudes[i]);
+            zs[i] = Math.sin(latitudes[i]);
+        }
+    }
+
+    /**
+     * Creates the columns from coordinates in degrees.
+     *
+     * @param ids        The IDs of the locations.
+     * @param latitudes  The latitudes in degrees, in the same order as the IDs.
+     * @param longitudes The longitudes in degrees, in the same order as the IDs.
+     * @return The coordinate columns.
+     * @throws IllegalArgumentException If the arrays differ in length.
+     */
+    public static CoordinateColumns of(int[] ids, double[] latitudes, double[] longitudes) {
+        if (ids.length != latitudes.length || ids.length != longitudes.length) {
+            throw new IllegalArgumentException("Coordinate arrays differ in length");
+        }
+        var latitudesInRadians = new double[ids.length];
+        var longitudesInRadians = new double[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            latitudesInRadians[i] = Math.toRadians(latitudes[i]);
+            longitudesInRadians[i] = Math.toRadians(longitudes[i]);
+        }
+        return new CoordinateColumns(ids.clone(), latitudesInRadians, longitudesInRadians);
+    }
+
+    /**
+     * Creates the columns from the coordinates of the parcel lockers.
+     *
+     * @param parcelLockers The parcel lockers.
+     * @return The coordinate columns, in the order of the given lockers.
+     */
+    public static CoordinateColumns of(List<ParcelLocker> parcelLockers) {
+        var ids = new int[parcelLockers.size()];
+        var latitudes = new double[parcelLockers.size()];
+        var longitudes = new double[parcelLockers.size()];
+        for (int i = 0; i < ids.length; i++) {
+            var parcelLocker = parcelLockers.get(i);
+            ids[i] = parcelLocker.getId();
+            latitudes[i] = parcelLocker.getLatitude();
+            longitudes[i] = parcelLocker.getLongitude();
+        }
+        return of(ids, latitudes, longitudes);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Retrieves the ID of the location at the given position.
+     *
+     * @param index The position of the location.
+     * @return The ID of the location.
+     */
+    public int id(int index) {
+        return ids[index];
+    }
+}
@@ -0,0 +1,45 @@
+package mostowska.aleksandra.distance;
+
+/**
+ * Computes the great-circle distances from one point to all locations of {@link CoordinateColumns}.
+ *
+ * <p>The distances follow the haversine formula of {@link mostowska.aleksandra.DistanceCalculator}.
+ * Use {@link #best()} to get the vectorized kernel when the {@code jdk.incubator.vector} module
+ * is available and the scalar kernel otherwise.</p>
+ */
+public interface DistanceKernel {
+
+    /**
+     * Mean radius of the Earth in kilometers.
+     */
+    double EARTH_RADIUS_KM = 6371;
+
+    /**
+     * Computes the distance from the given point to every location of the columns.
+     *
+     * @param columns     The coordinates of the locations.
+     * @param latitude    The latitude of the point in degrees.
+     * @param longitude   The longitude of the point in degrees.
+     * @param distancesKm The array receiving the distances in kilometers, at the positions of the locations.
+     * @throws IllegalArgumentException If the array is shorter than the number of locations.
+     */
+    void distances(CoordinateColumns columns, double latitude, double longitude, double[] distancesKm);
+
+    /**
+     * Retrieves the fastest kernel available in the running JVM.
+     *
+     * @return The vectorized kernel if the {@code jdk.incubator.vector} module is loaded, otherwise the scalar kernel.
+     */
+    static DistanceKernel best() {
+        return DistanceKernels.BEST;
+    }
+
+    /**
+     * Retrieves the scalar kernel, which works in every JVM.
+     *
+     * @return The scalar kernel.
+     */
+    static DistanceKernel scalar() {
+        return ScalarDistanceKernel.INSTANCE;
+    }
+}
@@ -0,0 +1,15 @@
+package mostowska.aleksandra.distance;
+
+/**
+ * Holds the distance kernel selected once per JVM.
+ * The vector kernel class is loaded only when the {@code jdk.incubator.vector} module is present.
+ */
+final class DistanceKernels {
+
+    static final DistanceKernel BEST = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+            ? new VectorDistanceKernel()
+            : ScalarDistanceKernel.INSTANCE;
+
+    private DistanceKernels() {
+    }
+}
@@ -0,0 +1,107 @@
+package mostowska.aleksandra.distance;
+
+import java.util.Arrays;
+
+/**
+ * Ranks locations by distance without computing the haversine distance of every location.
+ *
+ * <p>Candidates are ordered by their squared chord distance on the unit sphere, which needs three
+ * subtractions and three multiplications per location. The chord length {@code 2 sin(θ/2)} grows
+ * monotonically with the central angle {@code θ} on {@code [0, π]}, so the order is exact up to
+ * floating point rounding. To absorb rounding near ties, a few more candidates than requested are
+ * kept and re-ranked by the exact haversine distance.</p>
+ */
+public final class DistanceRanking {
+
+    /**
+     * Number of candidates kept on top of the requested ones and re-ranked exactly.
+     */
+    static final int REFINED_MARGIN = 4;
+
+    private DistanceRanking() {
+    }
+
+    /**
+     * Finds the positions of the k locations nearest to the given point.
+     *
+     * @param columns   The coordinates of the locations.
+     * @param latitude  The latitude of the point in degrees.
+     * @param longitude The longitude of the point in degrees.
+     * @param k         The maximum number of locations to be found.
+     * @return The positions of the found locations in the columns, ordered by exact distance, nearest first.
+     * @throws IllegalArgumentException If k is negative.
+     */
+    public static int[] nearest(CoordinateColumns columns, double latitude, double longitude, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("Number of locations must not be negative");
+        }
+        var lat = Math.toRadians(latitude);
+        var lon = Math.toRadians(longitude);
+        var cosLat = Math.cos(lat);
+        var qx = cosLat * Math.cos(lon);
+        var qy = cosLat * Math.sin(lon);
+        var qz = Math.sin(lat);
+
+        var capacity = Math.min(columns.size(), k == 0 ? 0 : k + REFINED_MARGIN);
+        var heapPositions = new int[capacity];
+        var heapKeys = new double[capacity];
+        var size = 0;
+        for (int i = 0; i < columns.size(); i++) {
+            var dx = columns.xs[i] - qx;
+            var dy = columns.ys[i] - qy;
+            var dz = columns.zs[i] - qz;
+            var key = dx * dx + dy * dy + dz * dz;
+            if (size < capacity) {
+                siftUp(heapPositions, heapKeys, size++, i, key);
+            } else if (capacity > 0 && key < heapKeys[0]) {
+                siftDown(heapPositions, heapKeys, size, i, key);
+            }
+        }
+
+        var exactDistances = new double[size];
+        ScalarDistanceKernel.distances(columns, lat, lon, cosLat, heapPositions, exactDistances);
+        var order = new Integer[size];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, (a, b) -> Double.compare(exactDistances[a], exactDistances[b]));
+        return Arrays.stream(order).limit(k).mapToInt(i -> heapPositions[i]).toArray();
+    }
+
+    /**
+     * Inserts an entry into the max-heap of the given size.
+     */
+    private static void siftUp(int[] positions, double[] keys, int size, int position, double key) {
+        var i = size;
+        while (i > 0 && keys[(i - 1) / 2] < key) {
+            var parent = (i - 1) / 2;
+            positions[i] = positions[parent];
+            keys[i] = keys[parent];
+            i = parent;
+        }
+        positions[i] = position;
+        keys[i] = key;
+    }
+
+    /**
+     * Replaces the root of the full max-heap with an entry of a smaller key.
+     */
+    private static void siftDown(int[] positions, double[] keys, int size, int position, double key) {
+        var i = 0;
+        while (true) {
+            var child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && keys[child + 1] > keys[child]) {
+                child++;
+            }
+            if (keys[child] <= key) {
+                break;
+            }
+            positions[i] = positions[child];
+            keys[i] = keys[child];
+            i = child;
+        }
+        positions[i] = position;
+        keys[i] = key;
+    }
+}
@@ -0,0 +1,56 @@
+package mostowska.aleksandra.distance;
+
+/**
+ * Distance kernel computing one location at a time with {@link Math} functions.
+ */
+final class ScalarDistanceKernel implements DistanceKernel {
+
+    static final ScalarDistanceKernel INSTANCE = new ScalarDistanceKernel();
+
+    private ScalarDistanceKernel() {
+    }
+
+    @Override
+    public void distances(CoordinateColumns columns, double latitude, double longitude, double[] distancesKm) {
+        checkLength(columns, distancesKm);
+        var lat = Math.toRadians(latitude);
+        var lon = Math.toRadians(longitude);
+        distances(columns, lat, lon, Math.cos(lat), 0, columns.size(), distancesKm);
+    }
+
+    /**
+     * Computes the distances of the locations in {@code [from, to)} to a point given in radians.
+     */
+    static void distances(CoordinateColumns columns, double lat, double lon, double cosLat,
+                          int from, int to, double[] distancesKm) {
+        for (int i = from; i < to; i++) {
+            var sinLatDistance = Math.sin((columns.latitudes[i] - lat) * 0.5);
+            var sinLonDistance = Math.sin((columns.longitudes[i] - lon) * 0.5);
+            var a = sinLatDistance * sinLatDistance
+                    + columns.cosLatitudes[i] * cosLat * sinLonDistance * sinLonDistance;
+            distancesKm[i] = 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+        }
+    }
+
+    /**
+     * Computes the distances of the locations at the given positions to a point given in radians.
+     * The distance of {@code positions[i]} is written to {@code distancesKm[i]}.
+     */
+    static void distances(CoordinateColumns columns, double lat, double lon, double cosLat,
+                          int[] positions, double[] distancesKm) {
+        for (int i = 0; i < positions.length && i < distancesKm.length; i++) {
+            var position = positions[i];
+            var sinLatDistance = Math.sin((columns.latitudes[position] - lat) * 0.5);
+            var sinLonDistance = Math.sin((columns.longitudes[position] - lon) * 0.5);
+            var a = sinLatDistance * sinLatDistance
+                    + columns.cosLatitudes[position] * cosLat * sinLonDistance * sinLonDistance;
+            distancesKm[i] = 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+        }
+    }
+
+    static void checkLength(CoordinateColumns columns, double[] distancesKm) {
+        if (distancesKm.length < columns.size()) {
+            throw new IllegalArgumentException("Distances array is shorter than the number of locations");
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package mostowska.aleksandra.distance;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Distance kernel computing as many locations at once as fit into the preferred SIMD register,
+ * using the {@code jdk.incubator.vector} API. The remaining locations are computed by the scalar kernel.
+ *
+ * <p>Requires the JVM to be started with {@code --add-modules jdk.incubator.vector}.</p>
+ */
+final class VectorDistanceKernel implements DistanceKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void distances(CoordinateColumns columns, double latitude, double longitude, double[] distancesKm) {
+        ScalarDistanceKernel.checkLength(columns, distancesKm);
+        var lat = Math.toRadians(latitude);
+        var lon = Math.toRadians(longitude);
+        var cosLat = Math.cos(lat);
+
+        var upperBound = SPECIES.loopBound(columns.size());
+        for (int i = 0; i < upperBound; i += SPECIES.length()) {
+            var sinLatDistance = DoubleVector.fromArray(SPECIES, columns.latitudes, i)
+                    .sub(lat)
+                    .mul(0.5)
+                    .lanewise(VectorOperators.SIN);
+            var sinLonDistance = DoubleVector.fromArray(SPECIES, columns.longitudes, i)
+                    .sub(lon)
+                    .mul(0.5)
+                    .lanewise(VectorOperators.SIN);
+            var a = DoubleVector.fromArray(SPECIES, columns.cosLatitudes, i)
+                    .mul(cosLat)
+                    .mul(sinLonDistance)
+                    .mul(sinLonDistance)
+                    .add(sinLatDistance.mul(sinLatDistance));
+            a.lanewise(VectorOperators.SQRT)
+                    .min(1.0)
+                    .lanewise(VectorOperators.ASIN)
+                    .mul(2 * EARTH_RADIUS_KM)
+                    .intoArray(distancesKm, i);
+        }
+        ScalarDistanceKernel.distances(columns, lat, lon, cosLat, upperBound, columns.size(), distancesKm);
+    }
+}
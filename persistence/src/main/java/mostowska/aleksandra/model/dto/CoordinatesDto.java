@@ -0,0 +1,10 @@
+package mostowska.aleksandra.model.dto;
+
+/**
+ * Data Transfer Object (DTO) for a geographic location.
+ *
+ * @param latitude  The latitude in degrees.
+ * @param longitude The longitude in degrees.
+ */
+public record CoordinatesDto(double latitude, double longitude) {
+}
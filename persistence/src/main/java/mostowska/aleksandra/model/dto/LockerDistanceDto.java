@@ -0,0 +1,12 @@
+package mostowska.aleksandra.model.dto;
+
+import mostowska.aleksandra.model.ParcelLocker;
+
+/**
+ * Data Transfer Object (DTO) for a parcel locker found by a location search.
+ *
+ * @param parcelLocker The found parcel locker.
+ * @param distanceKm   The distance from the searched location in kilometers.
+ */
+public record LockerDistanceDto(ParcelLocker parcelLocker, double distanceKm) {
+}
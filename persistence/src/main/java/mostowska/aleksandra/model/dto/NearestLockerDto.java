@@ -0,0 +1,12 @@
+package mostowska.aleksandra.model.dto;
+
+/**
+ * Data Transfer Object (DTO) for the parcel locker nearest to a location of a batch search.
+ *
+ * @param latitude       The latitude of the searched location.
+ * @param longitude      The longitude of the searched location.
+ * @param parcelLockerId The ID of the nearest parcel locker.
+ * @param distanceKm     The distance to the nearest parcel locker in kilometers.
+ */
+public record NearestLockerDto(double latitude, double longitude, int parcelLockerId, double distanceKm) {
+}
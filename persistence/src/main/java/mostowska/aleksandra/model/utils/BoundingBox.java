@@ -0,0 +1,72 @@
+package mostowska.aleksandra.model.utils;
+
+/**
+ * Latitude and longitude bounds of an area on the Earth.
+ *
+ * @param minLatitude  The southern bound in degrees.
+ * @param minLongitude The western bound in degrees.
+ * @param maxLatitude  The northern bound in degrees.
+ * @param maxLongitude The eastern bound in degrees.
+ */
+public record BoundingBox(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+
+    private static final double EARTH_RADIUS_KM = 6371;
+
+    /**
+     * Creates the smallest box containing every point within the given great-circle distance of the center.
+     * If the circle reaches a pole or crosses the antimeridian, the box spans all longitudes.
+     *
+     * @param latitude  The latitude of the center in degrees.
+     * @param longitude The longitude of the center in degrees.
+     * @param radiusKm  The radius in kilometers.
+     * @return The bounding box of the circle.
+     */
+    public static BoundingBox around(double latitude, double longitude, double radiusKm) {
+        var angularRadius = radiusKm / EARTH_RADIUS_KM;
+        var latitudeDelta = Math.toDegrees(angularRadius);
+        var minLatitude = latitude - latitudeDelta;
+        var maxLatitude = latitude + latitudeDelta;
+        if (minLatitude <= -90 || maxLatitude >= 90) {
+            return new BoundingBox(Math.max(minLatitude, -90), -180, Math.min(maxLatitude, 90), 180);
+        }
+
+        var longitudeDelta = Math.toDegrees(Math.asin(Math.sin(angularRadius) / Math.cos(Math.toRadians(latitude))));
+        var minLongitude = longitude - longitudeDelta;
+        var maxLongitude = longitude + longitudeDelta;
+        if (minLongitude < -180 || maxLongitude > 180) {
+            return new BoundingBox(minLatitude, -180, maxLatitude, 180);
+        }
+        return new BoundingBox(minLatitude, minLongitude, maxLatitude, maxLongitude);
+    }
+
+    /**
+     * Checks if the point lies inside the box, bounds included.
+     *
+     * @param latitude  The latitude of the point in degrees.
+     * @param longitude The longitude of the point in degrees.
+     * @return {@code true} if the point is inside the box.
+     */
+    public boolean contains(double latitude, double longitude) {
+        return latitude >= minLatitude && latitude <= maxLatitude
+                && longitude >= minLongitude && longitude <= maxLongitude;
+    }
+
+    /**
+     * Checks if the box covers every meridian, which happens when it reaches a pole or crosses the antimeridian.
+     *
+     * @return {@code true} if the box spans longitudes from -180 to 180.
+     */
+    public boolean spansAllLongitudes() {
+        return minLongitude <= -180 && maxLongitude >= 180;
+    }
+
+    /**
+     * Formats the box as a WKT polygon with coordinates in longitude-latitude order.
+     *
+     * @return The WKT polygon of the box.
+     */
+    public String toWkt() {
+        return "POLYGON((%1$s %2$s, %3$s %2$s, %3$s %4$s, %1$s %4$s, %1$s %2$s))"
+                .formatted(minLongitude, minLatitude, maxLongitude, maxLatitude);
+    }
+}
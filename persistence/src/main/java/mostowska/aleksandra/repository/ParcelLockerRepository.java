@@ -2,11 +2,14 @@ package mostowska.aleksandra.repository;
 
 import mostowska.aleksandra.model.Parcel;
 import mostowska.aleksandra.model.ParcelLocker;
+import mostowska.aleksandra.model.dto.LockerDistanceDto;
 import mostowska.aleksandra.model.utils.PackageDimensions;
 import mostowska.aleksandra.repository.generic.CrudRepository;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Repository interface for accessing and manipulating ParcelLocker entities.
@@ -30,4 +33,59 @@ public interface ParcelLockerRepository extends CrudRepository<ParcelLocker, Lon
      * @return An Optional containing the Parcel if available, otherwise empty.
      */
     Optional<Parcel> findAvailableParcelByLockerId(Integer parcelLockerId, PackageDimensions packageDimensions);
+
+    /**
+     * Finds the parcel lockers nearest to a location within a maximum distance.
+     * Requires the spatial {@code location} column added by
+     * {@link mostowska.aleksandra.db_management.DbManagement#addGeographicPointColumn}.
+     *
+     * @param latitude    The latitude of the location.
+     * @param longitude   The longitude of the location.
+     * @param k           The maximum number of parcel lockers to be found.
+     * @param maxRadiusKm The maximum great-circle distance from the location in kilometers.
+     * @return The found parcel lockers ordered by distance, nearest first.
+     */
+    List<ParcelLocker> findNearest(double latitude, double longitude, int k, double maxRadiusKm);
+
+    /**
+     * Streams the parcel lockers within a radius of a location, nearest first, without holding them in memory.
+     * The rows are prefiltered on the latitude and longitude columns by the bounding box of the circle,
+     * so the query can use the index created by {@link mostowska.aleksandra.db_management.DbManagement#createIndex},
+     * and ordered by distance in the database, so the first locker is passed on before the scan completes.
+     *
+     * @param latitude  The latitude of the center in degrees.
+     * @param longitude The longitude of the center in degrees.
+     * @param radiusKm  The radius in kilometers.
+     * @param limit     The maximum number of parcel lockers to be streamed.
+     * @param consumer  The consumer receiving the parcel lockers with their distances, nearest first.
+     */
+    void streamWithin(double latitude, double longitude, double radiusKm, int limit,
+                      Consumer<? super LockerDistanceDto> consumer);
+
+    /**
+     * Atomically decrements the number of available lockers of a parcel locker, without reading the locker first.
+     *
+     * @param id The ID of the parcel locker.
+     * @return {@code true} if the count was decremented, {@code false} if the parcel locker does not exist
+     *         or has no available lockers.
+     */
+    boolean decrementAvailable(int id);
+
+    /**
+     * Atomically increments the number of available lockers of a parcel locker, up to its total number of lockers.
+     *
+     * @param id The ID of the parcel locker.
+     * @return {@code true} if the count was incremented, {@code false} if the parcel locker does not exist
+     *         or all of its lockers are already available.
+     */
+    boolean incrementAvailable(int id);
+
+    /**
+     * Adds deltas to the numbers of available lockers of many parcel lockers in batched updates,
+     * e.g. to write back counts kept in memory. All updates run in one transaction.
+     * The resulting counts never drop below zero or exceed the total number of lockers.
+     *
+     * @param deltas The delta of the available lockers count by parcel locker ID.
+     */
+    void addAvailable(Map<Integer, Long> deltas);
 }
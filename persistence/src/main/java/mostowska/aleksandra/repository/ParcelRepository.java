@@ -1,10 +1,15 @@
 package mostowska.aleksandra.repository;
 
 import mostowska.aleksandra.model.Parcel;
+import mostowska.aleksandra.model.utils.PackageDimensions;
 import mostowska.aleksandra.model.utils.ParcelStatus;
 import mostowska.aleksandra.repository.generic.CrudRepository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 /**
  * Repository interface for accessing and manipulating 'Parcel' entities.
@@ -29,4 +34,41 @@ public interface ParcelRepository extends CrudRepository<Parcel, Long> {
      */
     List<Parcel> findByParcelLockerIdAndStatus(int parcelLockerId, ParcelStatus status);
 
+    /**
+     * Atomically claims an available parcel of the given dimensions in a parcel locker by marking it as reserved.
+     * Concurrent claims for the same locker never receive the same parcel and do not wait for each other.
+     * Of the fitting parcels the one with the smallest volume is claimed.
+     *
+     * @param parcelLockerId    The ID of the parcel locker to claim a parcel in.
+     * @param packageDimensions The dimensions of the package the parcel must fit.
+     * @return An Optional containing the reserved 'Parcel', or empty if no matching parcel is available.
+     */
+    Optional<Parcel> claimAvailableParcel(int parcelLockerId, PackageDimensions packageDimensions);
+
+    /**
+     * Claims the given parcel by marking it as reserved, on the condition that it is still available.
+     * Used to confirm a parcel chosen from an in-memory view, which may lag behind the database.
+     *
+     * @param parcel The parcel to be claimed.
+     * @return {@code true} if the parcel was available and is now reserved, {@code false} if it was not available.
+     */
+    boolean claimParcel(Parcel parcel);
+
+    /**
+     * Counts the AVAILABLE parcels of every parcel locker.
+     *
+     * @return The number of available parcels by parcel locker ID; lockers without available parcels are omitted.
+     */
+    Map<Integer, Long> countAvailableByParcelLockerId();
+
+    /**
+     * Releases reserved parcels whose reservations have all ended by marking them as available.
+     * Parcels that are no longer reserved, or that have a reservation ending after {@code now}, are left unchanged,
+     * so releasing the same parcels again has no effect.
+     *
+     * @param parcelIds The IDs of the parcels to be released.
+     * @param now       The time reservations ending at or before are considered expired.
+     * @return The released parcels, now marked as available.
+     */
+    List<Parcel> releaseExpiredParcels(Collection<Integer> parcelIds, LocalDateTime now);
 }
@@ -6,6 +6,7 @@ import mostowska.aleksandra.repository.generic.CrudRepository;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Repository interface for accessing and manipulating Reservation entities.
@@ -47,9 +48,12 @@ public interface ReservationRepository extends CrudRepository<Reservation, Long>
     Duration getRemainingTimeByReservationId(int id);
 
     /**
-     * Retrieves the ID of the last reservation in the repository.
+     * Streams the reservations ending at or before the given time that still hold their parcel:
+     * the parcel is reserved and no later reservation of the same parcel exists.
+     * Used to find reservations to be released, including those that expired while nothing was releasing them.
      *
-     * @return The ID of the last reservation, or null if no reservations exist.
+     * @param until    The latest release time.
+     * @param consumer The consumer receiving every matching reservation.
      */
-    Integer getLastReservationsId();
+    void streamReleasingUntil(LocalDateTime until, Consumer<? super Reservation> consumer);
 }
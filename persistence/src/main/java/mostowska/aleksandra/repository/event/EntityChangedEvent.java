@@ -0,0 +1,42 @@
+package mostowska.aleksandra.repository.event;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.core.ResolvableTypeProvider;
+
+/**
+ * Application event published by the repositories after an entity was written.
+ *
+ * <p>Inside a unit of work the event is published only after the transaction commits,
+ * so listeners never observe rolled back changes. Listeners select the entity type through
+ * the generic parameter, e.g. {@code @EventListener void on(EntityChangedEvent<ParcelLocker> event)}.</p>
+ *
+ * @param entityType The class of the changed entity.
+ * @param id         The ID of the changed entity.
+ * @param entity     The entity as it was written; fields left null by a partial update keep their stored values.
+ * @param changeType The kind of change.
+ * @param readBack   {@code true} if the entity was read back after a partial update, so the fields it did not
+ *                   write hold the stored values as of the update rather than values written by it.
+ * @param <T>        The type of the entity.
+ */
+public record EntityChangedEvent<T>(Class<T> entityType, Object id, T entity, ChangeType changeType, boolean readBack)
+        implements ResolvableTypeProvider {
+
+    /**
+     * Creates an event of an entity that was not read back.
+     */
+    public EntityChangedEvent(Class<T> entityType, Object id, T entity, ChangeType changeType) {
+        this(entityType, id, entity, changeType, false);
+    }
+
+    /**
+     * The kind of change applied to an entity.
+     */
+    public enum ChangeType {
+        SAVED, UPDATED, DELETED
+    }
+
+    @Override
+    public ResolvableType getResolvableType() {
+        return ResolvableType.forClassWithGenerics(EntityChangedEvent.class, entityType);
+    }
+}
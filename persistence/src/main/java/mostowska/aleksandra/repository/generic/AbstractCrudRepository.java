@@ -1,123 +1,471 @@
 package mostowska.aleksandra.repository.generic;
 
-import com.google.common.base.CaseFormat;
+import com.google.common.collect.Lists;
 import lombok.RequiredArgsConstructor;
-import mostowska.aleksandra.model.utils.ParcelStatus;
-import org.atteo.evo.inflector.English;
+import mostowska.aleksandra.repository.event.EntityChangedEvent;
+import mostowska.aleksandra.repository.event.EntityChangedEvent.ChangeType;
+import mostowska.aleksandra.repository.transaction.UnitOfWork;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.HandleCallback;
+import org.jdbi.v3.core.HandleConsumer;
 import org.jdbi.v3.core.Jdbi;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.lang.reflect.ParameterizedType;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
-import static java.util.stream.Collectors.joining;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Abstract base class for CRUD operations using JDBI.
- * Provides common methods for CRUD operations and SQL query construction.
+ * Provides common methods for CRUD operations built on the parameterized SQL templates
+ * of the entity's {@link EntityMetadata}.
+ * Every write publishes an {@link EntityChangedEvent} once it is committed.
  *
  * @param <T> The type of the entity.
  * @param <ID> The type of the entity's identifier.
  */
 @RequiredArgsConstructor
 public abstract class AbstractCrudRepository<T, ID> implements CrudRepository<T, ID> {
+    private static final int DEFAULT_BATCH_CHUNK_SIZE = 1000;
+    private static final int DEFAULT_STREAM_FETCH_SIZE = 1000;
+
     protected final Jdbi jdbi;
 
     @SuppressWarnings("unchecked")
     private final Class<T> entityType
             = (Class<T>) ((ParameterizedType) super.getClass().getGenericSuperclass()).getActualTypeArguments()[0];
 
+    protected final EntityMetadata<T> metadata = EntityMetadata.of(entityType);
+
+    private int batchChunkSize = DEFAULT_BATCH_CHUNK_SIZE;
+    private int streamFetchSize = DEFAULT_STREAM_FETCH_SIZE;
+    private ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Inserts the entity and reads its generated id in the same statement.
+     * Only columns marked with {@link DatabaseComputed} are read back from the database.
+     *
+     * @param item The entity to be saved.
+     * @return The given entity with its generated id set.
+     */
     @Override
     public T save(T item) {
-        var sql = "insert into %s %s values %s;".formatted(
-                tableName(),
-                columnNamesForInsert(),
-                columnValuesForInsert(item)
-        );
-        var insertedRows = jdbi.withHandle(handle -> handle.execute(sql));
-
-        if (insertedRows == 0) {
-            throw new IllegalStateException("Row not inserted");
-        }
+        var saved = withHandle(handle -> {
+            var id = insert(handle, item);
+            metadata.idColumn().set(item, id);
+            reloadComputedColumns(handle, id, item);
+            return item;
+        });
+        publishChange(ChangeType.SAVED, metadata.idColumn().get(saved), saved);
+        return saved;
+    }
 
-        return findLast(1).get(0);
+    /**
+     * Inserts the entity without changing it. The generated id is still read from the
+     * insert statement, so the published change event carries it.
+     */
+    @Override
+    public void saveNoReturn(T item) {
+        var id = withHandle(handle -> insert(handle, item));
+        publishChange(ChangeType.SAVED, id, item);
     }
 
+    /**
+     * Updates the entity and builds the result from the bound values.
+     * If some fields of the entity are null, their stored values are kept, so the row is
+     * read back on the same handle; otherwise only {@link DatabaseComputed} columns are read back.
+     *
+     * @param id The ID of the entity to be updated.
+     * @param item The updated entity.
+     * @return The updated entity.
+     */
     @Override
     public T update(ID id, T item) {
-        var sql = "update %s set %s where id = :id".formatted(
-                tableName(),
-                columnNamesAndValuesForUpdate(item)
-        );
-        var updatedRows = jdbi.withHandle(handle -> handle
-                .createUpdate(sql)
-                .bind("id", id)
-                .execute());
+        var partialUpdate = metadata
+                .writableColumns()
+                .stream()
+                .anyMatch(column -> column.get(item) == null);
+        var updated = withHandle(handle -> {
+            if (executeUpdate(handle, id, item) == 0) {
+                throw new IllegalStateException("Update not completed");
+            }
 
-        if (updatedRows == 0) {
+            if (partialUpdate) {
+                return handle
+                        .createQuery(metadata.selectByIdSql())
+                        .bind("id", id)
+                        .map(metadata.rowMapper())
+                        .one();
+            }
+
+            var idColumn = metadata.idColumn();
+            idColumn.set(item, toIdValue(id));
+            reloadComputedColumns(handle, id, item);
+            return item;
+        });
+        publishChange(ChangeType.UPDATED, toIdValue(id), updated, partialUpdate);
+        return updated;
+    }
+
+    @Override
+    public void updateNoReturn(ID id, T item) {
+        if (withHandle(handle -> executeUpdate(handle, id, item)) == 0) {
             throw new IllegalStateException("Update not completed");
         }
-
-        return findById(id).orElseThrow();
+        publishChange(ChangeType.UPDATED, toIdValue(id), item);
     }
 
+    /**
+     * Saves multiple entities using chunks of the configured size.
+     *
+     * @param items The list of entities to be saved.
+     * @return The saved entities in input order, with their generated ids set.
+     */
     @Override
     public List<T> saveAll(List<T> items) {
-        var sql = "insert into %s %s values %s".formatted(
-                tableName(),
-                columnNamesForInsert(),
-                items
-                        .stream()
-                        .map(this::columnValuesForInsert)
-                        .collect(joining(", ")));
-        var insertedRows = jdbi.withHandle(handle -> handle.execute(sql));
-        if (insertedRows == 0) {
-            throw new IllegalStateException("Rows not inserted");
+        return saveAll(items, batchChunkSize);
+    }
+
+    /**
+     * Saves multiple entities with JDBC batches of at most {@code chunkSize} rows.
+     * All chunks are inserted in one transaction. The generated ids are read from the
+     * generated keys of each batch and set on the given entities, so no select is needed.
+     *
+     * @param items     The list of entities to be saved.
+     * @param chunkSize The maximum number of rows sent in one batch.
+     * @return The saved entities in input order, with their generated ids set.
+     */
+    @Override
+    public List<T> saveAll(List<T> items, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        if (items.isEmpty()) {
+            return List.of();
+        }
+
+        var idColumn = metadata.idColumn();
+        useTransaction(handle -> {
+            for (var chunk : Lists.partition(items, chunkSize)) {
+                var batch = handle.prepareBatch(metadata.insertSql());
+                chunk.forEach(item -> metadata.bindWritable(batch, item).add());
+                List<?> ids = batch
+                        .executePreparedBatch(idColumn.name())
+                        .mapTo(idColumn.type())
+                        .list();
+
+                if (ids.size() != chunk.size()) {
+                    throw new IllegalStateException("Rows not inserted");
+                }
+                for (int i = 0; i < chunk.size(); i++) {
+                    idColumn.set(chunk.get(i), ids.get(i));
+                }
+            }
+        });
+        items.forEach(item -> publishChange(ChangeType.SAVED, idColumn.get(item), item));
+        return items;
+    }
+
+    /**
+     * Sets the number of rows fetched from the database cursor at once by {@code streamAll}.
+     *
+     * @param streamFetchSize The fetch size, read from the {@code repository.stream.fetch-size} property.
+     */
+    @Value("${repository.stream.fetch-size:" + DEFAULT_STREAM_FETCH_SIZE + "}")
+    public void setStreamFetchSize(int streamFetchSize) {
+        this.streamFetchSize = streamFetchSize;
+    }
+
+    /**
+     * @return The number of rows fetched from the database cursor at once, for streaming queries of subclasses.
+     */
+    protected int streamFetchSize() {
+        return streamFetchSize;
+    }
+
+    /**
+     * Sets the publisher of {@link EntityChangedEvent}s. Without a publisher no events are published.
+     *
+     * @param eventPublisher The application event publisher.
+     */
+    @Autowired(required = false)
+    public void setEventPublisher(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Publishes a change of an entity. Inside a unit of work the event is published after the commit.
+     *
+     * @param changeType The kind of change.
+     * @param id The ID of the changed entity.
+     * @param item The entity as it was written.
+     */
+    protected void publishChange(ChangeType changeType, Object id, T item) {
+        publishChange(changeType, id, item, false);
+    }
+
+    /**
+     * Publishes a change of an entity that may have been read back after a partial update.
+     *
+     * @param changeType The kind of change.
+     * @param id The ID of the changed entity.
+     * @param item The entity as it was written or read back.
+     * @param readBack Whether the entity was read back after a partial update.
+     */
+    protected void publishChange(ChangeType changeType, Object id, T item, boolean readBack) {
+        if (eventPublisher == null) {
+            return;
         }
-        return findLast(insertedRows);
+        var event = new EntityChangedEvent<>(metadata.entityType(), id, item, changeType, readBack);
+        UnitOfWork.afterCommit(() -> eventPublisher.publishEvent(event));
+    }
+
+    /**
+     * Runs the callback on the handle of the current unit of work, or on a new handle if there is none.
+     *
+     * @param callback The callback receiving the handle.
+     * @param <R> The type of the result.
+     * @param <X> The type of the exception thrown by the callback.
+     * @return The result of the callback.
+     * @throws X if the callback throws.
+     */
+    protected <R, X extends Exception> R withHandle(HandleCallback<R, X> callback) throws X {
+        var current = UnitOfWork.currentHandle();
+        return current != null ? callback.withHandle(current) : jdbi.withHandle(callback);
+    }
+
+    /**
+     * Runs the consumer on the handle of the current unit of work, or on a new handle if there is none.
+     *
+     * @param consumer The consumer receiving the handle.
+     * @param <X> The type of the exception thrown by the consumer.
+     * @throws X if the consumer throws.
+     */
+    protected <X extends Exception> void useHandle(HandleConsumer<X> consumer) throws X {
+        withHandle(handle -> {
+            consumer.useHandle(handle);
+            return null;
+        });
+    }
+
+    /**
+     * Runs the callback in a transaction. Inside a unit of work the callback joins its transaction,
+     * otherwise a new handle and transaction are used.
+     *
+     * @param callback The callback receiving the handle.
+     * @param <R> The type of the result.
+     * @param <X> The type of the exception thrown by the callback.
+     * @return The result of the callback.
+     * @throws X if the callback throws.
+     */
+    protected <R, X extends Exception> R inTransaction(HandleCallback<R, X> callback) throws X {
+        var current = UnitOfWork.currentHandle();
+        return current != null ? callback.withHandle(current) : jdbi.inTransaction(callback);
+    }
+
+    /**
+     * Runs the consumer in a transaction, joining the transaction of the current unit of work if there is one.
+     *
+     * @param consumer The consumer receiving the handle.
+     * @param <X> The type of the exception thrown by the consumer.
+     * @throws X if the consumer throws.
+     */
+    protected <X extends Exception> void useTransaction(HandleConsumer<X> consumer) throws X {
+        inTransaction(handle -> {
+            consumer.useHandle(handle);
+            return null;
+        });
+    }
+
+    /**
+     * Executes the insert template for the entity.
+     *
+     * @param handle The handle to execute the statement on.
+     * @param item The entity to be inserted.
+     * @return The generated id of the inserted row.
+     */
+    private Object insert(Handle handle, T item) {
+        var idColumn = metadata.idColumn();
+        return metadata
+                .bindWritable(handle.createUpdate(metadata.insertSql()), item)
+                .executeAndReturnGeneratedKeys(idColumn.name())
+                .mapTo(idColumn.type())
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Row not inserted"));
+    }
+
+    /**
+     * Executes the update template for the entity.
+     *
+     * @param handle The handle to execute the statement on.
+     * @param id The ID of the entity to be updated.
+     * @param item The updated entity.
+     * @return The number of updated rows.
+     */
+    private int executeUpdate(Handle handle, ID id, T item) {
+        return metadata
+                .bindWritable(handle.createUpdate(metadata.updateSql()), item)
+                .bind("id", id)
+                .execute();
+    }
+
+    /**
+     * Reads the columns computed by the database and sets them on the entity.
+     * Does nothing if the entity has no {@link DatabaseComputed} columns.
+     *
+     * @param handle The handle used for the write.
+     * @param id The ID of the written row.
+     * @param item The entity to be completed.
+     */
+    private void reloadComputedColumns(Handle handle, Object id, T item) {
+        if (metadata.computedColumns().isEmpty()) {
+            return;
+        }
+        handle
+                .createQuery(metadata.selectComputedSql())
+                .bind("id", id)
+                .map((rs, ctx) -> {
+                    for (var column : metadata.computedColumns()) {
+                        var mapper = ctx
+                                .findColumnMapperFor(column.type())
+                                .orElseThrow(() -> new IllegalStateException("No mapper for " + column.type()));
+                        column.set(item, mapper.map(rs, column.name(), ctx));
+                    }
+                    return item;
+                })
+                .one();
+    }
+
+    /**
+     * Converts the repository ID to the type of the entity's id field.
+     *
+     * @param id The ID passed to the repository.
+     * @return The ID as an instance of the id field type.
+     */
+    private Object toIdValue(ID id) {
+        var idType = metadata.idColumn().type();
+        if (id instanceof Number number && idType == Integer.class) {
+            return number.intValue();
+        }
+        if (id instanceof Number number && idType == Long.class) {
+            return number.longValue();
+        }
+        return id;
+    }
+
+    /**
+     * Sets the default number of rows sent in one batch by {@link #saveAll(List)}.
+     *
+     * @param batchChunkSize The chunk size, read from the {@code repository.batch.chunk-size} property.
+     */
+    @Value("${repository.batch.chunk-size:" + DEFAULT_BATCH_CHUNK_SIZE + "}")
+    public void setBatchChunkSize(int batchChunkSize) {
+        this.batchChunkSize = batchChunkSize;
+    }
+
+    /**
+     * @return The default number of rows sent in one batch, for batched statements of subclasses.
+     */
+    protected int batchChunkSize() {
+        return batchChunkSize;
     }
 
     @Override
     public Optional<T> findById(ID id) {
-        var sql = "select * from " + tableName() + " where id = :id";
-        return jdbi.withHandle(handle -> handle
-                .createQuery(sql)
+        return withHandle(handle -> handle
+                .createQuery(metadata.selectByIdSql())
                 .bind("id", id)
-                .mapToBean(entityType)
+                .map(metadata.rowMapper())
                 .findFirst()
         );
     }
 
     @Override
     public List<T> findLast(int n) {
-        var sql = "select * from " + tableName() + " order by id desc limit :n";
-        return jdbi.withHandle(handle -> handle
-                .createQuery(sql)
+        return withHandle(handle -> handle
+                .createQuery(metadata.selectLastSql())
                 .bind("n", n)
-                .mapToBean(entityType)
+                .map(metadata.rowMapper())
                 .list()
         );
     }
 
     @Override
     public List<T> findAll() {
-        var sql = "select * from " + tableName();
-        return jdbi.withHandle(handle -> handle
-                .createQuery(sql)
-                .mapToBean(entityType)
+        return withHandle(handle -> handle
+                .createQuery(metadata.selectAllSql())
+                .map(metadata.rowMapper())
                 .list()
         );
     }
 
+    @Override
+    public void streamAll(Consumer<? super T> consumer) {
+        useHandle(handle -> handle
+                .createQuery(metadata.selectAllOrderedSql())
+                .setFetchSize(streamFetchSize)
+                .map(metadata.rowMapper())
+                .forEach(consumer));
+    }
+
+    /**
+     * Opens a handle owned by the returned stream; closing the stream closes the handle.
+     * Inside a unit of work the ambient handle is used and stays open.
+     */
+    @Override
+    public Stream<T> streamAll() {
+        var current = UnitOfWork.currentHandle();
+        var handle = current != null ? current : jdbi.open();
+        try {
+            var stream = handle
+                    .createQuery(metadata.selectAllOrderedSql())
+                    .setFetchSize(streamFetchSize)
+                    .map(metadata.rowMapper())
+                    .stream();
+            return current != null ? stream : stream.onClose(handle::close);
+        } catch (RuntimeException e) {
+            if (current == null) {
+                handle.close();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Reads one row more than requested to know whether there is a next page.
+     */
+    @Override
+    public Page<T> findPage(ID afterId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive");
+        }
+        var pageSize = Math.min(limit, MAX_PAGE_SIZE);
+
+        var items = withHandle(handle -> handle
+                .createQuery(metadata.selectPageSql())
+                .bind("after", afterId == null ? 0L : afterId)
+                .bind("limit", pageSize + 1)
+                .map(metadata.rowMapper())
+                .list());
+
+        if (items.size() <= pageSize) {
+            return new Page<>(items, null);
+        }
+        var pageItems = items.subList(0, pageSize);
+        var lastId = (Number) metadata.idColumn().get(pageItems.getLast());
+        return new Page<>(List.copyOf(pageItems), lastId.longValue());
+    }
+
     @Override
     public List<T> findAllById(List<ID> ids) {
-        var sql = "select * from " + tableName() + " where id in (<ids>)";
-        var items = jdbi.withHandle(handle -> handle
-                .createQuery(sql)
+        var items = withHandle(handle -> handle
+                .createQuery(metadata.selectAllByIdSql())
                 .bindList("ids", ids)
-                .mapToBean(entityType)
+                .map(metadata.rowMapper())
                 .list());
 
         if (items.size() != ids.size()) {
@@ -132,148 +480,36 @@ public abstract class AbstractCrudRepository<T, ID> implements CrudRepository<T,
         var itemToDelete = findById(id)
                 .orElseThrow(() -> new IllegalStateException("No item to delete"));
 
-        var sql = "delete from " + tableName() + " where id = :id";
-        jdbi.useHandle(handle -> handle
+        var sql = "delete from " + metadata.tableName() + " where id = :id";
+        useHandle(handle -> handle
                 .createUpdate(sql).bind("id", id)
                 .execute());
+        publishChange(ChangeType.DELETED, toIdValue(id), itemToDelete);
         return itemToDelete;
     }
 
     @Override
     public List<T> deleteAllById(List<ID> ids) {
         var items = findAllById(ids);
-        var sql = "delete from " + tableName() + " where id in (<ids>)";
-        jdbi.useHandle(handle -> handle
+        var sql = "delete from " + metadata.tableName() + " where id in (<ids>)";
+        useHandle(handle -> handle
                 .createUpdate(sql)
                 .bindList("ids", ids)
                 .execute());
+        items.forEach(this::publishDeleted);
         return items;
     }
 
     @Override
     public List<T> deleteAll() {
         var items = findAll();
-        var sql = "delete from " + tableName() + " where id > 0";
-        jdbi.useHandle(handle -> handle.execute(sql));
+        var sql = "delete from " + metadata.tableName() + " where id > 0";
+        useHandle(handle -> handle.execute(sql));
+        items.forEach(this::publishDeleted);
         return items;
     }
 
-    /**
-     * Converts a camel case string to a lower underscore format.
-     *
-     * @param upperCamel The camel case string to convert.
-     * @return The converted string in lower underscore format.
-     */
-    private String toLowerUnderscore(String upperCamel) {
-        return CaseFormat.UPPER_CAMEL.to(
-                CaseFormat.LOWER_UNDERSCORE,
-                upperCamel);
-    }
-
-    /**
-     * Retrieves the table name for the entity.
-     *
-     * @return The plural form of the entity's name in lower underscore format.
-     */
-    private String tableName() {
-        return English.plural(toLowerUnderscore(entityType.getSimpleName()));
-    }
-
-    /**
-     * Retrieves the column names for a select query.
-     *
-     * @return An array of column names in lower underscore format.
-     */
-    private String[] columnNamesForSelect() {
-        return Arrays
-                .stream(entityType.getDeclaredFields())
-                .map(field -> toLowerUnderscore(field.getName()))
-                .toArray(String[]::new);
-    }
-
-    /**
-     * Retrieves the column names for an insert query.
-     *
-     * @return A string of column names in lower underscore format, enclosed in parentheses.
-     */
-    private String columnNamesForInsert() {
-        var cols = Arrays
-                .stream(entityType.getDeclaredFields())
-                .filter(field -> !field.getName().equalsIgnoreCase("id"))
-                .map(field -> toLowerUnderscore(field.getName()))
-                .collect(joining(", "));
-        return "( %s )".formatted(cols);
-    }
-
-    /**
-     * Retrieves the column values for an insert query.
-     *
-     * @param item The entity containing the values to be inserted.
-     * @return A string of column values, enclosed in parentheses.
-     */
-    private String columnValuesForInsert(T item) {
-        var values = Arrays
-                .stream(entityType.getDeclaredFields())
-                .filter(field -> !field.getName().equalsIgnoreCase("id"))
-                .map(field -> {
-                    try {
-                        field.setAccessible(true);
-
-                        if (field.get(item) == null) {
-                            return "NULL";
-                        }
-
-                        if (List.of(
-                                String.class,
-                                Enum.class,
-                                ParcelStatus.class,
-                                LocalDateTime.class,
-                                LocalDate.class).contains(field.getType())) {
-                            return "'%s'".formatted(field.get(item));
-                        }
-                        return field.get(item).toString();
-                    } catch (Exception e) {
-                        throw new IllegalStateException(e);
-                    }
-                }).collect(joining(", "));
-        return "( %s )".formatted(values);
-    }
-
-    /**
-     * Retrieves the column names and values for an update query.
-     *
-     * @param item The entity containing the updated values.
-     * @return A string of column names and values, formatted for the update query.
-     */
-    private String columnNamesAndValuesForUpdate(T item) {
-        return Arrays
-                .stream(entityType.getDeclaredFields())
-                .filter(field -> {
-                    try {
-                        field.setAccessible(true);
-                        return !field.getName().equalsIgnoreCase("id") && field.get(item) != null;
-                    } catch (Exception e) {
-                        throw new IllegalStateException(e);
-                    }
-                })
-                .map(field -> {
-                    try {
-                        field.setAccessible(true);
-
-                        if (List.of(
-                                String.class,
-                                Enum.class,
-                                ParcelStatus.class,
-                                LocalDateTime.class,
-                                LocalDate.class).contains(field.getType())) {
-                            return "%s='%s'".formatted(
-                                    toLowerUnderscore(field.getName()),
-                                    field.get(item));
-                        }
-                        return toLowerUnderscore(field.getName()) + "=" + field.get(item).toString();
-                    } catch (Exception e) {
-                        throw new IllegalStateException(e);
-                    }
-                }).collect(joining(", "));
+    private void publishDeleted(T item) {
+        publishChange(ChangeType.DELETED, metadata.idColumn().get(item), item);
     }
 }
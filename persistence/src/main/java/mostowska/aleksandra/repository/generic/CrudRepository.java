@@ -2,6 +2,8 @@ package mostowska.aleksandra.repository.generic;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Generic repository interface providing CRUD operations for entities.
@@ -11,6 +13,11 @@ import java.util.Optional;
  */
 public interface CrudRepository<T, ID> {
 
+    /**
+     * Hard maximum of entities returned by {@link #findPage(Object, int)}.
+     */
+    int MAX_PAGE_SIZE = 1000;
+
     /**
      * Saves a single entity.
      *
@@ -19,6 +26,14 @@ public interface CrudRepository<T, ID> {
      */
     T save(T item);
 
+    /**
+     * Saves a single entity without building the saved entity.
+     * Intended for callers that ignore the result of {@link #save(Object)}.
+     *
+     * @param item The entity to be saved.
+     */
+    void saveNoReturn(T item);
+
     /**
      * Updates an existing entity by its ID.
      *
@@ -28,14 +43,32 @@ public interface CrudRepository<T, ID> {
      */
     T update(ID id, T item);
 
+    /**
+     * Updates an existing entity by its ID without building the updated entity.
+     * Intended for callers that ignore the result of {@link #update(Object, Object)}.
+     *
+     * @param id The ID of the entity to be updated.
+     * @param item The updated entity.
+     */
+    void updateNoReturn(ID id, T item);
+
     /**
      * Saves multiple entities.
      *
      * @param items The list of entities to be saved.
-     * @return The list of saved entities.
+     * @return The list of saved entities, in input order.
      */
     List<T> saveAll(List<T> items);
 
+    /**
+     * Saves multiple entities, sending at most {@code chunkSize} rows to the database at once.
+     *
+     * @param items The list of entities to be saved.
+     * @param chunkSize The maximum number of rows in a single batch.
+     * @return The list of saved entities, in input order.
+     */
+    List<T> saveAll(List<T> items, int chunkSize);
+
     /**
      * Finds an entity by its ID.
      *
@@ -59,6 +92,32 @@ public interface CrudRepository<T, ID> {
      */
     List<T> findAll();
 
+    /**
+     * Passes all entities, ordered by id, to the consumer as they are read from a forward-only cursor.
+     * Only the rows of the current fetch are held in memory.
+     *
+     * @param consumer The consumer of the entities.
+     */
+    void streamAll(Consumer<? super T> consumer);
+
+    /**
+     * Streams all entities, ordered by id, from a forward-only cursor.
+     * The stream holds a database connection and must be closed, e.g. with try-with-resources.
+     *
+     * @return A lazy stream of all entities.
+     */
+    Stream<T> streamAll();
+
+    /**
+     * Finds a page of entities ordered by id, starting after the given id.
+     * The limit is capped at {@link #MAX_PAGE_SIZE}.
+     *
+     * @param afterId The id after which the page starts, or null to start from the first entity.
+     * @param limit The maximum number of entities in the page.
+     * @return The page with the cursor of the next page.
+     */
+    Page<T> findPage(ID afterId, int limit);
+
     /**
      * Finds all entities with the given IDs.
      *
@@ -0,0 +1,18 @@
+package mostowska.aleksandra.repository.generic;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an entity field whose column value is computed by the database
+ * (e.g. a default, a trigger or a generated column).
+ *
+ * <p>Such columns are never written by {@link AbstractCrudRepository}. After an insert or update
+ * only these columns are read back, so the returned entity reflects the stored values.</p>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface DatabaseComputed {
+}
@@ -0,0 +1,338 @@
+package mostowska.aleksandra.repository.generic;
+
+import com.google.common.base.CaseFormat;
+import org.atteo.evo.inflector.English;
+import org.jdbi.v3.core.statement.SqlStatement;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Describes how an entity type is mapped to its database table.
+ *
+ * <p>The metadata is computed once per entity type and cached. It holds the table name,
+ * the columns with their field accessors and the parameterized SQL templates used by
+ * {@link AbstractCrudRepository}, so no reflection or string building happens per call.</p>
+ *
+ * @param <T> The type of the entity.
+ */
+public final class EntityMetadata<T> {
+
+    private static final String ID_FIELD = "id";
+
+    private static final ClassValue<EntityMetadata<?>> CACHE = new ClassValue<>() {
+        @Override
+        protected EntityMetadata<?> computeValue(Class<?> type) {
+            return new EntityMetadata<>(type);
+        }
+    };
+
+    private final Class<T> entityType;
+    private final String tableName;
+    private final Column idColumn;
+    private final List<Column> columns;
+    private final List<Column> writableColumns;
+    private final List<Column> computedColumns;
+
+    private final String selectColumns;
+    private final String insertSql;
+    private final String updateSql;
+    private final String selectAllSql;
+    private final String selectByIdSql;
+    private final String selectLastSql;
+    private final String selectAllByIdSql;
+    private final String selectPageSql;
+    private final String selectAllOrderedSql;
+    private final String selectComputedSql;
+
+    private final EntityRowMapper<T> rowMapper;
+
+    /**
+     * Describes a single mapped column.
+     *
+     * @param name   The column name in lower underscore format, also used as the bind parameter name.
+     * @param field  The name of the entity field.
+     * @param type   The declared type of the field.
+     * @param computed Whether the column value is computed by the database.
+     * @param getter The field getter adapted to {@code (Object)Object}.
+     * @param setter The field setter adapted to {@code (Object, Object)void}.
+     */
+    public record Column(String name, String field, Class<?> type, boolean computed,
+                         MethodHandle getter, MethodHandle setter) {
+
+        /**
+         * Reads the value of this column from the given entity.
+         *
+         * @param entity The entity to read from.
+         * @return The field value, possibly null.
+         */
+        public Object get(Object entity) {
+            try {
+                return (Object) getter.invokeExact(entity);
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * Writes the value of this column into the given entity.
+         *
+         * @param entity The entity to write to.
+         * @param value  The value to set.
+         */
+        public void set(Object entity, Object value) {
+            try {
+                setter.invokeExact(entity, value);
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private EntityMetadata(Class<T> entityType) {
+        this.entityType = entityType;
+        this.tableName = English.plural(toLowerUnderscore(entityType.getSimpleName()));
+
+        var lookup = privateLookup(entityType);
+        this.columns = Arrays
+                .stream(entityType.getDeclaredFields())
+                .filter(field -> !Modifier.isStatic(field.getModifiers()) && !field.isSynthetic())
+                .map(field -> toColumn(lookup, field))
+                .toList();
+        this.idColumn = columns
+                .stream()
+                .filter(column -> column.field().equalsIgnoreCase(ID_FIELD))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No id field in " + entityType.getName()));
+        this.writableColumns = columns
+                .stream()
+                .filter(column -> column != idColumn && !column.computed())
+                .toList();
+        this.computedColumns = columns
+                .stream()
+                .filter(Column::computed)
+                .toList();
+
+        this.selectColumns = columns.stream().map(Column::name).collect(joining(", "));
+        this.insertSql = "insert into %s (%s) values (%s)".formatted(
+                tableName,
+                writableColumns.stream().map(Column::name).collect(joining(", ")),
+                writableColumns.stream().map(column -> ":" + column.name()).collect(joining(", ")));
+        this.updateSql = "update %s set %s where %s = :%s".formatted(
+                tableName,
+                writableColumns
+                        .stream()
+                        .map(column -> "%1$s = coalesce(:%1$s, %1$s)".formatted(column.name()))
+                        .collect(joining(", ")),
+                idColumn.name(),
+                idColumn.name());
+        this.selectAllSql = "select %s from %s".formatted(selectColumns, tableName);
+        this.selectByIdSql = selectAllSql + " where %s = :id".formatted(idColumn.name());
+        this.selectLastSql = selectAllSql + " order by %s desc limit :n".formatted(idColumn.name());
+        this.selectAllByIdSql = selectAllSql + " where %s in (<ids>)".formatted(idColumn.name());
+        this.selectAllOrderedSql = selectAllSql + " order by %s".formatted(idColumn.name());
+        this.selectPageSql = selectAllSql + " where %1$s > :after order by %1$s limit :limit".formatted(idColumn.name());
+        this.selectComputedSql = computedColumns.isEmpty() ? null : "select %s from %s where %s = :id".formatted(
+                computedColumns.stream().map(Column::name).collect(joining(", ")),
+                tableName,
+                idColumn.name());
+
+        this.rowMapper = new EntityRowMapper<>(this, allArgsConstructor(lookup, entityType, columns));
+    }
+
+    /**
+     * Retrieves the cached metadata of the given entity type.
+     *
+     * @param entityType The entity class.
+     * @param <T>        The type of the entity.
+     * @return The metadata of the entity type.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> EntityMetadata<T> of(Class<T> entityType) {
+        return (EntityMetadata<T>) CACHE.get(entityType);
+    }
+
+    /**
+     * Binds the values of all writable columns of the entity to the statement.
+     * Values are bound by their declared field type, so null values are bound with the proper SQL type.
+     *
+     * @param statement The statement using {@link #insertSql()} or {@link #updateSql()}.
+     * @param item      The entity providing the values.
+     * @param <S>       The type of the statement.
+     * @return The same statement, for chaining.
+     */
+    public <S extends SqlStatement<S>> S bindWritable(S statement, T item) {
+        for (var column : writableColumns) {
+            statement.bindByType(column.name(), column.get(item), column.type());
+        }
+        return statement;
+    }
+
+    public Class<T> entityType() {
+        return entityType;
+    }
+
+    public String tableName() {
+        return tableName;
+    }
+
+    public Column idColumn() {
+        return idColumn;
+    }
+
+    public List<Column> columns() {
+        return columns;
+    }
+
+    /**
+     * @return Columns written by insert and update statements: all except the id and computed columns.
+     */
+    public List<Column> writableColumns() {
+        return writableColumns;
+    }
+
+    /**
+     * @return Columns annotated with {@link DatabaseComputed}.
+     */
+    public List<Column> computedColumns() {
+        return computedColumns;
+    }
+
+    /**
+     * @return Comma separated list of all column names, for use in select queries.
+     */
+    public String selectColumns() {
+        return selectColumns;
+    }
+
+    /**
+     * @return Insert statement with a named parameter for every writable column.
+     */
+    public String insertSql() {
+        return insertSql;
+    }
+
+    /**
+     * @return Update statement by {@code :id}; columns bound to null keep their current value.
+     */
+    public String updateSql() {
+        return updateSql;
+    }
+
+    public String selectAllSql() {
+        return selectAllSql;
+    }
+
+    /**
+     * @return Select query by the {@code :id} parameter.
+     */
+    public String selectByIdSql() {
+        return selectByIdSql;
+    }
+
+    /**
+     * @return Select query of the last {@code :n} rows ordered by id descending.
+     */
+    public String selectLastSql() {
+        return selectLastSql;
+    }
+
+    /**
+     * @return Select query by the {@code <ids>} list parameter.
+     */
+    public String selectAllByIdSql() {
+        return selectAllByIdSql;
+    }
+
+    /**
+     * @return Select query of all rows ordered by id.
+     */
+    public String selectAllOrderedSql() {
+        return selectAllOrderedSql;
+    }
+
+    /**
+     * @return Keyset page query of at most {@code :limit} rows with id greater than {@code :after}, ordered by id.
+     */
+    public String selectPageSql() {
+        return selectPageSql;
+    }
+
+    /**
+     * @return Select query of the computed columns by the {@code :id} parameter,
+     *         or null if the entity has no computed columns.
+     */
+    public String selectComputedSql() {
+        return selectComputedSql;
+    }
+
+    /**
+     * @return The row mapper creating entities through their all-args constructor.
+     */
+    public EntityRowMapper<T> rowMapper() {
+        return rowMapper;
+    }
+
+    /**
+     * Converts a camel case string to a lower underscore format.
+     *
+     * @param camel The camel case string to convert.
+     * @return The converted string in lower underscore format.
+     */
+    private static String toLowerUnderscore(String camel) {
+        return CaseFormat.UPPER_CAMEL.to(CaseFormat.LOWER_UNDERSCORE, camel);
+    }
+
+    private static MethodHandles.Lookup privateLookup(Class<?> entityType) {
+        try {
+            return MethodHandles.privateLookupIn(entityType, MethodHandles.lookup());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Finds the all-args constructor taking the fields in declaration order
+     * (as generated by Lombok's {@code @AllArgsConstructor}).
+     *
+     * @return The constructor adapted to {@code (Object[])Object}.
+     */
+    private static MethodHandle allArgsConstructor(MethodHandles.Lookup lookup, Class<?> entityType, List<Column> columns) {
+        try {
+            var parameterTypes = columns.stream().map(Column::type).toArray(Class<?>[]::new);
+            return lookup
+                    .findConstructor(entityType, MethodType.methodType(void.class, parameterTypes))
+                    .asSpreader(Object[].class, parameterTypes.length)
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("No all-args constructor in " + entityType.getName(), e);
+        }
+    }
+
+    private static Column toColumn(MethodHandles.Lookup lookup, Field field) {
+        try {
+            var getter = lookup
+                    .findGetter(field.getDeclaringClass(), field.getName(), field.getType())
+                    .asType(MethodType.methodType(Object.class, Object.class));
+            var setter = lookup
+                    .findSetter(field.getDeclaringClass(), field.getName(), field.getType())
+                    .asType(MethodType.methodType(void.class, Object.class, Object.class));
+            return new Column(
+                    toLowerUnderscore(field.getName()),
+                    field.getName(),
+                    field.getType(),
+                    field.isAnnotationPresent(DatabaseComputed.class),
+                    getter,
+                    setter);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package mostowska.aleksandra.repository.generic;
+
+import org.jdbi.v3.core.mapper.RowMapper;
+import org.jdbi.v3.core.statement.StatementContext;
+
+import java.lang.invoke.MethodHandle;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Locale;
+
+/**
+ * Row mapper specialized for one entity type.
+ *
+ * <p>Instead of resolving JavaBean setters for every row like {@code mapToBean}, the mapper
+ * resolves the column indexes once per result set in {@link #specialize(ResultSet, StatementContext)}
+ * and creates the entity through its all-args constructor, using a typed reader per column.
+ * Columns missing from the result set are passed to the constructor as null.</p>
+ *
+ * @param <T> The type of the entity.
+ */
+public final class EntityRowMapper<T> implements RowMapper<T> {
+
+    private final EntityMetadata<T> metadata;
+    private final MethodHandle constructor;
+
+    /**
+     * Reads a single column value from the current row.
+     */
+    @FunctionalInterface
+    private interface ColumnReader {
+        Object read(ResultSet rs, int index, StatementContext ctx) throws SQLException;
+    }
+
+    /**
+     * Creates a row mapper for the entity described by the metadata.
+     *
+     * @param metadata    The metadata of the entity.
+     * @param constructor The all-args constructor adapted to {@code (Object[])Object}.
+     */
+    EntityRowMapper(EntityMetadata<T> metadata, MethodHandle constructor) {
+        this.metadata = metadata;
+        this.constructor = constructor;
+    }
+
+    /**
+     * Retrieves the cached row mapper of the given entity type.
+     *
+     * @param entityType The entity class.
+     * @param <T>        The type of the entity.
+     * @return The row mapper of the entity type.
+     */
+    public static <T> EntityRowMapper<T> of(Class<T> entityType) {
+        return EntityMetadata.of(entityType).rowMapper();
+    }
+
+    /**
+     * Maps the current row without specialization. Used only when JDBI does not call
+     * {@link #specialize(ResultSet, StatementContext)} first.
+     */
+    @Override
+    public T map(ResultSet rs, StatementContext ctx) throws SQLException {
+        return specialize(rs, ctx).map(rs, ctx);
+    }
+
+    /**
+     * Resolves the column indexes and readers for the given result set.
+     *
+     * @param rs  The result set to be mapped.
+     * @param ctx The statement context.
+     * @return A mapper bound to the column layout of the result set.
+     */
+    @Override
+    public RowMapper<T> specialize(ResultSet rs, StatementContext ctx) throws SQLException {
+        var resultSetMetaData = rs.getMetaData();
+        var indexByLabel = new HashMap<String, Integer>();
+        for (int i = resultSetMetaData.getColumnCount(); i >= 1; i--) {
+            indexByLabel.put(resultSetMetaData.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+        }
+
+        var columns = metadata.columns();
+        var indexes = new int[columns.size()];
+        var readers = new ColumnReader[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            var column = columns.get(i);
+            indexes[i] = indexByLabel.getOrDefault(column.name(), 0);
+            readers[i] = readerFor(column.type(), ctx);
+        }
+
+        return (row, rowCtx) -> {
+            var args = new Object[indexes.length];
+            for (int i = 0; i < indexes.length; i++) {
+                if (indexes[i] > 0) {
+                    args[i] = readers[i].read(row, indexes[i], rowCtx);
+                }
+            }
+            return newInstance(args);
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private T newInstance(Object[] args) {
+        try {
+            return (T) (Object) constructor.invokeExact(args);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Selects the reader for a field type. Common types are read directly from the result set,
+     * other types fall back to the column mappers registered in JDBI.
+     *
+     * @param type The type of the field.
+     * @param ctx  The statement context.
+     * @return The column reader.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ColumnReader readerFor(Class<?> type, StatementContext ctx) {
+        if (type == Integer.class) {
+            return (rs, i, c) -> {
+                var value = rs.getInt(i);
+                return rs.wasNull() ? null : value;
+            };
+        }
+        if (type == Long.class) {
+            return (rs, i, c) -> {
+                var value = rs.getLong(i);
+                return rs.wasNull() ? null : value;
+            };
+        }
+        if (type == Double.class) {
+            return (rs, i, c) -> {
+                var value = rs.getDouble(i);
+                return rs.wasNull() ? null : value;
+            };
+        }
+        if (type == String.class) {
+            return (rs, i, c) -> rs.getString(i);
+        }
+        if (type == LocalDateTime.class || type == LocalDate.class) {
+            return (rs, i, c) -> rs.getObject(i, type);
+        }
+        if (type.isEnum()) {
+            var enumType = (Class<? extends Enum>) type;
+            return (rs, i, c) -> {
+                var name = rs.getString(i);
+                return name == null ? null : Enum.valueOf(enumType, name);
+            };
+        }
+
+        var mapper = ctx
+                .findColumnMapperFor(type)
+                .orElseThrow(() -> new IllegalStateException("No column mapper for " + type));
+        return mapper::map;
+    }
+}
@@ -0,0 +1,13 @@
+package mostowska.aleksandra.repository.generic;
+
+import java.util.List;
+
+/**
+ * A page of entities read with keyset pagination.
+ *
+ * @param <T> The type of the entity.
+ * @param items The entities of the page, ordered by id.
+ * @param nextCursor The id to pass as {@code afterId} to read the next page, or null if this is the last page.
+ */
+public record Page<T>(List<T> items, Long nextCursor) {
+}
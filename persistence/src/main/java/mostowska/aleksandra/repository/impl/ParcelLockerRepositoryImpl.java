@@ -1,16 +1,24 @@
 package mostowska.aleksandra.repository.impl;
 
+import com.google.common.collect.Iterables;
 import mostowska.aleksandra.model.Parcel;
 import mostowska.aleksandra.model.ParcelLocker;
+import mostowska.aleksandra.model.dto.LockerDistanceDto;
+import mostowska.aleksandra.model.utils.BoundingBox;
 import mostowska.aleksandra.model.utils.PackageDimensions;
 import mostowska.aleksandra.model.utils.ParcelStatus;
 import mostowska.aleksandra.repository.ParcelLockerRepository;
+import mostowska.aleksandra.repository.event.EntityChangedEvent.ChangeType;
 import mostowska.aleksandra.repository.generic.AbstractCrudRepository;
+import mostowska.aleksandra.repository.generic.EntityMetadata;
+import mostowska.aleksandra.repository.generic.EntityRowMapper;
 import org.jdbi.v3.core.Jdbi;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 
 /**
@@ -20,6 +28,8 @@ import java.util.Optional;
 @Repository
 public class ParcelLockerRepositoryImpl extends AbstractCrudRepository<ParcelLocker, Long> implements ParcelLockerRepository {
 
+    private static final double EARTH_RADIUS_M = 6371000;
+
     /**
      * Constructs a new ParcelLockerRepositoryImpl with the given Jdbi instance.
      *
@@ -38,34 +48,201 @@ public class ParcelLockerRepositoryImpl extends AbstractCrudRepository<ParcelLoc
     @Override
     public List<ParcelLocker> findAllByLocationName(String locationName) {
         var sql = "select * from parcel_lockers where location_name = :location_name";
-        return jdbi.withHandle(handle -> handle
+        return withHandle(handle -> handle
                 .createQuery(sql)
                 .bind("location_name", locationName)
-                .mapToBean(ParcelLocker.class)
+                .map(EntityRowMapper.of(ParcelLocker.class))
                 .list());
     }
 
     /**
-     * Finds all available parcels in a parcel locker with the specified locker ID.
-     * This method retrieves parcels that are available and associated with a specific parcel locker.
+     * Finds the best fitting available parcel in a parcel locker with the specified locker ID.
+     * The dimension check and the choice of the smallest fitting parcel are done by the database,
+     * so a single row is transferred. The query is answered from the index
+     * {@code (parcel_locker_id, status, width, length, height)} created by
+     * {@link mostowska.aleksandra.db_management.DbManagement#createIndex}.
+     * Reservations no longer call this method: they claim parcels through the in-memory slot allocator
+     * and {@link ParcelRepositoryImpl#claimAvailableParcel}, which orders by volume the same way.
      *
-     * @param id The ID of the parcel locker to find available parcels.
-     * @return A list of Parcel entities that are available in the specified parcel locker.
+     * @param id                The ID of the parcel locker to find an available parcel in.
+     * @param packageDimensions The dimensions of the package the parcel must fit.
+     * @return An Optional containing the available parcel with the smallest volume fitting the package, otherwise empty.
      */
     @Override
     public Optional<Parcel> findAvailableParcelByLockerId(Integer id, PackageDimensions packageDimensions) {
-        var sql = "select parcels.* from parcels " +
-                "join parcel_lockers on parcels.parcel_locker_id = parcel_lockers.id " +
-                "where parcel_lockers.id = :id " +
-                "and parcels.status = :status";
+        var sql = EntityMetadata.of(Parcel.class).selectAllSql() +
+                " where parcel_locker_id = :id and status = :status" +
+                " and width >= :width and length >= :length and height >= :height" +
+                " order by width * length * height, id limit 1";
 
-        return jdbi.withHandle(handle -> handle
+        return withHandle(handle -> handle
                 .createQuery(sql)
                 .bind("id", id)
                 .bind("status", ParcelStatus.AVAILABLE.name())
-                .mapToBean(Parcel.class)
-                .stream()
-                .filter(parcel -> parcel.hasExpectedDimensions(packageDimensions))
+                .bind("width", packageDimensions.packageWidth())
+                .bind("length", packageDimensions.packageLength())
+                .bind("height", packageDimensions.packageHeight())
+                .map(EntityRowMapper.of(Parcel.class))
                 .findFirst());
     }
+
+    /**
+     * Finds the nearest parcel lockers using the spatial index of the {@code location} column.
+     * The rows are prefiltered with the bounding box of the search circle, which the SPATIAL index
+     * answers without a table scan, and ranked by {@code ST_Distance_Sphere} with the Earth radius
+     * used by {@link mostowska.aleksandra.DistanceCalculator}.
+     * A box that spans all longitudes cannot be written as an SRID 4326 polygon, because MySQL rejects
+     * the longitude -180 and the polygon would collapse onto one meridian, so such a search is only
+     * bounded by latitude.
+     */
+    @Override
+    public List<ParcelLocker> findNearest(double latitude, double longitude, int k, double maxRadiusKm) {
+        var boundingBox = BoundingBox.around(latitude, longitude, maxRadiusKm);
+        var boxFilter = boundingBox.spansAllLongitudes()
+                ? "latitude between :min_latitude and :max_latitude"
+                : "mbrcontains(st_geomfromtext(:bounding_box, 4326, 'axis-order=long-lat'), location)";
+        var sql = """
+                select %s, st_distance_sphere(location, st_srid(point(:longitude, :latitude), 4326), :earth_radius) as distance
+                from parcel_lockers
+                where %s
+                and st_distance_sphere(location, st_srid(point(:longitude, :latitude), 4326), :earth_radius) <= :max_radius
+                order by distance
+                limit :k
+                """.formatted(metadata.selectColumns(), boxFilter);
+
+        return withHandle(handle -> {
+            var query = handle
+                    .createQuery(sql)
+                    .bind("latitude", latitude)
+                    .bind("longitude", longitude)
+                    .bind("earth_radius", EARTH_RADIUS_M)
+                    .bind("max_radius", maxRadiusKm * 1000)
+                    .bind("k", k);
+            if (boundingBox.spansAllLongitudes()) {
+                query.bind("min_latitude", boundingBox.minLatitude()).bind("max_latitude", boundingBox.maxLatitude());
+            } else {
+                query.bind("bounding_box", boundingBox.toWkt());
+            }
+            return query.map(EntityRowMapper.of(ParcelLocker.class)).list();
+        });
+    }
+
+    /**
+     * Streams the parcel lockers within the radius, nearest first, straight from the database cursor.
+     * The rows are prefiltered by the bounding box of the circle on the latitude and longitude columns,
+     * then filtered, ordered and limited by the haversine distance computed in SQL with the Earth radius
+     * used by {@link mostowska.aleksandra.DistanceCalculator}. Plain math functions are used instead of
+     * {@code ST_Distance_Sphere}, so the query also runs on databases without spatial functions.
+     *
+     * @param latitude  The latitude of the center in degrees.
+     * @param longitude The longitude of the center in degrees.
+     * @param radiusKm  The radius in kilometers.
+     * @param limit     The maximum number of parcel lockers to be streamed.
+     * @param consumer  The consumer receiving the parcel lockers with their distances, nearest first.
+     */
+    @Override
+    public void streamWithin(double latitude, double longitude, double radiusKm, int limit,
+                             Consumer<? super LockerDistanceDto> consumer) {
+        var distance = """
+                2 * :earth_radius_km * asin(sqrt(
+                    power(sin(radians(latitude - :latitude) / 2), 2)
+                    + cos(radians(:latitude)) * cos(radians(latitude)) * power(sin(radians(longitude - :longitude) / 2), 2)))""";
+        var sql = """
+                select %s, %s as distance
+                from parcel_lockers
+                where latitude between :min_latitude and :max_latitude
+                and longitude between :min_longitude and :max_longitude
+                and %s <= :radius
+                order by distance
+                limit :limit
+                """.formatted(metadata.selectColumns(), distance, distance);
+        var boundingBox = BoundingBox.around(latitude, longitude, radiusKm);
+        var lockerMapper = EntityRowMapper.of(ParcelLocker.class);
+
+        useHandle(handle -> handle
+                .createQuery(sql)
+                .bind("latitude", latitude)
+                .bind("longitude", longitude)
+                .bind("earth_radius_km", EARTH_RADIUS_M / 1000)
+                .bind("min_latitude", boundingBox.minLatitude())
+                .bind("max_latitude", boundingBox.maxLatitude())
+                .bind("min_longitude", boundingBox.minLongitude())
+                .bind("max_longitude", boundingBox.maxLongitude())
+                .bind("radius", radiusKm)
+                .bind("limit", limit)
+                .setFetchSize(streamFetchSize())
+                .map((rs, ctx) -> new LockerDistanceDto(lockerMapper.map(rs, ctx), rs.getDouble("distance")))
+                .forEach(consumer));
+    }
+
+    /**
+     * Decrements {@code available_lockers} in a single conditional update, so concurrent reservations
+     * cannot overwrite each other's counts and the count never drops below zero.
+     *
+     * @param id The ID of the parcel locker.
+     * @return {@code true} if the count was decremented.
+     */
+    @Override
+    public boolean decrementAvailable(int id) {
+        var sql = "update parcel_lockers set available_lockers = available_lockers - 1 where id = :id and available_lockers > 0";
+        return changeAvailable(sql, id);
+    }
+
+    /**
+     * Increments {@code available_lockers} in a single conditional update, never above {@code total_lockers}.
+     *
+     * @param id The ID of the parcel locker.
+     * @return {@code true} if the count was incremented.
+     */
+    @Override
+    public boolean incrementAvailable(int id) {
+        var sql = "update parcel_lockers set available_lockers = available_lockers + 1 where id = :id and available_lockers < total_lockers";
+        return changeAvailable(sql, id);
+    }
+
+    /**
+     * Adds the deltas to {@code available_lockers} relative to the current value, so reservations
+     * written directly in the meantime are kept. The result is bounded by zero and {@code total_lockers},
+     * like the conditional updates, so a stale delta cannot leave the count out of range; the gap it leaves
+     * is found by the reconciliation of the counters.
+     * The updates are sent in JDBC batches of the configured chunk size.
+     *
+     * @param deltas The delta of the available lockers count by parcel locker ID.
+     */
+    @Override
+    public void addAvailable(Map<Integer, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        var sql = """
+                update parcel_lockers
+                set available_lockers = greatest(0, least(available_lockers + :delta, coalesce(total_lockers, available_lockers + :delta)))
+                where id = :id
+                """;
+        useTransaction(handle -> {
+            for (var chunk : Iterables.partition(deltas.entrySet(), batchChunkSize())) {
+                var batch = handle.prepareBatch(sql);
+                chunk.forEach(delta -> batch
+                        .bind("id", delta.getKey())
+                        .bind("delta", delta.getValue())
+                        .add());
+                batch.execute();
+            }
+        });
+    }
+
+    /**
+     * Runs a conditional update of the available lockers count and publishes the change if a row was updated.
+     * The published parcel locker carries only its ID, as the new count is not read back.
+     */
+    private boolean changeAvailable(String sql, int id) {
+        var changed = withHandle(handle -> handle
+                .createUpdate(sql)
+                .bind("id", id)
+                .execute()) == 1;
+        if (changed) {
+            publishChange(ChangeType.UPDATED, id, ParcelLocker.builder().id(id).build());
+        }
+        return changed;
+    }
 }
@@ -1,13 +1,21 @@
 package mostowska.aleksandra.repository.impl;
 
 import mostowska.aleksandra.model.Parcel;
+import mostowska.aleksandra.model.utils.PackageDimensions;
 import mostowska.aleksandra.model.utils.ParcelStatus;
 import mostowska.aleksandra.repository.ParcelRepository;
+import mostowska.aleksandra.repository.event.EntityChangedEvent.ChangeType;
 import mostowska.aleksandra.repository.generic.AbstractCrudRepository;
+import mostowska.aleksandra.repository.generic.EntityRowMapper;
 import org.jdbi.v3.core.Jdbi;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 
 /**
@@ -35,10 +43,10 @@ public class ParcelRepositoryImpl extends AbstractCrudRepository<Parcel, Long> i
     @Override
     public List<Parcel> findByUserId(int userId) {
         var sql = "select * from parcels where user_id = :user_id";
-        return jdbi.withHandle(handle ->
+        return withHandle(handle ->
                 handle.createQuery(sql)
                         .bind("user_id", userId)
-                        .mapToBean(Parcel.class)
+                        .map(EntityRowMapper.of(Parcel.class))
                         .list());
     }
 
@@ -52,11 +60,128 @@ public class ParcelRepositoryImpl extends AbstractCrudRepository<Parcel, Long> i
     @Override
     public List<Parcel> findByParcelLockerIdAndStatus(int parcelLockerId, ParcelStatus status) {
         var sql = "select * from parcels where parcel_locker_id = :parcel_locker_id and status = :status";
-        return jdbi.withHandle(handle ->
+        return withHandle(handle ->
                 handle.createQuery(sql)
                         .bind("parcel_locker_id", parcelLockerId)
                         .bind("status", status.name()) // Binds the status enum value as a string
-                        .mapToBean(Parcel.class)
+                        .map(EntityRowMapper.of(Parcel.class))
                         .list());
     }
+
+    /**
+     * Claims an available parcel in one transaction.
+     * The candidate row is locked with {@code for update skip locked}, so concurrent transactions
+     * skip parcels already being claimed instead of waiting for them or claiming them twice.
+     * The smallest fitting parcel by volume is claimed, as by the {@code SlotAllocator} this query backs up,
+     * so large parcels are kept for large packages.
+     *
+     * @param parcelLockerId The ID of the parcel locker to claim a parcel in.
+     * @param packageDimensions The dimensions of the package the parcel must fit.
+     * @return An Optional containing the reserved Parcel, or empty if no matching parcel is available.
+     */
+    @Override
+    public Optional<Parcel> claimAvailableParcel(int parcelLockerId, PackageDimensions packageDimensions) {
+        var selectSql = metadata.selectAllSql() +
+                " where parcel_locker_id = :parcel_locker_id and status = :status" +
+                " and width >= :width and length >= :length and height >= :height" +
+                " order by width * length * height, id limit 1 for update skip locked";
+        var updateSql = "update parcels set status = :status where id = :id";
+
+        var claimed = inTransaction(handle -> handle
+                .createQuery(selectSql)
+                .bind("parcel_locker_id", parcelLockerId)
+                .bind("status", ParcelStatus.AVAILABLE.name())
+                .bind("width", packageDimensions.packageWidth())
+                .bind("length", packageDimensions.packageLength())
+                .bind("height", packageDimensions.packageHeight())
+                .map(EntityRowMapper.of(Parcel.class))
+                .findFirst()
+                .map(parcel -> {
+                    handle.createUpdate(updateSql)
+                            .bind("status", ParcelStatus.RESERVED.name())
+                            .bind("id", parcel.getId())
+                            .execute();
+                    return parcel.withStatus(ParcelStatus.RESERVED);
+                }));
+        claimed.ifPresent(parcel -> publishChange(ChangeType.UPDATED, parcel.getId(), parcel));
+        return claimed;
+    }
+
+    /**
+     * Claims the given parcel with a single conditional update. The update locks the row, so of two
+     * concurrent claims of the same parcel only the first one changes it.
+     *
+     * @param parcel The parcel to be claimed.
+     * @return {@code true} if the parcel was available and is now reserved, {@code false} if it was not available.
+     */
+    @Override
+    public boolean claimParcel(Parcel parcel) {
+        var sql = "update parcels set status = :reserved where id = :id and status = :available";
+        var claimed = withHandle(handle -> handle
+                .createUpdate(sql)
+                .bind("reserved", ParcelStatus.RESERVED.name())
+                .bind("available", ParcelStatus.AVAILABLE.name())
+                .bind("id", parcel.getId())
+                .execute()) == 1;
+        if (claimed) {
+            publishChange(ChangeType.UPDATED, parcel.getId(), parcel.withStatus(ParcelStatus.RESERVED));
+        }
+        return claimed;
+    }
+
+    /**
+     * Counts the available parcels grouped by parcel locker in a single query.
+     *
+     * @return The number of available parcels by parcel locker ID.
+     */
+    @Override
+    public Map<Integer, Long> countAvailableByParcelLockerId() {
+        var sql = "select parcel_locker_id, count(*) as available from parcels where status = :status group by parcel_locker_id";
+        return withHandle(handle -> handle
+                .createQuery(sql)
+                .bind("status", ParcelStatus.AVAILABLE.name())
+                .reduceRows(new HashMap<Integer, Long>(), (counts, row) -> {
+                    counts.put(row.getColumn("parcel_locker_id", Integer.class), row.getColumn("available", Long.class));
+                    return counts;
+                }));
+    }
+
+    /**
+     * Releases the parcels in one transaction. The parcels still reserved by expired reservations only
+     * are selected and locked with {@code for update}, then marked as available with a single update.
+     *
+     * @param parcelIds The IDs of the parcels to be released.
+     * @param now       The time reservations ending at or before are considered expired.
+     * @return The released parcels, now marked as available.
+     */
+    @Override
+    public List<Parcel> releaseExpiredParcels(Collection<Integer> parcelIds, LocalDateTime now) {
+        if (parcelIds.isEmpty()) {
+            return List.of();
+        }
+        var selectSql = metadata.selectAllSql() +
+                " where id in (<ids>) and status = :reserved" +
+                " and not exists (select 1 from reservations r where r.parcel_id = parcels.id and r.release_time > :now)" +
+                " for update";
+        var updateSql = "update parcels set status = :available where id in (<ids>)";
+
+        var released = inTransaction(handle -> {
+            var parcels = handle
+                    .createQuery(selectSql)
+                    .bindList("ids", List.copyOf(parcelIds))
+                    .bind("reserved", ParcelStatus.RESERVED.name())
+                    .bind("now", now)
+                    .map(EntityRowMapper.of(Parcel.class))
+                    .list();
+            if (!parcels.isEmpty()) {
+                handle.createUpdate(updateSql)
+                        .bindList("ids", parcels.stream().map(Parcel::getId).toList())
+                        .bind("available", ParcelStatus.AVAILABLE.name())
+                        .execute();
+            }
+            return parcels.stream().map(parcel -> parcel.withStatus(ParcelStatus.AVAILABLE)).toList();
+        });
+        released.forEach(parcel -> publishChange(ChangeType.UPDATED, parcel.getId(), parcel));
+        return released;
+    }
 }
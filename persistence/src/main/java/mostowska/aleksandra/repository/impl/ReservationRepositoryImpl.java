@@ -2,14 +2,17 @@ package mostowska.aleksandra.repository.impl;
 
 import mostowska.aleksandra.model.Parcel;
 import mostowska.aleksandra.model.Reservation;
+import mostowska.aleksandra.model.utils.ParcelStatus;
 import mostowska.aleksandra.repository.ReservationRepository;
 import mostowska.aleksandra.repository.generic.AbstractCrudRepository;
+import mostowska.aleksandra.repository.generic.EntityRowMapper;
 import org.jdbi.v3.core.Jdbi;
 import org.springframework.stereotype.Repository;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 
 /**
@@ -37,10 +40,10 @@ public class ReservationRepositoryImpl extends AbstractCrudRepository<Reservatio
     @Override
     public List<Reservation> findByUserId(int userId) {
         var sql = "select * from reservations where user_id = :user_id";
-        return jdbi.withHandle(handle ->
+        return withHandle(handle ->
                 handle.createQuery(sql)
                         .bind("user_id", userId)
-                        .mapToBean(Reservation.class)
+                        .map(EntityRowMapper.of(Reservation.class))
                         .list());
     }
 
@@ -53,10 +56,10 @@ public class ReservationRepositoryImpl extends AbstractCrudRepository<Reservatio
     @Override
     public List<Reservation> findByParcelId(int parcelId) {
         var sql = "select * from reservations where parcel_id = :parcel_id";
-        return jdbi.withHandle(handle ->
+        return withHandle(handle ->
                 handle.createQuery(sql)
                         .bind("parcel_id", parcelId)
-                        .mapToBean(Reservation.class)
+                        .map(EntityRowMapper.of(Reservation.class))
                         .list());
     }
 
@@ -70,11 +73,11 @@ public class ReservationRepositoryImpl extends AbstractCrudRepository<Reservatio
     @Override
     public List<Reservation> findByUserIdAndParcelId(int userId, int parcelId) {
         var sql = "select * from reservations where user_id = :user_id and parcel_id = :parcel_id";
-        return jdbi.withHandle(handle ->
+        return withHandle(handle ->
                 handle.createQuery(sql)
                         .bind("user_id", userId)
                         .bind("parcel_id", parcelId)
-                        .mapToBean(Reservation.class)
+                        .map(EntityRowMapper.of(Reservation.class))
                         .list());
     }
 
@@ -88,10 +91,10 @@ public class ReservationRepositoryImpl extends AbstractCrudRepository<Reservatio
     @Override
     public Duration getRemainingTimeByReservationId(int id) {
         var sql = "select * from reservations where id = :id";
-        var reservation = jdbi.withHandle(handle ->
+        var reservation = withHandle(handle ->
                 handle.createQuery(sql)
                         .bind("id", id)
-                        .mapToBean(Reservation.class)
+                        .map(EntityRowMapper.of(Reservation.class))
                         .findFirst());
 
         if (reservation.isEmpty()) {
@@ -103,13 +106,30 @@ public class ReservationRepositoryImpl extends AbstractCrudRepository<Reservatio
     }
 
     /**
-     * Retrieves the ID of the last reservation in the repository.
+     * Streams the reservations holding a reserved parcel and ending at or before the given time,
+     * ordered by release time. The release time is compared directly, so the query can use the index
+     * created by {@link mostowska.aleksandra.db_management.DbManagement#createIndex}.
      *
-     * @return The ID of the last reservation, or 1 if no reservations exist.
+     * @param until    The latest release time.
+     * @param consumer The consumer receiving every matching reservation.
      */
     @Override
-    public Integer getLastReservationsId() {
-        var lastReservation = findLast(1);
-        return lastReservation.isEmpty() ? 1 : lastReservation.getFirst().getId() + 1;
+    public void streamReleasingUntil(LocalDateTime until, Consumer<? super Reservation> consumer) {
+        var sql = """
+                select r.id, r.user_id, r.parcel_id, r.reservation_time, r.release_time
+                from reservations r
+                join parcels p on p.id = r.parcel_id
+                where r.release_time <= :until and p.status = :reserved
+                and not exists (select 1 from reservations n where n.parcel_id = r.parcel_id and n.release_time > r.release_time)
+                order by r.release_time
+                """;
+
+        useHandle(handle -> handle
+                .createQuery(sql)
+                .bind("until", until)
+                .bind("reserved", ParcelStatus.RESERVED.name())
+                .setFetchSize(streamFetchSize())
+                .map(EntityRowMapper.of(Reservation.class))
+                .forEach(consumer));
     }
 }
@@ -5,6 +5,7 @@ import mostowska.aleksandra.model.Reservation;
 import mostowska.aleksandra.model.User;
 import mostowska.aleksandra.repository.UserRepository;
 import mostowska.aleksandra.repository.generic.AbstractCrudRepository;
+import mostowska.aleksandra.repository.generic.EntityRowMapper;
 import org.jdbi.v3.core.Jdbi;
 import org.springframework.stereotype.Repository;
 
@@ -37,10 +38,10 @@ public class UserRepositoryImpl extends AbstractCrudRepository<User, Long> imple
     @Override
     public Optional<User> findByUsername(String username) {
         var sql = "select * from users where username = :username";
-        return jdbi.withHandle(handle -> handle
+        return withHandle(handle -> handle
                 .createQuery(sql)
                 .bind("username", username)
-                .mapToBean(User.class)
+                .map(EntityRowMapper.of(User.class))
                 .findFirst());
     }
 
@@ -53,10 +54,10 @@ public class UserRepositoryImpl extends AbstractCrudRepository<User, Long> imple
     @Override
     public Optional<User> findByPhoneNumber(Long phoneNumber) {
         var sql = "select * from users where phone_number = :phone_number";
-        return jdbi.withHandle(handle -> handle
+        return withHandle(handle -> handle
                 .createQuery(sql)
                 .bind("phone_number", phoneNumber)
-                .mapToBean(User.class)
+                .map(EntityRowMapper.of(User.class))
                 .findFirst());
     }
 
@@ -69,10 +70,10 @@ public class UserRepositoryImpl extends AbstractCrudRepository<User, Long> imple
     @Override
     public Optional<User> findByEmail(String email) {
         var sql = "select * from users where email = :email";
-        return jdbi.withHandle(handle -> handle
+        return withHandle(handle -> handle
                 .createQuery(sql)
                 .bind("email", email) // Fixed binding to use parameter name
-                .mapToBean(User.class)
+                .map(EntityRowMapper.of(User.class))
                 .findFirst());
     }
 
@@ -87,10 +88,10 @@ public class UserRepositoryImpl extends AbstractCrudRepository<User, Long> imple
         var sql = "select reservations.* from reservations " +
                 "join users on reservations.user_id = users.id " +
                 "where users.id = :id";
-        return jdbi.withHandle(handle -> handle
+        return withHandle(handle -> handle
                 .createQuery(sql)
                 .bind("id", id)
-                .mapToBean(Reservation.class)
+                .map(EntityRowMapper.of(Reservation.class))
                 .list());
     }
 }
@@ -0,0 +1,138 @@
+package mostowska.aleksandra.repository.transaction;
+
+import lombok.RequiredArgsConstructor;
+import org.jdbi.v3.core.Handle;
+import org.jdbi.v3.core.Jdbi;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Runs a unit of work on a single JDBI handle in one transaction.
+ *
+ * <p>While the work runs, its handle is bound to the current thread. Repositories extending
+ * {@link mostowska.aleksandra.repository.generic.AbstractCrudRepository} join this ambient transaction
+ * instead of checking out their own connection, so a whole service flow uses one connection and one commit.
+ * Nested units of work join the outermost one. Actions registered with {@link #afterCommit(Runnable)}
+ * run once the outermost transaction has committed, actions registered with {@link #afterRollback(Runnable)}
+ * once it has rolled back. A failing action is logged and does not stop the others; it never fails
+ * the unit of work, whose outcome is already final.</p>
+ */
+@Component
+@RequiredArgsConstructor
+public class UnitOfWork {
+
+    private static final Logger logger = LoggerFactory.getLogger(UnitOfWork.class);
+
+    private static final ThreadLocal<Handle> CURRENT_HANDLE = new ThreadLocal<>();
+    private static final ThreadLocal<List<Runnable>> AFTER_COMMIT = new ThreadLocal<>();
+    private static final ThreadLocal<List<Runnable>> AFTER_ROLLBACK = new ThreadLocal<>();
+
+    private final Jdbi jdbi;
+
+    /**
+     * Runs the work in a transaction and returns its result.
+     * The transaction is committed when the work completes and rolled back when it throws.
+     *
+     * @param work The work to be run.
+     * @param <R>  The type of the result.
+     * @return The result of the work.
+     */
+    public <R> R inTransaction(Supplier<R> work) {
+        if (CURRENT_HANDLE.get() != null) {
+            return work.get();
+        }
+        var afterCommit = new ArrayList<Runnable>();
+        var afterRollback = new ArrayList<Runnable>();
+        R result;
+        try {
+            result = jdbi.inTransaction(handle -> {
+                CURRENT_HANDLE.set(handle);
+                AFTER_COMMIT.set(afterCommit);
+                AFTER_ROLLBACK.set(afterRollback);
+                try {
+                    return work.get();
+                } finally {
+                    CURRENT_HANDLE.remove();
+                    AFTER_COMMIT.remove();
+                    AFTER_ROLLBACK.remove();
+                }
+            });
+        } catch (RuntimeException | Error e) {
+            runAll(afterRollback, "rollback");
+            throw e;
+        }
+        runAll(afterCommit, "commit");
+        return result;
+    }
+
+    /**
+     * Runs the work in a transaction.
+     *
+     * @param work The work to be run.
+     */
+    public void useTransaction(Runnable work) {
+        inTransaction(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Registers an action to be run after the unit of work on the current thread commits.
+     * The action is dropped if the unit of work rolls back. Without a unit of work the action runs immediately.
+     *
+     * @param action The action to be run.
+     */
+    public static void afterCommit(Runnable action) {
+        var actions = AFTER_COMMIT.get();
+        if (actions == null) {
+            action.run();
+        } else {
+            actions.add(action);
+        }
+    }
+
+    /**
+     * Registers an action to be run after the unit of work on the current thread rolls back,
+     * e.g. to restore in-memory state changed together with the rolled back rows.
+     * Without a unit of work there is nothing to roll back and the action is dropped.
+     *
+     * @param action The action to be run.
+     */
+    public static void afterRollback(Runnable action) {
+        var actions = AFTER_ROLLBACK.get();
+        if (actions != null) {
+            actions.add(action);
+        }
+    }
+
+    /**
+     * Runs every action in turn, logging the failures instead of propagating them.
+     *
+     * @param actions The actions to be run.
+     * @param phase   The phase of the unit of work the actions follow, for the log.
+     */
+    private static void runAll(List<Runnable> actions, String phase) {
+        for (var action : actions) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                logger.error("Action after {} of a unit of work failed", phase, e);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the handle of the unit of work running on the current thread.
+     *
+     * @return The ambient handle, or null if no unit of work is running.
+     */
+    public static Handle currentHandle() {
+        return CURRENT_HANDLE.get();
+    }
+}
@@ -0,0 +1,69 @@
+package mostowska.aleksandra.abstractCrudRepository;
+
+import mostowska.aleksandra.model.User;
+import mostowska.aleksandra.repository.generic.CrudRepository;
+import mostowska.aleksandra.repository.impl.UserRepositoryImpl;
+import mostowska.aleksandra.testDatabase.TestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FindPageTest {
+
+    private UserRepositoryImpl userRepository;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = new UserRepositoryImpl(TestDatabase.create());
+        userRepository.saveAll(IntStream
+                .range(0, 25)
+                .mapToObj(i -> new User(null, "user_" + i, "user_%d@example.com".formatted(i), 100_000_000L + i))
+                .toList());
+    }
+
+    @Test
+    @DisplayName("When all pages are read with the next cursor")
+    void testReadAllPages() {
+        var users = new ArrayList<User>();
+        Long cursor = null;
+        var pages = 0;
+        do {
+            var page = userRepository.findPage(cursor, 10);
+            users.addAll(page.items());
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(userRepository.findAll(), users);
+    }
+
+    @Test
+    @DisplayName("When page ends exactly at the last row")
+    void testLastFullPage() {
+        var page = userRepository.findPage(20L, 5);
+
+        assertEquals(5, page.items().size());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    @DisplayName("When limit exceeds the maximum page size")
+    void testLimitIsCapped() {
+        userRepository.saveAll(IntStream
+                .range(25, CrudRepository.MAX_PAGE_SIZE + 10)
+                .mapToObj(i -> new User(null, "user_" + i, "user_%d@example.com".formatted(i), 100_000_000L + i))
+                .toList());
+
+        var page = userRepository.findPage(null, CrudRepository.MAX_PAGE_SIZE + 1);
+
+        assertEquals(CrudRepository.MAX_PAGE_SIZE, page.items().size());
+        assertNotNull(page.nextCursor());
+        assertThrows(IllegalArgumentException.class, () -> userRepository.findPage(null, 0));
+    }
+}
@@ -0,0 +1,59 @@
+package mostowska.aleksandra.abstractCrudRepository;
+
+import mostowska.aleksandra.model.Parcel;
+import mostowska.aleksandra.model.utils.ParcelStatus;
+import mostowska.aleksandra.repository.impl.ParcelRepositoryImpl;
+import mostowska.aleksandra.testDatabase.TestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SaveAllTest {
+
+    private ParcelRepositoryImpl parcelRepository;
+
+    @BeforeEach
+    void setUp() {
+        parcelRepository = new ParcelRepositoryImpl(TestDatabase.create());
+    }
+
+    private static List<Parcel> parcels(int count) {
+        return IntStream
+                .range(0, count)
+                .mapToObj(i -> new Parcel(null, 1, (long) i, ParcelStatus.AVAILABLE, 10.0 + i, 20.0, 30.0))
+                .toList();
+    }
+
+    @Test
+    @DisplayName("When rows are saved in several chunks")
+    void testSaveAllInChunks() {
+        var items = parcels(25);
+
+        var saved = parcelRepository.saveAll(items, 10);
+
+        assertEquals(25, saved.size());
+        for (int i = 0; i < saved.size(); i++) {
+            assertEquals((long) i, saved.get(i).getLockerNumber());
+            assertNotNull(saved.get(i).getId());
+            assertEquals(saved.get(i), parcelRepository.findById((long) saved.get(i).getId()).orElseThrow());
+        }
+        assertEquals(25, parcelRepository.findAll().size());
+    }
+
+    @Test
+    @DisplayName("When empty list is saved")
+    void testSaveAllEmpty() {
+        assertEquals(List.of(), parcelRepository.saveAll(List.of()));
+    }
+
+    @Test
+    @DisplayName("When invalid chunk size is passed")
+    void testSaveAllInvalidChunkSize() {
+        assertThrows(IllegalArgumentException.class, () -> parcelRepository.saveAll(parcels(1), 0));
+    }
+}
@@ -0,0 +1,64 @@
+package mostowska.aleksandra.abstractCrudRepository;
+
+import mostowska.aleksandra.model.Parcel;
+import mostowska.aleksandra.model.utils.ParcelStatus;
+import mostowska.aleksandra.repository.impl.ParcelRepositoryImpl;
+import mostowska.aleksandra.testDatabase.TestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SaveAndUpdateTest {
+
+    private ParcelRepositoryImpl parcelRepository;
+
+    @BeforeEach
+    void setUp() {
+        parcelRepository = new ParcelRepositoryImpl(TestDatabase.create());
+    }
+
+    @Test
+    @DisplayName("When entity is saved it gets its generated id")
+    void testSave() {
+        parcelRepository.saveNoReturn(new Parcel(null, 1, 1L, ParcelStatus.AVAILABLE, 10.0, 10.0, 10.0));
+
+        var saved = parcelRepository.save(new Parcel(null, 1, 2L, ParcelStatus.AVAILABLE, 20.0, 20.0, 20.0));
+
+        assertEquals(2, saved.getId());
+        assertEquals(saved, parcelRepository.findById(2L).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("When all fields are updated")
+    void testFullUpdate() {
+        var saved = parcelRepository.save(new Parcel(null, 1, 1L, ParcelStatus.AVAILABLE, 10.0, 10.0, 10.0));
+
+        var updated = parcelRepository.update(
+                (long) saved.getId(), new Parcel(null, 1, 1L, ParcelStatus.RESERVED, 10.0, 10.0, 10.0));
+
+        assertEquals(saved.getId(), updated.getId());
+        assertEquals(ParcelStatus.RESERVED, updated.getStatus());
+        assertEquals(updated, parcelRepository.findById((long) saved.getId()).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("When only some fields are updated the others keep their values")
+    void testPartialUpdate() {
+        var saved = parcelRepository.save(new Parcel(null, 1, 1L, ParcelStatus.AVAILABLE, 10.0, 10.0, 10.0));
+
+        var partial = new Parcel();
+        partial.setStatus(ParcelStatus.OCCUPIED);
+        var updated = parcelRepository.update((long) saved.getId(), partial);
+
+        assertEquals(new Parcel(saved.getId(), 1, 1L, ParcelStatus.OCCUPIED, 10.0, 10.0, 10.0), updated);
+    }
+
+    @Test
+    @DisplayName("When updated row does not exist")
+    void testUpdateMissingRow() {
+        assertThrows(IllegalStateException.class, () -> parcelRepository.updateNoReturn(
+                1L, new Parcel(null, 1, 1L, ParcelStatus.RESERVED, 10.0, 10.0, 10.0)));
+    }
+}
@@ -0,0 +1,49 @@
+package mostowska.aleksandra.abstractCrudRepository;
+
+import mostowska.aleksandra.model.Parcel;
+import mostowska.aleksandra.model.utils.ParcelStatus;
+import mostowska.aleksandra.repository.impl.ParcelRepositoryImpl;
+import mostowska.aleksandra.testDatabase.TestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StreamAllTest {
+
+    private ParcelRepositoryImpl parcelRepository;
+
+    @BeforeEach
+    void setUp() {
+        parcelRepository = new ParcelRepositoryImpl(TestDatabase.create());
+        parcelRepository.setStreamFetchSize(7);
+        parcelRepository.saveAll(IntStream
+                .range(0, 50)
+                .mapToObj(i -> new Parcel(null, 1, (long) i, ParcelStatus.AVAILABLE, 10.0, 20.0, 30.0))
+                .toList());
+    }
+
+    @Test
+    @DisplayName("When entities are passed to a consumer")
+    void testStreamAllToConsumer() {
+        var parcels = new ArrayList<Parcel>();
+
+        parcelRepository.streamAll(parcels::add);
+
+        assertEquals(parcelRepository.findAll(), parcels);
+    }
+
+    @Test
+    @DisplayName("When entities are read from a stream")
+    void testStreamAll() {
+        try (var parcels = parcelRepository.streamAll()) {
+            assertEquals(
+                    IntStream.rangeClosed(1, 50).boxed().toList(),
+                    parcels.map(Parcel::getId).toList());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package mostowska.aleksandra.benchmark;
+
+import mostowska.aleksandra.distance.CoordinateColumns;
+import mostowska.aleksandra.distance.DistanceKernel;
+import mostowska.aleksandra.model.ParcelLocker;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Compares {@link mostowska.aleksandra.DistanceCalculator#getDistance} called per {@link ParcelLocker}
+ * with the scalar and vectorized {@link DistanceKernel}s over {@link CoordinateColumns}.
+ * Every operation computes the distances from one point to all lockers.
+ *
+ * <p>Run from the persistence module with:
+ * {@code mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java
+ * "-Dexec.args=--add-modules jdk.incubator.vector -cp %classpath mostowska.aleksandra.benchmark.DistanceKernelBenchmark"}</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class DistanceKernelBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int lockers;
+
+    private List<ParcelLocker> parcelLockers;
+    private CoordinateColumns columns;
+    private double[] distances;
+    private DistanceKernel scalarKernel;
+    private DistanceKernel vectorKernel;
+
+    @Setup
+    public void setUp() {
+        var random = new Random(42);
+        parcelLockers = IntStream
+                .range(0, lockers)
+                .mapToObj(i -> new ParcelLocker(i + 1, "Locker " + i,
+                        random.nextDouble(49.0, 55.0), random.nextDouble(14.0, 24.0), 20L, 10L))
+                .toList();
+        columns = CoordinateColumns.of(parcelLockers);
+        distances = new double[lockers];
+        scalarKernel = DistanceKernel.scalar();
+        vectorKernel = DistanceKernel.best();
+    }
+
+    @Benchmark
+    public double[] getDistance() {
+        for (int i = 0; i < lockers; i++) {
+            distances[i] = parcelLockers.get(i).getLockersDistance(52.2296756, 21.0122287);
+        }
+        return distances;
+    }
+
+    @Benchmark
+    public double[] scalarKernel() {
+        scalarKernel.distances(columns, 52.2296756, 21.0122287, distances);
+        return distances;
+    }
+
+    @Benchmark
+    public double[] vectorKernel() {
+        vectorKernel.distances(columns, 52.2296756, 21.0122287, distances);
+        return distances;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(DistanceKernelBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,86 @@
+package mostowska.aleksandra.benchmark;
+
+import mostowska.aleksandra.DistanceCalculator;
+import mostowska.aleksandra.distance.CoordinateColumns;
+import mostowska.aleksandra.distance.DistanceKernel;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares finding the nearest locations by exact haversine distances with
+ * {@link DistanceCalculator#rankNearest}, which ranks by chord length and refines the top candidates.
+ *
+ * <p>Run from the persistence module with:
+ * {@code mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java
+ * "-Dexec.args=--add-modules jdk.incubator.vector -cp %classpath mostowska.aleksandra.benchmark.RankNearestBenchmark"}</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class RankNearestBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int lockers;
+
+    private double[] latitudes;
+    private double[] longitudes;
+    private CoordinateColumns columns;
+    private double[] distances;
+
+    @Setup
+    public void setUp() {
+        var random = new Random(42);
+        latitudes = random.doubles(lockers, 49.0, 55.0).toArray();
+        longitudes = random.doubles(lockers, 14.0, 24.0).toArray();
+        columns = CoordinateColumns.of(new int[lockers], latitudes, longitudes);
+        distances = new double[lockers];
+    }
+
+    @Benchmark
+    public int exactGetDistance() {
+        var nearest = -1;
+        var nearestDistance = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < lockers; i++) {
+            var distance = DistanceCalculator.getDistance(latitudes[i], longitudes[i], 52.2296756, 21.0122287);
+            if (distance < nearestDistance) {
+                nearest = i;
+                nearestDistance = distance;
+            }
+        }
+        return nearest;
+    }
+
+    @Benchmark
+    public int exactVectorKernel() {
+        DistanceKernel.best().distances(columns, 52.2296756, 21.0122287, distances);
+        var nearest = 0;
+        for (int i = 1; i < lockers; i++) {
+            if (distances[i] < distances[nearest]) {
+                nearest = i;
+            }
+        }
+        return nearest;
+    }
+
+    @Benchmark
+    public int[] rankNearest() {
+        return DistanceCalculator.rankNearest(columns, 52.2296756, 21.0122287, 1);
+    }
+
+    @Benchmark
+    public int[] rankNearestTop10() {
+        return DistanceCalculator.rankNearest(columns, 52.2296756, 21.0122287, 10);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RankNearestBenchmark.class.getSimpleName()).build()).run();
+    }
+}
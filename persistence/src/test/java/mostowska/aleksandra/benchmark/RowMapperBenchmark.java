@@ -0,0 +1,70 @@
+package mostowska.aleksandra.benchmark;
+
+import mostowska.aleksandra.model.Parcel;
+import mostowska.aleksandra.model.utils.ParcelStatus;
+import mostowska.aleksandra.repository.generic.EntityMetadata;
+import mostowska.aleksandra.repository.generic.EntityRowMapper;
+import mostowska.aleksandra.repository.impl.ParcelRepositoryImpl;
+import mostowska.aleksandra.testDatabase.TestDatabase;
+import org.jdbi.v3.core.Handle;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Compares {@code mapToBean} with the generated {@link EntityRowMapper} on a {@code findAll()}
+ * over the parcels table of an in-memory database.
+ *
+ * <p>Run from the persistence module with:
+ * {@code mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java
+ * "-Dexec.args=-cp %classpath mostowska.aleksandra.benchmark.RowMapperBenchmark"}</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowMapperBenchmark {
+
+    @Param({"10000"})
+    private int rows;
+
+    private Handle handle;
+    private String sql;
+
+    @Setup
+    public void setUp() {
+        var jdbi = TestDatabase.create();
+        new ParcelRepositoryImpl(jdbi).saveAll(IntStream
+                .range(0, rows)
+                .mapToObj(i -> new Parcel(null, i % 100, (long) i, ParcelStatus.AVAILABLE, 10.0, 20.0, 30.0))
+                .toList());
+        handle = jdbi.open();
+        sql = EntityMetadata.of(Parcel.class).selectAllSql();
+    }
+
+    @TearDown
+    public void tearDown() {
+        handle.close();
+    }
+
+    @Benchmark
+    public List<Parcel> mapToBean() {
+        return handle.createQuery(sql).mapToBean(Parcel.class).list();
+    }
+
+    @Benchmark
+    public List<Parcel> entityRowMapper() {
+        return handle.createQuery(sql).map(EntityRowMapper.of(Parcel.class)).list();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RowMapperBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,65 @@
+package mostowska.aleksandra.boundingBox;
+
+import mostowska.aleksandra.DistanceCalculator;
+import mostowska.aleksandra.model.utils.BoundingBox;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoundingBoxTest {
+
+    @TestFactory
+    public Stream<DynamicTest> testBoundingBox() {
+        return Stream.of(
+                DynamicTest.dynamicTest("testBoxContainsAllPointsWithinRadius",
+                        () -> {
+                            var random = new Random(42);
+                            var box = BoundingBox.around(52.2296756, 21.0122287, 50);
+                            for (int i = 0; i < 100_000; i++) {
+                                var latitude = random.nextDouble(51.5, 53.0);
+                                var longitude = random.nextDouble(19.5, 22.5);
+                                if (DistanceCalculator.getDistance(52.2296756, 21.0122287, latitude, longitude) <= 50) {
+                                    assertTrue(box.contains(latitude, longitude));
+                                }
+                            }
+                        }),
+
+                DynamicTest.dynamicTest("testBoxIsTight",
+                        () -> {
+                            var box = BoundingBox.around(0.0, 0.0, 111.19);
+                            assertEquals(-1.0, box.minLatitude(), 0.001);
+                            assertEquals(1.0, box.maxLongitude(), 0.001);
+                        }),
+
+                DynamicTest.dynamicTest("testBoxAroundPoleSpansAllLongitudes",
+                        () -> {
+                            var box = BoundingBox.around(89.0, 10.0, 200);
+                            assertEquals(new BoundingBox(box.minLatitude(), -180, 90, 180), box);
+                            assertEquals(89.0 - 200 / 111.195, box.minLatitude(), 0.001);
+                        }),
+
+                DynamicTest.dynamicTest("testBoxAcrossAntiMeridianSpansAllLongitudes",
+                        () -> {
+                            var box = BoundingBox.around(0.0, 179.5, 100);
+                            assertEquals(-180, box.minLongitude());
+                            assertEquals(180, box.maxLongitude());
+                            assertTrue(box.contains(0.0, -179.9));
+                        }),
+
+                DynamicTest.dynamicTest("testSpansAllLongitudes",
+                        () -> {
+                            assertTrue(BoundingBox.around(89.0, 10.0, 200).spansAllLongitudes());
+                            assertTrue(BoundingBox.around(0.0, 179.5, 100).spansAllLongitudes());
+                            assertFalse(BoundingBox.around(52.0, 21.0, 100).spansAllLongitudes());
+                        }),
+
+                DynamicTest.dynamicTest("testWktUsesLongitudeLatitudeOrder",
+                        () -> assertEquals("POLYGON((20.0 50.0, 22.0 50.0, 22.0 53.0, 20.0 53.0, 20.0 50.0))",
+                                new BoundingBox(50.0, 20.0, 53.0, 22.0).toWkt()))
+        );
+    }
+}
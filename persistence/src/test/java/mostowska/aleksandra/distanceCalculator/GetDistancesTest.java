@@ -0,0 +1,69 @@
+package mostowska.aleksandra.distanceCalculator;
+
+import mostowska.aleksandra.DistanceCalculator;
+import mostowska.aleksandra.distance.CoordinateColumns;
+import mostowska.aleksandra.distance.DistanceKernel;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GetDistancesTest {
+
+    private static final double TOLERANCE_KM = 1e-6;
+
+    private static void assertMatchesGetDistance(DistanceKernel kernel, double[] latitudes, double[] longitudes,
+                                                 double latitude, double longitude) {
+        var columns = CoordinateColumns.of(new int[latitudes.length], latitudes, longitudes);
+        var distances = new double[latitudes.length];
+        kernel.distances(columns, latitude, longitude, distances);
+        for (int i = 0; i < latitudes.length; i++) {
+            assertEquals(DistanceCalculator.getDistance(latitudes[i], longitudes[i], latitude, longitude),
+                    distances[i], TOLERANCE_KM, "location " + i);
+        }
+    }
+
+    private static Stream<DynamicTest> testKernel(String name, DistanceKernel kernel) {
+        var random = new Random(42);
+        var latitudes = random.doubles(10_003, -90, 90).toArray();
+        var longitudes = random.doubles(10_003, -180, 180).toArray();
+
+        return Stream.of(
+                DynamicTest.dynamicTest(name + "MatchesGetDistanceOnRandomPoints",
+                        () -> assertMatchesGetDistance(kernel, latitudes, longitudes, 52.2296756, 21.0122287)),
+
+                DynamicTest.dynamicTest(name + "MatchesGetDistanceNearQueryPoint",
+                        () -> assertMatchesGetDistance(kernel,
+                                new double[]{52.2296756, 52.2296757, 52.23, 52.3, 52.2296756},
+                                new double[]{21.0122287, 21.0122288, 21.01, 21.1, 21.0122287},
+                                52.2296756, 21.0122287)),
+
+                DynamicTest.dynamicTest(name + "MatchesGetDistanceAcrossAntiMeridianAndPoles",
+                        () -> assertMatchesGetDistance(kernel,
+                                new double[]{0.0, 90.0, -90.0, 89.9, 0.0},
+                                new double[]{-179.0, 0.0, 0.0, 180.0, 0.0},
+                                0.0, 179.0)),
+
+                DynamicTest.dynamicTest(name + "MatchesGetDistanceForAntipodes",
+                        () -> assertMatchesGetDistance(kernel,
+                                new double[]{-52.2296756}, new double[]{-158.9877713}, 52.2296756, 21.0122287)),
+
+                DynamicTest.dynamicTest(name + "RejectsShortDistancesArray",
+                        () -> assertThrows(IllegalArgumentException.class, () -> kernel.distances(
+                                CoordinateColumns.of(new int[2], new double[2], new double[2]), 0, 0, new double[1])))
+        );
+    }
+
+    @TestFactory
+    public Stream<DynamicTest> testGetDistances() {
+        return Stream.of(
+                testKernel("testScalarKernel", DistanceKernel.scalar()),
+                testKernel("testBestKernel", DistanceKernel.best()),
+                Stream.of(DynamicTest.dynamicTest("testBestKernelIsVectorizedWhenModuleIsLoaded",
+                        () -> assertNotSame(DistanceKernel.scalar(), DistanceKernel.best())))
+        ).flatMap(tests -> tests);
+    }
+}
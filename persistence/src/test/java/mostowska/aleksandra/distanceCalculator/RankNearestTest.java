@@ -0,0 +1,93 @@
+package mostowska.aleksandra.distanceCalculator;
+
+import mostowska.aleksandra.DistanceCalculator;
+import mostowska.aleksandra.distance.CoordinateColumns;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RankNearestTest {
+
+    private static int[] exactNearest(double[] distances, int k) {
+        return IntStream
+                .range(0, distances.length)
+                .boxed()
+                .sorted(Comparator.comparingDouble(i -> distances[i]))
+                .limit(k)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private static void assertSameRanking(double[] latitudes, double[] longitudes, double latitude, double longitude, int k) {
+        var columns = CoordinateColumns.of(new int[latitudes.length], latitudes, longitudes);
+        var distances = IntStream
+                .range(0, latitudes.length)
+                .mapToDouble(i -> DistanceCalculator.getDistance(latitudes[i], longitudes[i], latitude, longitude))
+                .toArray();
+        var expected = exactNearest(distances, k);
+        var ranked = DistanceCalculator.rankNearest(columns, latitude, longitude, k);
+
+        assertEquals(expected.length, ranked.length);
+        for (int i = 0; i < expected.length; i++) {
+            // positions may differ only between locations at exactly the same distance
+            assertEquals(distances[expected[i]], distances[ranked[i]], 0.0);
+        }
+    }
+
+    @TestFactory
+    public Stream<DynamicTest> testRankNearest() {
+        var random = new Random(42);
+        var latitudes = random.doubles(2_000, -90, 90).toArray();
+        var longitudes = random.doubles(2_000, -180, 180).toArray();
+
+        return Stream.of(
+                DynamicTest.dynamicTest("testNearestIsIdenticalToExactMethod",
+                        () -> {
+                            for (int query = 0; query < 300; query++) {
+                                assertSameRanking(latitudes, longitudes,
+                                        random.nextDouble(-90, 90), random.nextDouble(-180, 180), 1);
+                            }
+                        }),
+
+                DynamicTest.dynamicTest("testTopTenIsIdenticalToExactMethod",
+                        () -> {
+                            for (int query = 0; query < 100; query++) {
+                                assertSameRanking(latitudes, longitudes,
+                                        random.nextDouble(-90, 90), random.nextDouble(-180, 180), 10);
+                            }
+                        }),
+
+                DynamicTest.dynamicTest("testNearlyTiedLocationsAreRankedExactly",
+                        () -> {
+                            // locations a few millimeters apart around the query point
+                            var clusterLatitudes = IntStream.range(0, 1000)
+                                    .mapToDouble(i -> 52.2296756 + random.nextGaussian() * 1e-7).toArray();
+                            var clusterLongitudes = IntStream.range(0, 1000)
+                                    .mapToDouble(i -> 21.0122287 + random.nextGaussian() * 1e-7).toArray();
+                            for (int query = 0; query < 100; query++) {
+                                assertSameRanking(clusterLatitudes, clusterLongitudes,
+                                        52.2296756 + random.nextGaussian() * 1e-7, 21.0122287 + random.nextGaussian() * 1e-7, 1);
+                            }
+                        }),
+
+                DynamicTest.dynamicTest("testAcrossAntiMeridian",
+                        () -> assertArrayEquals(new int[]{1, 0}, DistanceCalculator.rankNearest(
+                                CoordinateColumns.of(new int[2], new double[]{0.0, 0.0}, new double[]{178.0, -179.9}),
+                                0.0, 179.9, 2))),
+
+                DynamicTest.dynamicTest("testFewerLocationsThanRequested",
+                        () -> assertSameRanking(new double[]{1.0, 2.0}, new double[]{1.0, 2.0}, 0.0, 0.0, 5)),
+
+                DynamicTest.dynamicTest("testNoLocationsRequested",
+                        () -> assertEquals(0, DistanceCalculator.rankNearest(
+                                CoordinateColumns.of(new int[1],
+                                        new double[]{1.0}, new double[]{1.0}), 0.0, 0.0, 0).length))
+        );
+    }
+}
@@ -0,0 +1,54 @@
+package mostowska.aleksandra.entityMetadata;
+
+import mostowska.aleksandra.model.Parcel;
+import mostowska.aleksandra.model.utils.ParcelStatus;
+import mostowska.aleksandra.repository.generic.EntityMetadata;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EntityMetadataTest {
+
+    @TestFactory
+    public Stream<DynamicTest> testEntityMetadata() {
+        var metadata = EntityMetadata.of(Parcel.class);
+
+        return Stream.of(
+                DynamicTest.dynamicTest("testMetadataIsCachedPerType",
+                        () -> assertSame(metadata, EntityMetadata.of(Parcel.class))),
+
+                DynamicTest.dynamicTest("testTableName",
+                        () -> assertEquals("parcels", metadata.tableName())),
+
+                DynamicTest.dynamicTest("testInsertTemplate",
+                        () -> assertEquals(
+                                "insert into parcels (parcel_locker_id, locker_number, status, width, length, height) " +
+                                        "values (:parcel_locker_id, :locker_number, :status, :width, :length, :height)",
+                                metadata.insertSql())),
+
+                DynamicTest.dynamicTest("testUpdateTemplateKeepsNullColumns",
+                        () -> assertTrue(metadata.updateSql().startsWith(
+                                "update parcels set parcel_locker_id = coalesce(:parcel_locker_id, parcel_locker_id)"))),
+
+                DynamicTest.dynamicTest("testSelectByIdTemplate",
+                        () -> assertEquals(
+                                "select id, parcel_locker_id, locker_number, status, width, length, height " +
+                                        "from parcels where id = :id",
+                                metadata.selectByIdSql())),
+
+                DynamicTest.dynamicTest("testColumnAccessors",
+                        () -> {
+                            var parcel = new Parcel(1, 2, 3L, ParcelStatus.AVAILABLE, 10.0, 20.0, 30.0);
+                            var status = metadata.writableColumns().get(2);
+                            assertEquals(ParcelStatus.AVAILABLE, status.get(parcel));
+                            status.set(parcel, ParcelStatus.RESERVED);
+                            assertEquals(ParcelStatus.RESERVED, parcel.getStatus());
+                            metadata.idColumn().set(parcel, 7);
+                            assertEquals(7, parcel.getId());
+                        })
+        );
+    }
+}
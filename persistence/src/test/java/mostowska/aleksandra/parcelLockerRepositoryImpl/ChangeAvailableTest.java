@@ -0,0 +1,74 @@
+package mostowska.aleksandra.parcelLockerRepositoryImpl;
+
+import mostowska.aleksandra.model.ParcelLocker;
+import mostowska.aleksandra.repository.impl.ParcelLockerRepositoryImpl;
+import mostowska.aleksandra.testDatabase.TestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChangeAvailableTest {
+
+    private ParcelLockerRepositoryImpl parcelLockerRepository;
+    private int id;
+
+    @BeforeEach
+    void setUp() {
+        parcelLockerRepository = new ParcelLockerRepositoryImpl(TestDatabase.create());
+        id = parcelLockerRepository.save(new ParcelLocker(null, "Locker A", 52.0, 21.0, 2L, 1L)).getId();
+    }
+
+    private long availableLockers() {
+        return parcelLockerRepository.findById((long) id).orElseThrow().getAvailableLockers();
+    }
+
+    @Test
+    @DisplayName("When the available lockers are decremented the count stops at zero")
+    void testDecrement() {
+        assertTrue(parcelLockerRepository.decrementAvailable(id));
+        assertFalse(parcelLockerRepository.decrementAvailable(id));
+        assertEquals(0, availableLockers());
+    }
+
+    @Test
+    @DisplayName("When the available lockers are incremented the count stops at the total")
+    void testIncrement() {
+        assertTrue(parcelLockerRepository.incrementAvailable(id));
+        assertFalse(parcelLockerRepository.incrementAvailable(id));
+        assertEquals(2, availableLockers());
+    }
+
+    @Test
+    @DisplayName("When the parcel locker does not exist nothing is changed")
+    void testMissingLocker() {
+        assertFalse(parcelLockerRepository.decrementAvailable(id + 1));
+        assertFalse(parcelLockerRepository.incrementAvailable(id + 1));
+    }
+
+    @Test
+    @DisplayName("When deltas are added they are applied relative to the current count")
+    void testAddAvailable() {
+        var otherId = parcelLockerRepository.save(new ParcelLocker(null, "Locker B", 52.0, 21.0, 10L, 10L)).getId();
+        assertTrue(parcelLockerRepository.decrementAvailable(id));
+
+        parcelLockerRepository.addAvailable(Map.of(id, 2L, otherId, -3L));
+
+        assertEquals(2, availableLockers());
+        assertEquals(7, parcelLockerRepository.findById((long) otherId).orElseThrow().getAvailableLockers());
+    }
+
+    @Test
+    @DisplayName("When added deltas overshoot the count stays between zero and the total")
+    void testAddAvailableIsBounded() {
+        var otherId = parcelLockerRepository.save(new ParcelLocker(null, "Locker B", 52.0, 21.0, 10L, 10L)).getId();
+
+        parcelLockerRepository.addAvailable(Map.of(id, -5L, otherId, 3L));
+
+        assertEquals(0, availableLockers());
+        assertEquals(10, parcelLockerRepository.findById((long) otherId).orElseThrow().getAvailableLockers());
+    }
+}
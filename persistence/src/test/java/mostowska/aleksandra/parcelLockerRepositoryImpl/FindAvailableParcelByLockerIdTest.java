@@ -0,0 +1,63 @@
+package mostowska.aleksandra.parcelLockerRepositoryImpl;
+
+import mostowska.aleksandra.model.Parcel;
+import mostowska.aleksandra.model.utils.PackageDimensions;
+import mostowska.aleksandra.model.utils.ParcelStatus;
+import mostowska.aleksandra.repository.impl.ParcelLockerRepositoryImpl;
+import mostowska.aleksandra.repository.impl.ParcelRepositoryImpl;
+import mostowska.aleksandra.testDatabase.TestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FindAvailableParcelByLockerIdTest {
+
+    private ParcelLockerRepositoryImpl parcelLockerRepository;
+    private ParcelRepositoryImpl parcelRepository;
+
+    @BeforeEach
+    void setUp() {
+        var jdbi = TestDatabase.create();
+        parcelLockerRepository = new ParcelLockerRepositoryImpl(jdbi);
+        parcelRepository = new ParcelRepositoryImpl(jdbi);
+    }
+
+    private static Parcel parcel(int parcelLockerId, ParcelStatus status, double width, double length, double height) {
+        return new Parcel(null, parcelLockerId, 1L, status, width, length, height);
+    }
+
+    @Test
+    @DisplayName("When several parcels fit the package the one with the smallest volume is returned")
+    void testBestFit() {
+        parcelRepository.saveAll(List.of(
+                parcel(1, ParcelStatus.AVAILABLE, 60.0, 40.0, 40.0),
+                parcel(1, ParcelStatus.AVAILABLE, 5.0, 5.0, 5.0),
+                parcel(1, ParcelStatus.AVAILABLE, 30.0, 20.0, 20.0),
+                parcel(1, ParcelStatus.RESERVED, 20.0, 20.0, 20.0),
+                parcel(2, ParcelStatus.AVAILABLE, 20.0, 20.0, 20.0)));
+
+        var found = parcelLockerRepository
+                .findAvailableParcelByLockerId(1, new PackageDimensions(15.0, 15.0, 15.0))
+                .orElseThrow();
+
+        assertEquals(1, found.getParcelLockerId());
+        assertEquals(ParcelStatus.AVAILABLE, found.getStatus());
+        assertEquals(30.0, found.getWidth());
+    }
+
+    @Test
+    @DisplayName("When no available parcel fits the package nothing is returned")
+    void testNoFittingParcel() {
+        parcelRepository.saveAll(List.of(
+                parcel(1, ParcelStatus.AVAILABLE, 60.0, 40.0, 10.0),
+                parcel(1, ParcelStatus.RESERVED, 60.0, 60.0, 60.0)));
+
+        assertTrue(parcelLockerRepository
+                .findAvailableParcelByLockerId(1, new PackageDimensions(15.0, 15.0, 15.0))
+                .isEmpty());
+    }
+}
@@ -0,0 +1,77 @@
+package mostowska.aleksandra.parcelLockerRepositoryImpl;
+
+import mostowska.aleksandra.DistanceCalculator;
+import mostowska.aleksandra.model.ParcelLocker;
+import mostowska.aleksandra.model.dto.LockerDistanceDto;
+import mostowska.aleksandra.repository.impl.ParcelLockerRepositoryImpl;
+import mostowska.aleksandra.testDatabase.TestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StreamWithinTest {
+
+    private ParcelLockerRepositoryImpl parcelLockerRepository;
+
+    @BeforeEach
+    void setUp() {
+        parcelLockerRepository = new ParcelLockerRepositoryImpl(TestDatabase.create());
+        parcelLockerRepository.saveAll(List.of(
+                new ParcelLocker(null, "Warsaw Centre", 52.2296756, 21.0122287, 20L, 5L),
+                new ParcelLocker(null, "Warsaw Mokotow", 52.1935, 21.0353, 20L, 5L),
+                new ParcelLocker(null, "Poznan", 52.406374, 16.9251681, 30L, 10L),
+                new ParcelLocker(null, "Fiji", -17.7134, 178.065, 10L, 10L)));
+    }
+
+    private List<LockerDistanceDto> streamWithin(double latitude, double longitude, double radiusKm, int limit) {
+        var found = new ArrayList<LockerDistanceDto>();
+        parcelLockerRepository.streamWithin(latitude, longitude, radiusKm, limit, found::add);
+        return found;
+    }
+
+    private static List<String> names(List<LockerDistanceDto> found) {
+        return found.stream().map(dto -> dto.parcelLocker().getLocationName()).toList();
+    }
+
+    @Test
+    @DisplayName("When streaming lockers within a small radius only the nearby lockers are returned, nearest first")
+    void testSmallRadius() {
+        var found = streamWithin(52.2296756, 21.0122287, 10, 100);
+
+        assertEquals(List.of("Warsaw Centre", "Warsaw Mokotow"), names(found));
+        assertEquals(0.0, found.get(0).distanceKm(), 1e-6);
+        assertEquals(DistanceCalculator.getDistance(52.2296756, 21.0122287, 52.1935, 21.0353),
+                found.get(1).distanceKm(), 1e-6);
+    }
+
+    @Test
+    @DisplayName("When a locker is inside the bounding box but outside the radius it is skipped")
+    void testOutsideRadius() {
+        var distanceToMokotow = DistanceCalculator.getDistance(52.2296756, 21.0122287, 52.1935, 21.0353);
+
+        assertEquals(List.of("Warsaw Centre"), names(streamWithin(52.2296756, 21.0122287, distanceToMokotow - 0.1, 100)));
+    }
+
+    @Test
+    @DisplayName("When more lockers are within the radius than the limit only the nearest are streamed")
+    void testLimit() {
+        assertEquals(List.of("Poznan", "Warsaw Centre"), names(streamWithin(52.406374, 16.9251681, 500, 2)));
+    }
+
+    @Test
+    @DisplayName("When streaming lockers around the antimeridian all longitudes are searched")
+    void testAntimeridian() {
+        assertEquals(List.of("Fiji"), names(streamWithin(-17.7, -179.9, 300, 100)));
+    }
+
+    @Test
+    @DisplayName("When no locker is within the radius nothing is streamed")
+    void testEmpty() {
+        assertTrue(streamWithin(0, 0, 50, 100).isEmpty());
+    }
+}
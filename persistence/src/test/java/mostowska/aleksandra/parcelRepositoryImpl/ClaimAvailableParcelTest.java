@@ -0,0 +1,109 @@
+package mostowska.aleksandra.parcelRepositoryImpl;
+
+import mostowska.aleksandra.model.Parcel;
+import mostowska.aleksandra.model.utils.PackageDimensions;
+import mostowska.aleksandra.model.utils.ParcelStatus;
+import mostowska.aleksandra.repository.impl.ParcelRepositoryImpl;
+import mostowska.aleksandra.testDatabase.TestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClaimAvailableParcelTest {
+    private static final Logger logger = LoggerFactory.getLogger(ClaimAvailableParcelTest.class);
+
+    private static final int HOT_LOCKER_ID = 1;
+    private static final int HOT_LOCKER_PARCELS = 400;
+    private static final int THREADS = 16;
+
+    private ParcelRepositoryImpl parcelRepository;
+    private final PackageDimensions packageDimensions = new PackageDimensions(10.0, 10.0, 10.0);
+
+    @BeforeEach
+    void setUp() {
+        parcelRepository = new ParcelRepositoryImpl(TestDatabase.create());
+    }
+
+    private static List<Parcel> parcels(int parcelLockerId, int count, double size) {
+        return IntStream
+                .range(0, count)
+                .mapToObj(i -> new Parcel(null, parcelLockerId, (long) i, ParcelStatus.AVAILABLE, size, size, size))
+                .toList();
+    }
+
+    @Test
+    @DisplayName("When a matching parcel is claimed")
+    void testClaimMatchingParcel() {
+        parcelRepository.saveAll(parcels(HOT_LOCKER_ID, 1, 5.0));
+        parcelRepository.saveAll(parcels(2, 1, 20.0));
+        var fitting = parcelRepository.saveAll(parcels(HOT_LOCKER_ID, 1, 20.0)).getFirst();
+
+        var claimed = parcelRepository.claimAvailableParcel(HOT_LOCKER_ID, packageDimensions).orElseThrow();
+
+        assertEquals(fitting.getId(), claimed.getId());
+        assertEquals(ParcelStatus.RESERVED, claimed.getStatus());
+        assertEquals(ParcelStatus.RESERVED, parcelRepository.findById((long) fitting.getId()).orElseThrow().getStatus());
+        assertTrue(parcelRepository.claimAvailableParcel(HOT_LOCKER_ID, packageDimensions).isEmpty());
+    }
+
+    @Test
+    @DisplayName("When several parcels fit the smallest one is claimed first")
+    void testClaimSmallestFittingParcel() {
+        var large = parcelRepository.saveAll(parcels(HOT_LOCKER_ID, 1, 40.0)).getFirst();
+        var small = parcelRepository.saveAll(parcels(HOT_LOCKER_ID, 1, 12.0)).getFirst();
+
+        assertEquals(small.getId(), parcelRepository.claimAvailableParcel(HOT_LOCKER_ID, packageDimensions).orElseThrow().getId());
+        assertEquals(large.getId(), parcelRepository.claimAvailableParcel(HOT_LOCKER_ID, packageDimensions).orElseThrow().getId());
+    }
+
+    @Test
+    @DisplayName("When many threads claim parcels of one hot locker")
+    void testConcurrentClaimsOnHotLocker() throws Exception {
+        parcelRepository.saveAll(parcels(HOT_LOCKER_ID, HOT_LOCKER_PARCELS, 20.0));
+
+        var claimedIds = new ConcurrentLinkedQueue<Integer>();
+        var start = new CountDownLatch(1);
+        var futures = new ArrayList<Future<?>>();
+        try (var executor = Executors.newFixedThreadPool(THREADS)) {
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    while (true) {
+                        var claimed = parcelRepository.claimAvailableParcel(HOT_LOCKER_ID, packageDimensions);
+                        if (claimed.isEmpty()) {
+                            return null;
+                        }
+                        claimedIds.add(claimed.get().getId());
+                    }
+                }));
+            }
+            var startNanos = System.nanoTime();
+            start.countDown();
+            for (var future : futures) {
+                future.get();
+            }
+            var seconds = (System.nanoTime() - startNanos) / 1e9;
+
+            var doubleBookings = claimedIds.size() - claimedIds.stream().distinct().count();
+            logger.info("Hot locker stress test: {} reservations by {} threads in {} s ({} reservations/s), {} double bookings",
+                    claimedIds.size(), THREADS, "%.3f".formatted(seconds),
+                    "%.0f".formatted(claimedIds.size() / seconds), doubleBookings);
+
+            assertEquals(0, doubleBookings);
+            assertEquals(HOT_LOCKER_PARCELS, claimedIds.size());
+            assertTrue(parcelRepository.findByParcelLockerIdAndStatus(HOT_LOCKER_ID, ParcelStatus.AVAILABLE).isEmpty());
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package mostowska.aleksandra.parcelRepositoryImpl;
+
+import mostowska.aleksandra.model.Parcel;
+import mostowska.aleksandra.model.utils.ParcelStatus;
+import mostowska.aleksandra.repository.impl.ParcelRepositoryImpl;
+import mostowska.aleksandra.testDatabase.TestDatabase;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClaimParcelTest {
+
+    @Test
+    @DisplayName("When a parcel is claimed twice only the first claim succeeds")
+    void testConditionalClaim() {
+        var parcelRepository = new ParcelRepositoryImpl(TestDatabase.create());
+        var parcel = parcelRepository.save(new Parcel(null, 1, 1L, ParcelStatus.AVAILABLE, 10.0, 10.0, 10.0));
+
+        assertTrue(parcelRepository.claimParcel(parcel));
+        assertFalse(parcelRepository.claimParcel(parcel));
+        assertEquals(ParcelStatus.RESERVED, parcelRepository.findById((long) parcel.getId()).orElseThrow().getStatus());
+    }
+}
@@ -0,0 +1,30 @@
+package mostowska.aleksandra.parcelRepositoryImpl;
+
+import mostowska.aleksandra.model.Parcel;
+import mostowska.aleksandra.model.utils.ParcelStatus;
+import mostowska.aleksandra.repository.impl.ParcelRepositoryImpl;
+import mostowska.aleksandra.testDatabase.TestDatabase;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CountAvailableByParcelLockerIdTest {
+
+    @Test
+    @DisplayName("When parcels are counted only available parcels are counted per locker")
+    void testCount() {
+        var parcelRepository = new ParcelRepositoryImpl(TestDatabase.create());
+        parcelRepository.saveAll(List.of(
+                new Parcel(null, 1, 1L, ParcelStatus.AVAILABLE, 10.0, 10.0, 10.0),
+                new Parcel(null, 1, 2L, ParcelStatus.AVAILABLE, 10.0, 10.0, 10.0),
+                new Parcel(null, 1, 3L, ParcelStatus.RESERVED, 10.0, 10.0, 10.0),
+                new Parcel(null, 2, 1L, ParcelStatus.AVAILABLE, 10.0, 10.0, 10.0),
+                new Parcel(null, 3, 1L, ParcelStatus.OCCUPIED, 10.0, 10.0, 10.0)));
+
+        assertEquals(Map.of(1, 2L, 2, 1L), parcelRepository.countAvailableByParcelLockerId());
+    }
+}
@@ -0,0 +1,44 @@
+package mostowska.aleksandra.parcelRepositoryImpl;
+
+import mostowska.aleksandra.model.Parcel;
+import mostowska.aleksandra.model.Reservation;
+import mostowska.aleksandra.model.utils.ParcelStatus;
+import mostowska.aleksandra.repository.impl.ParcelRepositoryImpl;
+import mostowska.aleksandra.repository.impl.ReservationRepositoryImpl;
+import mostowska.aleksandra.testDatabase.TestDatabase;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReleaseExpiredParcelsTest {
+
+    @Test
+    @DisplayName("When parcels are released only those without an active reservation become available")
+    void testRelease() {
+        var jdbi = TestDatabase.create();
+        var parcelRepository = new ParcelRepositoryImpl(jdbi);
+        var reservationRepository = new ReservationRepositoryImpl(jdbi);
+        var now = LocalDateTime.now();
+
+        var expired = parcelRepository.save(new Parcel(null, 1, 1L, ParcelStatus.RESERVED, 10.0, 10.0, 10.0));
+        var active = parcelRepository.save(new Parcel(null, 1, 2L, ParcelStatus.RESERVED, 10.0, 10.0, 10.0));
+        var occupied = parcelRepository.save(new Parcel(null, 1, 3L, ParcelStatus.OCCUPIED, 10.0, 10.0, 10.0));
+        reservationRepository.saveAll(List.of(
+                new Reservation(null, 1, expired.getId(), now.minusWeeks(1), now.minusMinutes(1)),
+                new Reservation(null, 1, active.getId(), now.minusWeeks(2), now.minusWeeks(1)),
+                new Reservation(null, 2, active.getId(), now.minusDays(1), now.plusDays(6)),
+                new Reservation(null, 1, occupied.getId(), now.minusWeeks(1), now.minusMinutes(1))));
+
+        var ids = List.of(expired.getId(), active.getId(), occupied.getId());
+        var released = parcelRepository.releaseExpiredParcels(ids, now);
+
+        assertEquals(List.of(expired.withStatus(ParcelStatus.AVAILABLE)), released);
+        assertEquals(ParcelStatus.AVAILABLE, parcelRepository.findById((long) expired.getId()).orElseThrow().getStatus());
+        assertEquals(ParcelStatus.RESERVED, parcelRepository.findById((long) active.getId()).orElseThrow().getStatus());
+        assertEquals(List.of(), parcelRepository.releaseExpiredParcels(ids, now));
+    }
+}
@@ -0,0 +1,43 @@
+package mostowska.aleksandra.reservationRepositoryImpl;
+
+import mostowska.aleksandra.model.Parcel;
+import mostowska.aleksandra.model.Reservation;
+import mostowska.aleksandra.model.utils.ParcelStatus;
+import mostowska.aleksandra.repository.impl.ParcelRepositoryImpl;
+import mostowska.aleksandra.repository.impl.ReservationRepositoryImpl;
+import mostowska.aleksandra.testDatabase.TestDatabase;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StreamReleasingUntilTest {
+
+    @Test
+    @DisplayName("When reservations are streamed only the latest reservations of reserved parcels are returned")
+    void testStreamReleasingUntil() {
+        var jdbi = TestDatabase.create();
+        var parcelRepository = new ParcelRepositoryImpl(jdbi);
+        var reservationRepository = new ReservationRepositoryImpl(jdbi);
+        var now = LocalDateTime.now().withNano(0);
+
+        var reserved = parcelRepository.save(new Parcel(null, 1, 1L, ParcelStatus.RESERVED, 10.0, 10.0, 10.0));
+        var rebooked = parcelRepository.save(new Parcel(null, 1, 2L, ParcelStatus.RESERVED, 10.0, 10.0, 10.0));
+        var available = parcelRepository.save(new Parcel(null, 1, 3L, ParcelStatus.AVAILABLE, 10.0, 10.0, 10.0));
+        var reservations = reservationRepository.saveAll(List.of(
+                new Reservation(null, 1, reserved.getId(), now.minusWeeks(1), now.minusHours(1)),
+                new Reservation(null, 1, rebooked.getId(), now.minusWeeks(2), now.minusWeeks(1)),
+                new Reservation(null, 2, rebooked.getId(), now.minusDays(6), now.plusMinutes(30)),
+                new Reservation(null, 1, available.getId(), now.minusWeeks(1), now.minusHours(2)),
+                new Reservation(null, 3, reserved.getId(), now, now.plusDays(3))));
+
+        var streamed = new ArrayList<Reservation>();
+        reservationRepository.streamReleasingUntil(now.plusHours(1), streamed::add);
+
+        assertEquals(List.of(reservations.get(2)), streamed);
+    }
+}
@@ -0,0 +1,61 @@
+package mostowska.aleksandra.testDatabase;
+
+import org.jdbi.v3.core.Jdbi;
+
+import java.util.UUID;
+
+/**
+ * In-memory H2 database in MySQL mode with the application schema, used by repository tests.
+ */
+public final class TestDatabase {
+
+    private TestDatabase() {
+    }
+
+    /**
+     * Creates a fresh, isolated database with empty application tables.
+     *
+     * @return A Jdbi instance connected to the new database.
+     */
+    public static Jdbi create() {
+        var url = "jdbc:h2:mem:%s;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1".formatted(UUID.randomUUID());
+        var jdbi = Jdbi.create(url);
+        jdbi.useHandle(handle -> {
+            handle.execute("""
+                    create table parcel_lockers (
+                        id integer primary key auto_increment,
+                        location_name varchar(255),
+                        latitude double,
+                        longitude double,
+                        total_lockers bigint,
+                        available_lockers bigint
+                    )""");
+            handle.execute("""
+                    create table parcels (
+                        id integer primary key auto_increment,
+                        parcel_locker_id integer,
+                        locker_number bigint,
+                        status varchar(32),
+                        width double,
+                        length double,
+                        height double
+                    )""");
+            handle.execute("""
+                    create table users (
+                        id integer primary key auto_increment,
+                        username varchar(255),
+                        email varchar(255),
+                        phone_number bigint
+                    )""");
+            handle.execute("""
+                    create table reservations (
+                        id integer primary key auto_increment,
+                        user_id integer,
+                        parcel_id integer,
+                        reservation_time timestamp,
+                        release_time timestamp
+                    )""");
+        });
+        return jdbi;
+    }
+}
@@ -0,0 +1,101 @@
+package mostowska.aleksandra.unitOfWork;
+
+import mostowska.aleksandra.model.Parcel;
+import mostowska.aleksandra.model.ParcelLocker;
+import mostowska.aleksandra.model.utils.ParcelStatus;
+import mostowska.aleksandra.repository.impl.ParcelLockerRepositoryImpl;
+import mostowska.aleksandra.repository.impl.ParcelRepositoryImpl;
+import mostowska.aleksandra.repository.transaction.UnitOfWork;
+import mostowska.aleksandra.testDatabase.TestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UnitOfWorkTest {
+
+    private UnitOfWork unitOfWork;
+    private ParcelRepositoryImpl parcelRepository;
+    private ParcelLockerRepositoryImpl parcelLockerRepository;
+
+    @BeforeEach
+    void setUp() {
+        var jdbi = TestDatabase.create();
+        unitOfWork = new UnitOfWork(jdbi);
+        parcelRepository = new ParcelRepositoryImpl(jdbi);
+        parcelLockerRepository = new ParcelLockerRepositoryImpl(jdbi);
+    }
+
+    @Test
+    @DisplayName("When the unit of work completes all writes are committed on one handle")
+    void testCommit() {
+        var handle = unitOfWork.inTransaction(() -> {
+            var current = UnitOfWork.currentHandle();
+            parcelLockerRepository.save(new ParcelLocker(null, "Locker A", 52.0, 21.0, 10L, 10L));
+            parcelRepository.save(new Parcel(null, 1, 1L, ParcelStatus.AVAILABLE, 10.0, 10.0, 10.0));
+            assertSame(current, UnitOfWork.currentHandle());
+            return current;
+        });
+
+        assertNotNull(handle);
+        assertNull(UnitOfWork.currentHandle());
+        assertEquals(1, parcelLockerRepository.findAll().size());
+        assertEquals(1, parcelRepository.findAll().size());
+    }
+
+    @Test
+    @DisplayName("When the unit of work fails all writes are rolled back")
+    void testRollback() {
+        var rolledBack = new AtomicBoolean();
+        var committed = new AtomicBoolean();
+        assertThrows(IllegalStateException.class, () -> unitOfWork.useTransaction(() -> {
+            UnitOfWork.afterRollback(() -> rolledBack.set(true));
+            UnitOfWork.afterCommit(() -> committed.set(true));
+            parcelLockerRepository.save(new ParcelLocker(null, "Locker A", 52.0, 21.0, 10L, 10L));
+            parcelRepository.save(new Parcel(null, 1, 1L, ParcelStatus.AVAILABLE, 10.0, 10.0, 10.0));
+            throw new IllegalStateException("No matching parcel found");
+        }));
+
+        assertNull(UnitOfWork.currentHandle());
+        assertTrue(parcelLockerRepository.findAll().isEmpty());
+        assertTrue(parcelRepository.findAll().isEmpty());
+        assertTrue(rolledBack.get());
+        assertFalse(committed.get());
+    }
+
+    @Test
+    @DisplayName("When an action after commit fails the other actions still run and the result is returned")
+    void testFailingAfterCommitAction() {
+        var ran = new AtomicBoolean();
+        var result = unitOfWork.inTransaction(() -> {
+            UnitOfWork.afterCommit(() -> {
+                throw new IllegalStateException("Listener failed");
+            });
+            UnitOfWork.afterCommit(() -> ran.set(true));
+            return parcelLockerRepository.save(new ParcelLocker(null, "Locker A", 52.0, 21.0, 10L, 10L));
+        });
+
+        assertNotNull(result.getId());
+        assertTrue(ran.get());
+        assertEquals(1, parcelLockerRepository.findAll().size());
+    }
+
+    @Test
+    @DisplayName("When an action after rollback fails the other actions still run and the original failure is thrown")
+    void testFailingAfterRollbackAction() {
+        var ran = new AtomicBoolean();
+        var failure = assertThrows(IllegalArgumentException.class, () -> unitOfWork.useTransaction(() -> {
+            UnitOfWork.afterRollback(() -> {
+                throw new IllegalStateException("Restore failed");
+            });
+            UnitOfWork.afterRollback(() -> ran.set(true));
+            throw new IllegalArgumentException("Invalid reservation");
+        }));
+
+        assertEquals("Invalid reservation", failure.getMessage());
+        assertTrue(ran.get());
+    }
+}
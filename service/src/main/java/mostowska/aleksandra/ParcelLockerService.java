@@ -2,7 +2,14 @@ package mostowska.aleksandra;
 
 import mostowska.aleksandra.model.ParcelLocker;
 import mostowska.aleksandra.model.Reservation;
+import mostowska.aleksandra.model.dto.CoordinatesDto;
+import mostowska.aleksandra.model.dto.LockerDistanceDto;
+import mostowska.aleksandra.model.dto.NearestLockerDto;
 import mostowska.aleksandra.model.dto.ReservationRequestDto;
+import mostowska.aleksandra.model.utils.PackageDimensions;
+
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Service interface for managing parcel lockers and reservations.
@@ -10,6 +17,21 @@ import mostowska.aleksandra.model.dto.ReservationRequestDto;
  */
 public interface ParcelLockerService {
 
+    /**
+     * The maximum number of lockers returned by {@link #findNearestAvailableLockers}.
+     */
+    int MAX_NEAREST_LOCKERS = 100;
+
+    /**
+     * The maximum number of lockers returned by {@link #findLockersWithin}.
+     */
+    int MAX_LOCKERS_WITHIN = 1000;
+
+    /**
+     * The maximum number of locations resolved by one call of {@link #findNearestLockers}.
+     */
+    int MAX_BATCH_SIZE = 10_000;
+
     /**
      * Finds the nearest parcel locker to the given coordinates.
      *
@@ -19,6 +41,40 @@ public interface ParcelLockerService {
      */
     ParcelLocker findNearestLocker(double userLatitude, double userLongitude);
 
+    /**
+     * Finds the parcel lockers nearest to the given coordinates that have an available parcel fitting the package.
+     *
+     * @param userLatitude      The latitude of the user's location.
+     * @param userLongitude     The longitude of the user's location.
+     * @param packageDimensions The dimensions of the package.
+     * @param k                 The maximum number of lockers to be found, capped at {@link #MAX_NEAREST_LOCKERS}.
+     * @return The found `ParcelLocker` objects ordered by distance, nearest first.
+     */
+    List<ParcelLocker> findNearestAvailableLockers(double userLatitude, double userLongitude,
+                                                   PackageDimensions packageDimensions, int k);
+
+    /**
+     * Finds the nearest parcel locker for every location of a batch and passes the results to the consumer
+     * in the order of the locations.
+     *
+     * @param locations The locations to be resolved, at most {@link #MAX_BATCH_SIZE}.
+     * @param consumer  The consumer receiving the nearest locker of every location.
+     */
+    void findNearestLockers(List<CoordinatesDto> locations, Consumer<? super NearestLockerDto> consumer);
+
+    /**
+     * Finds the parcel lockers within a radius of the given coordinates and passes them to the consumer
+     * ordered by distance, nearest first.
+     *
+     * @param userLatitude  The latitude of the user's location.
+     * @param userLongitude The longitude of the user's location.
+     * @param radiusKm      The radius of the search in kilometers.
+     * @param limit         The maximum number of lockers to be found, capped at {@link #MAX_LOCKERS_WITHIN}.
+     * @param consumer      The consumer receiving the found lockers with their distances.
+     */
+    void findLockersWithin(double userLatitude, double userLongitude, double radiusKm, int limit,
+                           Consumer<? super LockerDistanceDto> consumer);
+
     /**
      * Creates a reservation based on the provided reservation request details.
      *
@@ -0,0 +1,379 @@
+package mostowska.aleksandra.capacity;
+
+import mostowska.aleksandra.config.metrics.MetricsSource;
+import mostowska.aleksandra.model.ParcelLocker;
+import mostowska.aleksandra.repository.ParcelLockerRepository;
+import mostowska.aleksandra.repository.ParcelRepository;
+import mostowska.aleksandra.repository.event.EntityChangedEvent;
+import mostowska.aleksandra.repository.generic.Page;
+import mostowska.aleksandra.repository.transaction.UnitOfWork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory counters of the available lockers of every parcel locker.
+ *
+ * <p>Reservations change a counter instead of the {@code available_lockers} column, and reads of parcel lockers
+ * take the count from the counter. A counter keeps the count and the committed changes not written yet in two
+ * {@link LongAdder}s, so concurrent reservations update it without contention. In the background the pending
+ * changes of all lockers are added to the column in batches at a configured interval; a flush only clears
+ * the pending changes, so reads never see the count change while it runs.</p>
+ *
+ * <p>At a longer interval the counters are reconciled against the number of AVAILABLE parcels of each locker.
+ * A drift seen unchanged by two consecutive reconciliations is corrected, so changes committed while counting
+ * are not mistaken for drift. A drift larger than the configured threshold raises an alarm in the log
+ * and the metrics.</p>
+ */
+@Component
+public class AvailabilityCounters implements MetricsSource, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvailabilityCounters.class);
+
+    private final ParcelLockerRepository parcelLockerRepository;
+    private final ParcelRepository parcelRepository;
+    private final long flushIntervalMillis;
+    private final long reconcileIntervalMillis;
+    private final long driftThreshold;
+
+    private final Map<Integer, Counter> counters = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final ScheduledExecutorService flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "availability-counters-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushedRows = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+    private final LongAdder reconciliations = new LongAdder();
+    private final LongAdder corrections = new LongAdder();
+    private final LongAdder driftAlarms = new LongAdder();
+    private volatile long lastFlushMillis;
+    private volatile long lastMaxDrift;
+
+    /**
+     * Point-in-time view of the counters.
+     *
+     * @param lockers         Lockers with a counter.
+     * @param pendingLockers  Lockers with changes not written to the database yet.
+     * @param flushes         Completed flushes.
+     * @param flushedRows     Rows updated by all flushes.
+     * @param flushFailures   Flushes that failed and were retried with the next one.
+     * @param lastFlushMillis Duration of the last flush.
+     * @param reconciliations Completed reconciliations.
+     * @param corrections     Counters corrected by reconciliations.
+     * @param driftAlarms     Drifts larger than the threshold.
+     * @param lastMaxDrift    The largest absolute drift seen by the last reconciliation.
+     */
+    public record Snapshot(int lockers, int pendingLockers, long flushes, long flushedRows, long flushFailures,
+                           long lastFlushMillis, long reconciliations, long corrections, long driftAlarms,
+                           long lastMaxDrift) {
+    }
+
+    /**
+     * The available lockers of one parcel locker.
+     */
+    private static final class Counter {
+
+        private final LongAdder total = new LongAdder();
+        private final LongAdder pending = new LongAdder();
+        private long lastDrift;
+
+        Counter(long flushed) {
+            total.add(flushed);
+        }
+
+        /**
+         * Adds a change to the count and to the changes not written yet.
+         */
+        void add(long delta) {
+            total.add(delta);
+            pending.add(delta);
+        }
+
+        /**
+         * Replaces the written part of the count, keeping the changes not written yet.
+         */
+        void setFlushed(long flushed) {
+            total.add(flushed - (total.sum() - pending.sum()));
+        }
+
+        /**
+         * The count is kept apart from the pending changes, so a flush, which only clears pending changes,
+         * never changes it.
+         */
+        long value() {
+            return total.sum();
+        }
+    }
+
+    /**
+     * Creates the counters. They are loaded from the database on {@link #reload()} or the first use,
+     * which also starts the background flushes and reconciliations.
+     *
+     * @param parcelLockerRepository  The repository the counters are loaded from and written to.
+     * @param parcelRepository        The repository counting the available parcels.
+     * @param flushIntervalMillis     The interval between writes of the pending changes.
+     * @param reconcileIntervalMillis The interval between reconciliations with the available parcels.
+     * @param driftThreshold          The largest absolute drift not raising an alarm.
+     * @throws IllegalArgumentException If an interval is not positive or the threshold is negative.
+     */
+    public AvailabilityCounters(ParcelLockerRepository parcelLockerRepository,
+                                ParcelRepository parcelRepository,
+                                @Value("${locker.counters.flush-interval-ms:1000}") long flushIntervalMillis,
+                                @Value("${locker.counters.reconcile-interval-ms:60000}") long reconcileIntervalMillis,
+                                @Value("${locker.counters.drift-threshold:5}") long driftThreshold) {
+        if (flushIntervalMillis <= 0 || reconcileIntervalMillis <= 0 || driftThreshold < 0) {
+            throw new IllegalArgumentException("Intervals must be positive and drift threshold must not be negative");
+        }
+        this.parcelLockerRepository = parcelLockerRepository;
+        this.parcelRepository = parcelRepository;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.reconcileIntervalMillis = reconcileIntervalMillis;
+        this.driftThreshold = driftThreshold;
+    }
+
+    /**
+     * Retrieves the current number of available lockers of a parcel locker.
+     * Lockers created since the counters were loaded are loaded on their first use.
+     *
+     * @param parcelLockerId The ID of the parcel locker.
+     * @return The number of available lockers, or empty if the parcel locker does not exist.
+     */
+    public Optional<Long> available(int parcelLockerId) {
+        return counter(parcelLockerId).map(Counter::value);
+    }
+
+    /**
+     * Changes the number of available lockers of a parcel locker. Inside a unit of work the change
+     * is applied once it commits and dropped if it rolls back.
+     *
+     * @param parcelLockerId The ID of the parcel locker.
+     * @param delta          The change of the number of available lockers.
+     */
+    public void add(int parcelLockerId, long delta) {
+        UnitOfWork.afterCommit(() -> counter(parcelLockerId).ifPresent(counter -> counter.add(delta)));
+    }
+
+    /**
+     * Replaces the available lockers of a parcel locker read from the database with its current count.
+     *
+     * @param parcelLocker The parcel locker read from the database.
+     * @return The parcel locker with the current count, or the same parcel locker if it has no counter.
+     */
+    public ParcelLocker withCurrentAvailability(ParcelLocker parcelLocker) {
+        ensureLoaded();
+        var counter = parcelLocker.getId() == null ? null : counters.get(parcelLocker.getId());
+        return counter == null ? parcelLocker : parcelLocker.withAvailableLockers(counter.value());
+    }
+
+    /**
+     * Replaces the available lockers of a page of parcel lockers with their current counts.
+     *
+     * @param page The page read from the database.
+     * @return The page with the current counts.
+     */
+    public Page<ParcelLocker> withCurrentAvailability(Page<ParcelLocker> page) {
+        return new Page<>(page.items().stream().map(this::withCurrentAvailability).toList(), page.nextCursor());
+    }
+
+    /**
+     * Follows parcel lockers added, deleted or written with an explicit count. An explicit count replaces
+     * the flushed part of the counter and keeps its pending changes, which are still added to the written
+     * column by the next flush. Counts read back after a partial update may be stale and are ignored,
+     * as are changes made by the counters themselves, which publish no events.
+     *
+     * @param event The change event published by the parcel locker repository.
+     */
+    @EventListener
+    public void onParcelLockerChanged(EntityChangedEvent<ParcelLocker> event) {
+        if (!loaded || event.id() == null) {
+            return;
+        }
+        var id = ((Number) event.id()).intValue();
+        var locker = event.entity();
+        switch (event.changeType()) {
+            case DELETED -> counters.remove(id);
+            case SAVED, UPDATED -> {
+                if (!event.readBack() && locker != null && locker.getAvailableLockers() != null) {
+                    long count = locker.getAvailableLockers();
+                    counters.compute(id, (key, counter) -> {
+                        if (counter == null) {
+                            return new Counter(count);
+                        }
+                        counter.setFlushed(count);
+                        return counter;
+                    });
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the pending changes of all lockers to the database in one batched transaction.
+     * If the write fails the changes stay pending and are written by the next flush.
+     */
+    public synchronized void flush() {
+        var startNanos = System.nanoTime();
+        var deltas = new HashMap<Integer, Long>();
+        var flushedCounters = new HashMap<Integer, Counter>();
+        counters.forEach((id, counter) -> {
+            var delta = counter.pending.sum();
+            if (delta != 0) {
+                deltas.put(id, delta);
+                flushedCounters.put(id, counter);
+            }
+        });
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        try {
+            parcelLockerRepository.addAvailable(deltas);
+        } catch (RuntimeException e) {
+            flushFailures.increment();
+            logger.error("Flush of available lockers failed, {} lockers stay pending", deltas.size(), e);
+            return;
+        }
+        deltas.forEach((id, delta) -> {
+            var counter = flushedCounters.get(id);
+            counter.pending.add(-delta);
+        });
+        flushes.increment();
+        flushedRows.add(deltas.size());
+        lastFlushMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Compares the counters with the number of AVAILABLE parcels of every locker, corrects persistent drifts
+     * and writes the corrections.
+     */
+    public synchronized void reconcile() {
+        flush();
+        var availableParcels = parcelRepository.countAvailableByParcelLockerId();
+        var maxDrift = 0L;
+        for (var entry : counters.entrySet()) {
+            var counter = entry.getValue();
+            var drift = counter.value() - availableParcels.getOrDefault(entry.getKey(), 0L);
+            maxDrift = Math.max(maxDrift, Math.abs(drift));
+            if (Math.abs(drift) > driftThreshold) {
+                driftAlarms.increment();
+                logger.warn("Available lockers of parcel locker {} drifted by {} from its available parcels",
+                        entry.getKey(), drift);
+            }
+            if (drift != 0 && drift == counter.lastDrift) {
+                counter.add(-drift);
+                corrections.increment();
+                drift = 0;
+            }
+            counter.lastDrift = drift;
+        }
+        lastMaxDrift = maxDrift;
+        reconciliations.increment();
+        flush();
+    }
+
+    /**
+     * Writes the pending changes, then reloads the counters of all lockers from the database
+     * and starts the background flushes and reconciliations if they are not running yet.
+     */
+    public synchronized void reload() {
+        if (loaded) {
+            flush();
+        }
+        counters.clear();
+        parcelLockerRepository.streamAll(locker -> {
+            if (locker.getAvailableLockers() != null) {
+                counters.put(locker.getId(), new Counter(locker.getAvailableLockers()));
+            }
+        });
+        loaded = true;
+        if (started.compareAndSet(false, true)) {
+            flushExecutor.scheduleWithFixedDelay(
+                    () -> runSafely(this::flush), flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+            flushExecutor.scheduleWithFixedDelay(
+                    () -> runSafely(this::reconcile), reconcileIntervalMillis, reconcileIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public String metricsName() {
+        return "availabilityCounters";
+    }
+
+    /**
+     * Takes a snapshot of the flushes and reconciliations.
+     *
+     * @return The current {@link Snapshot}.
+     */
+    @Override
+    public Snapshot metricsSnapshot() {
+        return new Snapshot(
+                counters.size(),
+                (int) counters.values().stream().filter(counter -> counter.pending.sum() != 0).count(),
+                flushes.sum(),
+                flushedRows.sum(),
+                flushFailures.sum(),
+                lastFlushMillis,
+                reconciliations.sum(),
+                corrections.sum(),
+                driftAlarms.sum(),
+                lastMaxDrift);
+    }
+
+    /**
+     * Stops the background tasks and writes the pending changes.
+     */
+    @Override
+    public void close() {
+        flushExecutor.shutdownNow();
+        if (loaded) {
+            flush();
+        }
+    }
+
+    private Optional<Counter> counter(int parcelLockerId) {
+        ensureLoaded();
+        var counter = counters.get(parcelLockerId);
+        if (counter != null) {
+            return Optional.of(counter);
+        }
+        return parcelLockerRepository
+                .findById((long) parcelLockerId)
+                .filter(locker -> locker.getAvailableLockers() != null)
+                .map(locker -> counters.computeIfAbsent(parcelLockerId, id -> new Counter(locker.getAvailableLockers())));
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    reload();
+                }
+            }
+        }
+    }
+
+    private static void runSafely(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            logger.error("Availability counters task failed", e);
+        }
+    }
+}
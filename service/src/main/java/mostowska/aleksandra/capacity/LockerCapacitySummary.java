@@ -0,0 +1,185 @@
+package mostowska.aleksandra.capacity;
+
+import lombok.RequiredArgsConstructor;
+import mostowska.aleksandra.model.Parcel;
+import mostowska.aleksandra.model.utils.PackageDimensions;
+import mostowska.aleksandra.model.utils.ParcelStatus;
+import mostowska.aleksandra.repository.ParcelRepository;
+import mostowska.aleksandra.repository.event.EntityChangedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory summary of the free slots of every parcel locker.
+ *
+ * <p>For each locker the summary counts its AVAILABLE parcels per distinct slot size, which lets
+ * callers check whether a package fits into a locker without querying the database. The summary is
+ * loaded from the database on the first query and then follows the {@link EntityChangedEvent}s
+ * of parcels. Events carrying a partially updated parcel are resolved by loading the parcel.</p>
+ *
+ * <p>Reads take no locks. The summary may briefly lag behind the database, so a successful check
+ * does not guarantee the following claim of a parcel.</p>
+ */
+@Component
+@RequiredArgsConstructor
+public class LockerCapacitySummary {
+
+    private final ParcelRepository parcelRepository;
+
+    private final Map<Integer, AvailableParcel> availableParcels = new HashMap<>();
+    private final Map<Integer, Map<SlotSize, Integer>> slotsByLocker = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    /**
+     * Dimensions of a parcel slot.
+     *
+     * @param width  The width of the slot.
+     * @param length The length of the slot.
+     * @param height The height of the slot.
+     */
+    public record SlotSize(double width, double length, double height) {
+
+        /**
+         * Checks if a package fits into the slot, with the same semantics as {@link Parcel#hasExpectedDimensions}.
+         *
+         * @param packageDimensions The dimensions of the package.
+         * @return {@code true} if every dimension of the slot is equal to or greater than the package's.
+         */
+        public boolean fits(PackageDimensions packageDimensions) {
+            return width >= packageDimensions.packageWidth()
+                    && length >= packageDimensions.packageLength()
+                    && height >= packageDimensions.packageHeight();
+        }
+
+        /**
+         * @return The volume of the slot.
+         */
+        public double volume() {
+            return width * length * height;
+        }
+    }
+
+    private record AvailableParcel(int parcelLockerId, SlotSize slotSize) {
+    }
+
+    /**
+     * Checks if the parcel locker has an AVAILABLE parcel fitting the package.
+     *
+     * @param parcelLockerId    The ID of the parcel locker.
+     * @param packageDimensions The dimensions of the package.
+     * @return {@code true} if the locker has a fitting available parcel.
+     */
+    public boolean hasFittingSlot(int parcelLockerId, PackageDimensions packageDimensions) {
+        ensureLoaded();
+        return slotsByLocker
+                .getOrDefault(parcelLockerId, Map.of())
+                .keySet()
+                .stream()
+                .anyMatch(slotSize -> slotSize.fits(packageDimensions));
+    }
+
+    /**
+     * Retrieves the number of AVAILABLE parcels per slot size of the parcel locker.
+     *
+     * @param parcelLockerId The ID of the parcel locker.
+     * @return The counts of available parcels by slot size.
+     */
+    public Map<SlotSize, Integer> availableSlots(int parcelLockerId) {
+        ensureLoaded();
+        return slotsByLocker.getOrDefault(parcelLockerId, Map.of());
+    }
+
+    /**
+     * Applies a change of a parcel to the summary. Changes arriving before the summary
+     * is loaded are ignored, as the load reads the committed state.
+     *
+     * @param event The change event published by the parcel repository.
+     */
+    @EventListener
+    public synchronized void onParcelChanged(EntityChangedEvent<Parcel> event) {
+        if (!loaded || event.id() == null) {
+            return;
+        }
+        var id = ((Number) event.id()).intValue();
+        switch (event.changeType()) {
+            case DELETED -> apply(id, null);
+            case SAVED, UPDATED -> {
+                var parcel = event.entity();
+                if (isComplete(parcel)) {
+                    apply(id, parcel);
+                } else {
+                    apply(id, parcelRepository.findById((long) id).orElse(null));
+                }
+            }
+        }
+    }
+
+    /**
+     * Reloads the available parcels of all lockers from the database.
+     */
+    public synchronized void reload() {
+        availableParcels.clear();
+        slotsByLocker.clear();
+        parcelRepository.streamAll(parcel -> {
+            if (isComplete(parcel)) {
+                apply(parcel.getId(), parcel);
+            }
+        });
+        loaded = true;
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    reload();
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the summary entry of the parcel with its new state.
+     *
+     * @param id     The ID of the parcel.
+     * @param parcel The new state of the parcel, or null if it was deleted.
+     */
+    private synchronized void apply(int id, Parcel parcel) {
+        var previous = availableParcels.remove(id);
+        if (previous != null) {
+            changeCount(previous, -1);
+        }
+        if (parcel != null && parcel.getStatus() == ParcelStatus.AVAILABLE) {
+            var current = new AvailableParcel(
+                    parcel.getParcelLockerId(),
+                    new SlotSize(parcel.getWidth(), parcel.getLength(), parcel.getHeight()));
+            availableParcels.put(id, current);
+            changeCount(current, 1);
+        }
+    }
+
+    /**
+     * Changes the count of a slot size of a locker, replacing the locker's map so readers never see it modified.
+     */
+    private void changeCount(AvailableParcel parcel, int delta) {
+        slotsByLocker.compute(parcel.parcelLockerId(), (lockerId, slots) -> {
+            var counts = slots == null ? new HashMap<SlotSize, Integer>() : new HashMap<>(slots);
+            counts.merge(parcel.slotSize(), delta, Integer::sum);
+            counts.values().removeIf(count -> count <= 0);
+            return counts.isEmpty() ? null : Map.copyOf(counts);
+        });
+    }
+
+    private static boolean isComplete(Parcel parcel) {
+        return parcel != null
+                && parcel.getParcelLockerId() != null
+                && parcel.getStatus() != null
+                && parcel.getWidth() != null
+                && parcel.getLength() != null
+                && parcel.getHeight() != null;
+    }
+}
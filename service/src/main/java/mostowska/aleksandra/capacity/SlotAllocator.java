@@ -0,0 +1,307 @@
+package mostowska.aleksandra.capacity;
+
+import lombok.RequiredArgsConstructor;
+import mostowska.aleksandra.capacity.LockerCapacitySummary.SlotSize;
+import mostowska.aleksandra.config.metrics.MetricsSource;
+import mostowska.aleksandra.model.Parcel;
+import mostowska.aleksandra.model.utils.PackageDimensions;
+import mostowska.aleksandra.model.utils.ParcelStatus;
+import mostowska.aleksandra.repository.ParcelRepository;
+import mostowska.aleksandra.repository.event.EntityChangedEvent;
+import mostowska.aleksandra.repository.transaction.UnitOfWork;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory allocator of the free parcel slots of every parcel locker.
+ *
+ * <p>For each locker the allocator keeps its AVAILABLE parcels in size-class buckets, one bucket per
+ * distinct slot size, ordered by volume. The best fitting slot for a package is found by walking the
+ * buckets from the package's volume upwards, without querying the database. The allocator is loaded
+ * from the database on startup or on the first allocation and then follows the {@link EntityChangedEvent}s
+ * of parcels.</p>
+ *
+ * <p>The database stays the source of truth: a chosen parcel is confirmed with a conditional update,
+ * and a parcel that is no longer available there is counted as a stale entry and skipped. If no slot is
+ * found in memory, the allocation falls back to the query of
+ * {@link ParcelRepository#claimAvailableParcel}, which also takes the smallest fitting parcel.</p>
+ */
+@Component
+@RequiredArgsConstructor
+public class SlotAllocator implements MetricsSource {
+
+    private static final Comparator<SlotSize> BY_VOLUME = Comparator
+            .comparingDouble(SlotSize::volume)
+            .thenComparingDouble(SlotSize::width)
+            .thenComparingDouble(SlotSize::length)
+            .thenComparingDouble(SlotSize::height);
+
+    private final ParcelRepository parcelRepository;
+
+    private final Map<Integer, Parcel> availableParcels = new HashMap<>();
+    private final Map<Integer, LockerSlots> slotsByLocker = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    private final LongAdder allocations = new LongAdder();
+    private final LongAdder staleEntries = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder fallbackHits = new LongAdder();
+    private final LongAdder allocationNanosTotal = new LongAdder();
+    private final LongAccumulator allocationNanosMax = new LongAccumulator(Long::max, 0);
+
+    /**
+     * Point-in-time view of the allocator.
+     *
+     * @param lockers                Lockers with at least one free slot.
+     * @param availableSlots         Free slots held in memory.
+     * @param allocations            Allocations made, including those that found no slot.
+     * @param staleEntries           Slots chosen in memory that were no longer available in the database.
+     * @param staleRate              Stale entries per allocation.
+     * @param fallbacks              Allocations that found no slot in memory and queried the database.
+     * @param fallbackHits           Fallback queries that found a slot missing in memory.
+     * @param avgAllocationMicros    Average duration of an allocation, including the database confirmation.
+     * @param maxAllocationMicros    Longest duration of an allocation.
+     */
+    public record Snapshot(int lockers, int availableSlots, long allocations, long staleEntries, double staleRate,
+                           long fallbacks, long fallbackHits, double avgAllocationMicros, double maxAllocationMicros) {
+    }
+
+    /**
+     * The free slots of one locker, bucketed by slot size in order of volume.
+     */
+    private static final class LockerSlots {
+
+        private final TreeMap<SlotSize, LinkedHashMap<Integer, Parcel>> buckets = new TreeMap<>(BY_VOLUME);
+        private int size;
+
+        synchronized void add(Parcel parcel) {
+            if (buckets.computeIfAbsent(slotSize(parcel), slotSize -> new LinkedHashMap<>()).put(parcel.getId(), parcel) == null) {
+                size++;
+            }
+        }
+
+        synchronized void remove(Parcel parcel) {
+            var slotSize = slotSize(parcel);
+            var bucket = buckets.get(slotSize);
+            if (bucket != null && bucket.remove(parcel.getId()) != null) {
+                size--;
+                if (bucket.isEmpty()) {
+                    buckets.remove(slotSize);
+                }
+            }
+        }
+
+        /**
+         * Removes and returns the parcel of the smallest slot fitting the package. Buckets with a smaller
+         * volume than the package cannot fit it and are skipped by the ordered search.
+         */
+        synchronized Parcel takeBestFit(PackageDimensions packageDimensions) {
+            var probe = new SlotSize(
+                    packageDimensions.packageWidth(),
+                    packageDimensions.packageLength(),
+                    packageDimensions.packageHeight());
+            var iterator = buckets.tailMap(probe, true).entrySet().iterator();
+            while (iterator.hasNext()) {
+                var entry = iterator.next();
+                if (entry.getKey().fits(packageDimensions)) {
+                    var bucket = entry.getValue();
+                    var parcels = bucket.values().iterator();
+                    var parcel = parcels.next();
+                    parcels.remove();
+                    size--;
+                    if (bucket.isEmpty()) {
+                        iterator.remove();
+                    }
+                    return parcel;
+                }
+            }
+            return null;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Allocates the best fitting free slot of the parcel locker and claims its parcel.
+     * Inside a unit of work a rollback returns the slot to the allocator.
+     *
+     * @param parcelLockerId    The ID of the parcel locker.
+     * @param packageDimensions The dimensions of the package.
+     * @return The claimed parcel, already marked as reserved, or empty if no fitting parcel is available.
+     */
+    public Optional<Parcel> allocate(int parcelLockerId, PackageDimensions packageDimensions) {
+        ensureLoaded();
+        var startNanos = System.nanoTime();
+        try {
+            for (var candidate = take(parcelLockerId, packageDimensions);
+                 candidate != null;
+                 candidate = take(parcelLockerId, packageDimensions)) {
+                if (parcelRepository.claimParcel(candidate)) {
+                    var claimed = candidate;
+                    UnitOfWork.afterRollback(() -> restore(claimed));
+                    return Optional.of(claimed.withStatus(ParcelStatus.RESERVED));
+                }
+                staleEntries.increment();
+            }
+
+            fallbacks.increment();
+            var claimed = parcelRepository.claimAvailableParcel(parcelLockerId, packageDimensions);
+            claimed.ifPresent(parcel -> fallbackHits.increment());
+            return claimed;
+        } finally {
+            var elapsedNanos = System.nanoTime() - startNanos;
+            allocations.increment();
+            allocationNanosTotal.add(elapsedNanos);
+            allocationNanosMax.accumulate(elapsedNanos);
+        }
+    }
+
+    /**
+     * Applies a change of a parcel to the allocator. Changes arriving before the allocator
+     * is loaded are ignored, as the load reads the committed state.
+     *
+     * @param event The change event published by the parcel repository.
+     */
+    @EventListener
+    public synchronized void onParcelChanged(EntityChangedEvent<Parcel> event) {
+        if (!loaded || event.id() == null) {
+            return;
+        }
+        var id = ((Number) event.id()).intValue();
+        switch (event.changeType()) {
+            case DELETED -> apply(id, null);
+            case SAVED, UPDATED -> {
+                var parcel = event.entity();
+                if (isComplete(parcel)) {
+                    apply(id, parcel);
+                } else {
+                    apply(id, parcelRepository.findById((long) id).orElse(null));
+                }
+            }
+        }
+    }
+
+    /**
+     * Reloads the free slots of all lockers from the database.
+     */
+    public synchronized void reload() {
+        availableParcels.clear();
+        slotsByLocker.clear();
+        parcelRepository.streamAll(parcel -> {
+            if (isComplete(parcel)) {
+                apply(parcel.getId(), parcel);
+            }
+        });
+        loaded = true;
+    }
+
+    @Override
+    public String metricsName() {
+        return "slotAllocator";
+    }
+
+    /**
+     * Takes a snapshot of the free slots, stale entries and allocation latency.
+     *
+     * @return The current {@link Snapshot}.
+     */
+    @Override
+    public Snapshot metricsSnapshot() {
+        var allocated = allocations.sum();
+        var stale = staleEntries.sum();
+        return new Snapshot(
+                slotsByLocker.size(),
+                slotsByLocker.values().stream().mapToInt(LockerSlots::size).sum(),
+                allocated,
+                stale,
+                allocated == 0 ? 0.0 : (double) stale / allocated,
+                fallbacks.sum(),
+                fallbackHits.sum(),
+                allocated == 0 ? 0.0 : toMicros(allocationNanosTotal.sum()) / allocated,
+                toMicros(allocationNanosMax.get()));
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    reload();
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes the best fitting parcel of the locker out of the allocator.
+     *
+     * @return The parcel, or null if the locker has no fitting slot in memory.
+     */
+    private synchronized Parcel take(int parcelLockerId, PackageDimensions packageDimensions) {
+        var slots = slotsByLocker.get(parcelLockerId);
+        var parcel = slots == null ? null : slots.takeBestFit(packageDimensions);
+        if (parcel != null) {
+            availableParcels.remove(parcel.getId());
+        }
+        return parcel;
+    }
+
+    /**
+     * Returns a parcel to its bucket after the claim was rolled back, unless it changed meanwhile.
+     */
+    private synchronized void restore(Parcel parcel) {
+        if (!availableParcels.containsKey(parcel.getId())) {
+            apply(parcel.getId(), parcel);
+        }
+    }
+
+    /**
+     * Replaces the entry of the parcel with its new state.
+     *
+     * @param id     The ID of the parcel.
+     * @param parcel The new state of the parcel, or null if it was deleted.
+     */
+    private synchronized void apply(int id, Parcel parcel) {
+        var previous = availableParcels.remove(id);
+        if (previous != null) {
+            var slots = slotsByLocker.get(previous.getParcelLockerId());
+            if (slots != null) {
+                slots.remove(previous);
+            }
+        }
+        if (parcel != null && parcel.getStatus() == ParcelStatus.AVAILABLE) {
+            availableParcels.put(id, parcel);
+            slotsByLocker.computeIfAbsent(parcel.getParcelLockerId(), lockerId -> new LockerSlots()).add(parcel);
+        }
+    }
+
+    private static SlotSize slotSize(Parcel parcel) {
+        return new SlotSize(parcel.getWidth(), parcel.getLength(), parcel.getHeight());
+    }
+
+    private static boolean isComplete(Parcel parcel) {
+        return parcel != null
+                && parcel.getId() != null
+                && parcel.getParcelLockerId() != null
+                && parcel.getStatus() != null
+                && parcel.getWidth() != null
+                && parcel.getLength() != null
+                && parcel.getHeight() != null;
+    }
+
+    private static double toMicros(long nanos) {
+        return (double) nanos / TimeUnit.MICROSECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,235 @@
+package mostowska.aleksandra.concurrent;
+
+import mostowska.aleksandra.config.metrics.MetricsSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Executor serializing the work of every parcel locker on a single thread.
+ *
+ * <p>Lockers are assigned to a fixed number of shards by their ID. Each shard runs its work one task at a time,
+ * in submission order, on its own thread, so two tasks of the same locker never run concurrently while tasks
+ * of lockers in different shards run in parallel. Work of a locker therefore needs no locks against other
+ * work of the same locker submitted through this executor.</p>
+ *
+ * <p>Every shard has a bounded mailbox. When it is full, further work for the shard is rejected
+ * with an {@link IllegalStateException} instead of queueing without limit.</p>
+ *
+ * <p>Serializing a locker caps it at one transaction at a time. Parcel claims with {@code skip locked} on
+ * different parcel rows of one locker would run in parallel, so a hot locker is served slower through
+ * the shards; see {@code ReservationShardingBenchmark}. What the shards bound is the number of reservations
+ * in flight and the pool connections they hold.</p>
+ */
+@Component
+public class LockerShardExecutor implements MetricsSource, AutoCloseable {
+
+    /**
+     * Pool connections left to work outside the shards: the counters flush, the expiry sweeper,
+     * the grid rebuild and at least one request reading lockers.
+     */
+    public static final int RESERVED_CONNECTIONS = 4;
+
+    private final Shard[] shards;
+    private final int mailboxCapacity;
+
+    /**
+     * Point-in-time view of the executor.
+     *
+     * @param shards          The state of every shard.
+     * @param queued          Tasks waiting in all mailboxes.
+     * @param completed       Tasks completed by all shards.
+     * @param rejected        Tasks rejected by all shards because their mailbox was full.
+     * @param mailboxCapacity The capacity of the mailbox of each shard.
+     */
+    public record Snapshot(List<ShardSnapshot> shards, int queued, long completed, long rejected, int mailboxCapacity) {
+    }
+
+    /**
+     * Point-in-time view of one shard.
+     *
+     * @param shard         The index of the shard.
+     * @param queueDepth    Tasks waiting in the mailbox.
+     * @param maxQueueDepth The deepest the mailbox has been.
+     * @param completed     Tasks completed by the shard.
+     * @param rejected      Tasks rejected because the mailbox was full.
+     */
+    public record ShardSnapshot(int shard, int queueDepth, long maxQueueDepth, long completed, long rejected) {
+    }
+
+    /**
+     * A single-threaded executor with a bounded mailbox.
+     */
+    private static final class Shard {
+
+        private final int index;
+        private final ThreadPoolExecutor executor;
+        private final LongAccumulator maxQueueDepth = new LongAccumulator(Long::max, 0);
+        private final LongAdder rejected = new LongAdder();
+        private volatile Thread thread;
+
+        Shard(int index, int mailboxCapacity) {
+            this.index = index;
+            this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(mailboxCapacity),
+                    runnable -> {
+                        var created = new Thread(runnable, "locker-shard-" + index);
+                        created.setDaemon(true);
+                        thread = created;
+                        return created;
+                    });
+        }
+
+        void submit(Runnable task) {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                rejected.increment();
+                throw new IllegalStateException("Too many pending reservations for the parcel locker", e);
+            }
+            maxQueueDepth.accumulate(executor.getQueue().size());
+        }
+
+        boolean isCurrentThread() {
+            return Thread.currentThread() == thread;
+        }
+
+        ShardSnapshot snapshot() {
+            return new ShardSnapshot(
+                    index,
+                    executor.getQueue().size(),
+                    maxQueueDepth.get(),
+                    executor.getCompletedTaskCount(),
+                    rejected.sum());
+        }
+    }
+
+    /**
+     * Creates the executor and starts its shards.
+     *
+     * @param shardCount      The number of shards. Shards block on the database, so this bounds the number of
+     *                        reservations in progress rather than the CPU usage, and must leave
+     *                        {@value #RESERVED_CONNECTIONS} connections of the pool to other work.
+     * @param mailboxCapacity The maximum number of tasks waiting in the mailbox of one shard.
+     * @throws IllegalArgumentException If the number of shards or the mailbox capacity is not positive.
+     */
+    public LockerShardExecutor(@Value("${locker.shards.count:6}") int shardCount,
+                               @Value("${locker.shards.mailbox-capacity:1000}") int mailboxCapacity) {
+        if (shardCount <= 0 || mailboxCapacity <= 0) {
+            throw new IllegalArgumentException("Shard count and mailbox capacity must be positive");
+        }
+        this.mailboxCapacity = mailboxCapacity;
+        this.shards = IntStream
+                .range(0, shardCount)
+                .mapToObj(index -> new Shard(index, mailboxCapacity))
+                .toArray(Shard[]::new);
+    }
+
+    /**
+     * Checks that the shards leave enough pool connections to the rest of the application. A shard holds
+     * a connection while its reservation runs; with more shards than the pool can spare, shard threads
+     * would wait on the pool instead of in their mailboxes and starve the background tasks.
+     *
+     * @param poolSize The maximum size of the connection pool, read from the {@code db.pool.max-size} property.
+     * @throws IllegalArgumentException If the shards need more connections than the pool can spare.
+     */
+    @Value("${db.pool.max-size:10}")
+    public void checkPoolSize(int poolSize) {
+        if (shards.length > poolSize - RESERVED_CONNECTIONS) {
+            throw new IllegalArgumentException("Shard count %d exceeds the pool size %d less %d reserved connections"
+                    .formatted(shards.length, poolSize, RESERVED_CONNECTIONS));
+        }
+    }
+
+    /**
+     * Runs the work on the shard of the parcel locker and waits for its result.
+     * Work submitted from the shard's own thread runs directly, as it is already serialized.
+     *
+     * @param parcelLockerId The ID of the parcel locker the work belongs to.
+     * @param work           The work to be run.
+     * @param <R>            The type of the result.
+     * @return The result of the work.
+     * @throws IllegalStateException If the mailbox of the shard is full, or the wait was interrupted.
+     */
+    public <R> R execute(int parcelLockerId, Supplier<R> work) {
+        var shard = shardOf(parcelLockerId);
+        if (shard.isCurrentThread()) {
+            return work.get();
+        }
+
+        var task = new FutureTask<>(work::get);
+        shard.submit(task);
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            task.cancel(false);
+            throw new IllegalStateException("Interrupted while waiting for the parcel locker", e);
+        } catch (CancellationException e) {
+            throw new IllegalStateException("Parcel locker work was cancelled", e);
+        }
+    }
+
+    /**
+     * @return The number of shards.
+     */
+    public int shardCount() {
+        return shards.length;
+    }
+
+    @Override
+    public String metricsName() {
+        return "lockerShards";
+    }
+
+    /**
+     * Takes a snapshot of the queue depths and task counts of all shards.
+     *
+     * @return The current {@link Snapshot}.
+     */
+    @Override
+    public Snapshot metricsSnapshot() {
+        var shardSnapshots = Arrays.stream(shards).map(Shard::snapshot).toList();
+        return new Snapshot(
+                shardSnapshots,
+                shardSnapshots.stream().mapToInt(ShardSnapshot::queueDepth).sum(),
+                shardSnapshots.stream().mapToLong(ShardSnapshot::completed).sum(),
+                shardSnapshots.stream().mapToLong(ShardSnapshot::rejected).sum(),
+                mailboxCapacity);
+    }
+
+    /**
+     * Stops the shards. Queued work is discarded and its callers fail with an {@link IllegalStateException}.
+     */
+    @Override
+    public void close() {
+        for (var shard : shards) {
+            shard.executor.shutdownNow().forEach(task -> ((FutureTask<?>) task).cancel(false));
+        }
+    }
+
+    private Shard shardOf(int parcelLockerId) {
+        return shards[Math.floorMod(parcelLockerId, shards.length)];
+    }
+}
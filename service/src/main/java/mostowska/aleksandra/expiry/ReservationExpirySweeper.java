@@ -0,0 +1,305 @@
+package mostowska.aleksandra.expiry;
+
+import mostowska.aleksandra.capacity.AvailabilityCounters;
+import mostowska.aleksandra.config.metrics.MetricsSource;
+import mostowska.aleksandra.model.Parcel;
+import mostowska.aleksandra.model.Reservation;
+import mostowska.aleksandra.repository.ParcelRepository;
+import mostowska.aleksandra.repository.ReservationRepository;
+import mostowska.aleksandra.repository.event.EntityChangedEvent;
+import mostowska.aleksandra.repository.transaction.UnitOfWork;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.stream.Collectors.counting;
+import static java.util.stream.Collectors.groupingBy;
+
+/**
+ * Background engine releasing the parcels of expired reservations.
+ *
+ * <p>Reservations ending within a configured horizon are loaded from the database into a {@link DelayQueue}
+ * ordered by release time, together with new reservations as they are saved. The horizon is reloaded
+ * at half its length, so only the reservations of the near future are held in memory. A sweeper thread
+ * takes the expired reservations and releases their parcels in chunks, each in one transaction, adding
+ * the released parcels to the {@link AvailabilityCounters} of their lockers once it commits.</p>
+ *
+ * <p>The database stays the source of truth. A parcel is released only while it is reserved and none
+ * of its reservations ends later, so releasing twice has no effect. Loading includes reservations that
+ * expired while nothing was releasing them, so a restart catches up, and reservations of a failed chunk
+ * are picked up by the next load.</p>
+ */
+@Component
+public class ReservationExpirySweeper implements MetricsSource, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservationExpirySweeper.class);
+
+    private final ReservationRepository reservationRepository;
+    private final ParcelRepository parcelRepository;
+    private final UnitOfWork unitOfWork;
+    private final AvailabilityCounters availabilityCounters;
+    private final Duration horizon;
+    private final int chunkSize;
+
+    private final DelayQueue<Expiry> queue = new DelayQueue<>();
+    private final Set<Integer> queuedReservationIds = ConcurrentHashMap.newKeySet();
+    private volatile LocalDateTime loadedUntil;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final ScheduledExecutorService loadExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "reservation-expiry-load");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Thread sweeperThread = new Thread(this::sweep, "reservation-expiry-sweep");
+
+    private final LongAdder released = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder chunks = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAccumulator maxLagMillis = new LongAccumulator(Long::max, 0);
+    private volatile long lastLagMillis;
+    private volatile long lastChunkMillis;
+    private volatile long startNanos = System.nanoTime();
+
+    /**
+     * Point-in-time view of the sweeper.
+     *
+     * @param queued            Reservations waiting for their release time.
+     * @param released          Parcels released.
+     * @param skipped           Parcels of expired reservations that were not released, as they were no longer
+     *                          reserved or had a later reservation.
+     * @param chunks            Chunks processed.
+     * @param failures          Chunks that failed and were left to the next load.
+     * @param releasedPerSecond Parcels released per second since the sweeper started.
+     * @param lastChunkMillis   Duration of the last chunk.
+     * @param lastLagMillis     How long after its release time the oldest reservation of the last chunk was released.
+     * @param maxLagMillis      The largest lag of all chunks.
+     */
+    public record Snapshot(int queued, long released, long skipped, long chunks, long failures,
+                           double releasedPerSecond, long lastChunkMillis, long lastLagMillis, long maxLagMillis) {
+    }
+
+    /**
+     * A reservation waiting for its release time.
+     */
+    private record Expiry(int reservationId, int parcelId, LocalDateTime releaseTime) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Duration.between(LocalDateTime.now(), releaseTime));
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return releaseTime.compareTo(((Expiry) other).releaseTime);
+        }
+    }
+
+    /**
+     * Creates the sweeper. It starts releasing on {@link #start()}.
+     *
+     * @param reservationRepository The repository the reservations are loaded from.
+     * @param parcelRepository      The repository releasing the parcels.
+     * @param unitOfWork            The unit of work running every chunk in one transaction.
+     * @param availabilityCounters  The counters of the available lockers.
+     * @param horizonMinutes        How far ahead reservations are loaded.
+     * @param chunkSize             The maximum number of reservations released in one transaction.
+     * @throws IllegalArgumentException If the horizon or the chunk size is not positive.
+     */
+    public ReservationExpirySweeper(ReservationRepository reservationRepository,
+                                    ParcelRepository parcelRepository,
+                                    UnitOfWork unitOfWork,
+                                    AvailabilityCounters availabilityCounters,
+                                    @Value("${reservation.expiry.horizon-minutes:60}") long horizonMinutes,
+                                    @Value("${reservation.expiry.chunk-size:500}") int chunkSize) {
+        if (horizonMinutes <= 0 || chunkSize <= 0) {
+            throw new IllegalArgumentException("Horizon and chunk size must be positive");
+        }
+        this.reservationRepository = reservationRepository;
+        this.parcelRepository = parcelRepository;
+        this.unitOfWork = unitOfWork;
+        this.availabilityCounters = availabilityCounters;
+        this.horizon = Duration.ofMinutes(horizonMinutes);
+        this.chunkSize = chunkSize;
+        sweeperThread.setDaemon(true);
+    }
+
+    /**
+     * Loads the reservations expired or ending within the horizon, then starts the sweeper thread
+     * and the periodic loads. Reservations that expired before the start are released first.
+     */
+    public void start() {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        startNanos = System.nanoTime();
+        load();
+        sweeperThread.start();
+        var reloadMillis = horizon.toMillis() / 2;
+        loadExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                load();
+            } catch (RuntimeException e) {
+                logger.error("Loading reservations to expire failed", e);
+            }
+        }, reloadMillis, reloadMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues the reservations still holding their parcel and ending within the horizon, including expired ones.
+     * Reservations already queued are skipped.
+     */
+    public void load() {
+        var until = LocalDateTime.now().plus(horizon);
+        loadedUntil = until;
+        reservationRepository.streamReleasingUntil(until, this::enqueue);
+    }
+
+    /**
+     * Queues a reservation saved or updated after the last load if it ends within the loaded horizon;
+     * later reservations are queued by a following load.
+     *
+     * @param event The change event published by the reservation repository.
+     */
+    @EventListener
+    public void onReservationChanged(EntityChangedEvent<Reservation> event) {
+        var until = loadedUntil;
+        var reservation = event.entity();
+        if (until == null || event.id() == null || reservation == null
+                || event.changeType() == EntityChangedEvent.ChangeType.DELETED) {
+            return;
+        }
+        if (reservation.getReleaseTime() != null && !reservation.getReleaseTime().isAfter(until)) {
+            enqueue(reservation.withId(((Number) event.id()).intValue()));
+        }
+    }
+
+    /**
+     * Releases all queued reservations that have expired, in chunks.
+     *
+     * @return The number of parcels released.
+     */
+    public int releaseExpired() {
+        var total = 0;
+        var chunk = new ArrayList<Expiry>(chunkSize);
+        while (queue.drainTo(chunk, chunkSize) > 0) {
+            total += release(chunk);
+            chunk.clear();
+        }
+        return total;
+    }
+
+    @Override
+    public String metricsName() {
+        return "reservationExpiry";
+    }
+
+    /**
+     * Takes a snapshot of the throughput and lag of the releases.
+     *
+     * @return The current {@link Snapshot}.
+     */
+    @Override
+    public Snapshot metricsSnapshot() {
+        var seconds = (System.nanoTime() - startNanos) / 1e9;
+        return new Snapshot(
+                queue.size(),
+                released.sum(),
+                skipped.sum(),
+                chunks.sum(),
+                failures.sum(),
+                seconds <= 0 ? 0.0 : released.sum() / seconds,
+                lastChunkMillis,
+                lastLagMillis,
+                maxLagMillis.get());
+    }
+
+    /**
+     * Stops the sweeper thread and the periodic loads.
+     */
+    @Override
+    public void close() {
+        loadExecutor.shutdownNow();
+        sweeperThread.interrupt();
+    }
+
+    private void enqueue(Reservation reservation) {
+        if (reservation.getId() == null || reservation.getParcelId() == null || reservation.getReleaseTime() == null) {
+            return;
+        }
+        if (queuedReservationIds.add(reservation.getId())) {
+            queue.add(new Expiry(reservation.getId(), reservation.getParcelId(), reservation.getReleaseTime()));
+        }
+    }
+
+    private void sweep() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                var chunk = new ArrayList<Expiry>(chunkSize);
+                chunk.add(queue.take());
+                queue.drainTo(chunk, chunkSize - 1);
+                release(chunk);
+                releaseExpired();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                logger.error("Releasing expired reservations failed", e);
+            }
+        }
+    }
+
+    /**
+     * Releases the parcels of one chunk of expired reservations in one transaction.
+     * A failed chunk is dropped from the queue; its reservations are still expired in the database
+     * and are queued again by the next load.
+     *
+     * @return The number of parcels released.
+     */
+    private int release(List<Expiry> chunk) {
+        var startNanos = System.nanoTime();
+        var now = LocalDateTime.now();
+        var parcelIds = chunk.stream().map(Expiry::parcelId).distinct().toList();
+        try {
+            var releasedParcels = unitOfWork.inTransaction(() -> {
+                var parcels = parcelRepository.releaseExpiredParcels(parcelIds, now);
+                parcels.stream()
+                        .collect(groupingBy(Parcel::getParcelLockerId, counting()))
+                        .forEach(availabilityCounters::add);
+                return parcels.size();
+            });
+
+            released.add(releasedParcels);
+            skipped.add(parcelIds.size() - releasedParcels);
+            chunks.increment();
+            var oldest = chunk.stream().map(Expiry::releaseTime).min(Comparator.naturalOrder()).orElse(now);
+            lastLagMillis = Math.max(0, Duration.between(oldest, now).toMillis());
+            maxLagMillis.accumulate(lastLagMillis);
+            lastChunkMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            return releasedParcels;
+        } catch (RuntimeException e) {
+            failures.increment();
+            logger.error("Releasing {} expired reservations failed, they are retried with the next load", chunk.size(), e);
+            return 0;
+        } finally {
+            chunk.forEach(expiry -> queuedReservationIds.remove(expiry.reservationId()));
+        }
+    }
+}
@@ -2,21 +2,36 @@ package mostowska.aleksandra.impl;
 
 import lombok.RequiredArgsConstructor;
 import mostowska.aleksandra.ParcelLockerService;
+import mostowska.aleksandra.capacity.AvailabilityCounters;
+import mostowska.aleksandra.capacity.LockerCapacitySummary;
+import mostowska.aleksandra.capacity.SlotAllocator;
+import mostowska.aleksandra.concurrent.LockerShardExecutor;
 import mostowska.aleksandra.model.ParcelLocker;
 import mostowska.aleksandra.model.Reservation;
+import mostowska.aleksandra.model.dto.CoordinatesDto;
 import mostowska.aleksandra.model.dto.CreateReservationDto;
+import mostowska.aleksandra.model.dto.LockerDistanceDto;
+import mostowska.aleksandra.model.dto.NearestLockerDto;
 import mostowska.aleksandra.model.dto.ReservationRequestDto;
 import mostowska.aleksandra.model.utils.PackageDimensions;
-import mostowska.aleksandra.model.utils.ParcelStatus;
 import mostowska.aleksandra.repository.ParcelLockerRepository;
-import mostowska.aleksandra.repository.ParcelRepository;
 import mostowska.aleksandra.repository.ReservationRepository;
+import mostowska.aleksandra.repository.transaction.UnitOfWork;
+import mostowska.aleksandra.spatial.LockerGrid;
+import mostowska.aleksandra.spatial.LockerSearchStrategy;
+import mostowska.aleksandra.spatial.LockerSpatialIndex;
+import mostowska.aleksandra.spatial.NearestLockerCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 
 /**
@@ -25,15 +40,88 @@ import java.util.Comparator;
  */
 @Service
 @RequiredArgsConstructor
-public class ParcelLockerServiceImpl implements ParcelLockerService {
+public class ParcelLockerServiceImpl implements ParcelLockerService, AutoCloseable {
 
     private final ParcelLockerRepository parcelLockerRepository;
-    private final ParcelRepository parcelRepository;
     private final ReservationRepository reservationRepository;
+    private final UnitOfWork unitOfWork;
+    private final LockerSpatialIndex lockerSpatialIndex;
+    private final NearestLockerCache nearestLockerCache;
+    private final LockerGrid lockerGrid;
+    private final LockerCapacitySummary lockerCapacitySummary;
+    private final SlotAllocator slotAllocator;
+    private final LockerShardExecutor lockerShardExecutor;
+    private final AvailabilityCounters availabilityCounters;
     private static final Logger logger = LoggerFactory.getLogger(ParcelLockerServiceImpl.class);
 
+    private static final double MAX_SEARCH_RADIUS_KM = Math.PI * 6371;
+    private static final int BATCH_CHUNK_SIZE = 1024;
+
+    private volatile ForkJoinPool batchPool = new ForkJoinPool();
+
+    private LockerSearchStrategy searchStrategy = LockerSearchStrategy.MEMORY;
+    private double initialSearchRadiusKm = 5;
+
+    /**
+     * Sets where nearest locker searches are answered.
+     *
+     * @param searchStrategy The strategy, read from the {@code locker.search.strategy} property.
+     */
+    @Value("${locker.search.strategy:memory}")
+    public void setSearchStrategy(String searchStrategy) {
+        this.searchStrategy = LockerSearchStrategy.valueOf(searchStrategy.toUpperCase());
+    }
+
+    /**
+     * Sets the radius of the first database search; the radius is doubled until a locker is found.
+     *
+     * @param initialSearchRadiusKm The radius, read from the {@code locker.search.initial-radius-km} property.
+     * @throws IllegalArgumentException If the radius is not positive.
+     */
+    @Value("${locker.search.initial-radius-km:5}")
+    public void setInitialSearchRadiusKm(double initialSearchRadiusKm) {
+        if (initialSearchRadiusKm <= 0) {
+            throw new IllegalArgumentException("Search radius must be positive");
+        }
+        this.initialSearchRadiusKm = initialSearchRadiusKm;
+    }
+
+    /**
+     * Sets the number of threads resolving the locations of a batch in parallel.
+     * The pool replaces the default one, which starts no threads before its first use.
+     *
+     * @param batchParallelism The number of threads, read from the {@code locker.batch.parallelism} property;
+     *                         0 uses one thread per available processor.
+     * @throws IllegalArgumentException If the number of threads is negative.
+     */
+    @Value("${locker.batch.parallelism:0}")
+    public void setBatchParallelism(int batchParallelism) {
+        if (batchParallelism < 0) {
+            throw new IllegalArgumentException("Batch parallelism must not be negative");
+        }
+        var previousPool = batchPool;
+        var parallelism = batchParallelism == 0 ? Runtime.getRuntime().availableProcessors() : batchParallelism;
+        batchPool = new ForkJoinPool(parallelism);
+        previousPool.shutdown();
+    }
+
+    /**
+     * Shuts down the pool resolving batches. Batches already submitted are completed.
+     */
+    @Override
+    public void close() {
+        batchPool.shutdown();
+    }
+
     /**
      * Finds the nearest parcel locker to the specified user location.
+     * With the {@link LockerSearchStrategy#MEMORY} strategy the locker is looked up in the precomputed
+     * {@link LockerGrid}, or, outside of it or while it is rebuilt, among the candidates cached by the
+     * {@link NearestLockerCache} for the geohash cell of the location. The locker is then loaded by its ID;
+     * IDs that no longer exist are removed from the {@link LockerSpatialIndex}, the grid is invalidated
+     * and the lookup is repeated.
+     * With the {@link LockerSearchStrategy#DATABASE} strategy the spatial index of the database is searched
+     * within a radius doubled until a locker is found.
      *
      * @param userLatitude  The latitude of the user's location.
      * @param userLongitude The longitude of the user's location.
@@ -42,20 +130,140 @@ public class ParcelLockerServiceImpl implements ParcelLockerService {
      */
     @Override
     public ParcelLocker findNearestLocker(double userLatitude, double userLongitude) {
-        var lockers = parcelLockerRepository.findAll();
-        return lockers
-                .stream()
-                .min(Comparator.comparingDouble(l -> l.getLockersDistance(userLatitude, userLongitude)))
-                .orElseThrow(() -> new IllegalArgumentException("No nearest locker found"));
+        if (searchStrategy == LockerSearchStrategy.DATABASE) {
+            return findNearestLockerInDatabase(userLatitude, userLongitude);
+        }
+        while (true) {
+            var nearest = lockerGrid
+                    .nearest(userLatitude, userLongitude)
+                    .or(() -> nearestLockerCache.nearest(userLatitude, userLongitude))
+                    .orElseThrow(() -> new IllegalArgumentException("No nearest locker found"));
+            var locker = parcelLockerRepository.findById((long) nearest.id());
+            if (locker.isPresent()) {
+                return locker.get();
+            }
+            lockerSpatialIndex.remove(nearest.id());
+            lockerGrid.invalidate();
+        }
+    }
+
+    private ParcelLocker findNearestLockerInDatabase(double userLatitude, double userLongitude) {
+        for (var radiusKm = initialSearchRadiusKm; ; radiusKm *= 2) {
+            var lockers = parcelLockerRepository.findNearest(userLatitude, userLongitude, 1, radiusKm);
+            if (!lockers.isEmpty()) {
+                return lockers.getFirst();
+            }
+            if (radiusKm >= MAX_SEARCH_RADIUS_KM) {
+                throw new IllegalArgumentException("No nearest locker found");
+            }
+        }
+    }
+
+    /**
+     * Finds the nearest parcel lockers with an available parcel fitting the package.
+     * Lockers are walked in order of distance from the {@link LockerSpatialIndex} and checked against
+     * the {@link LockerCapacitySummary}, so no query is run for lockers without a fitting parcel.
+     * Both are used regardless of the search strategy, so this method loads every locker into the index
+     * and every parcel into the summary even when {@code locker.search.strategy=database}.
+     *
+     * @param userLatitude      The latitude of the user's location.
+     * @param userLongitude     The longitude of the user's location.
+     * @param packageDimensions The dimensions of the package.
+     * @param k                 The maximum number of lockers to be found.
+     * @return The found {@link ParcelLocker} objects ordered by distance, nearest first.
+     * @throws IllegalArgumentException If k is not positive.
+     */
+    @Override
+    public List<ParcelLocker> findNearestAvailableLockers(double userLatitude, double userLongitude,
+                                                          PackageDimensions packageDimensions, int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("Number of lockers must be positive");
+        }
+        var limit = Math.min(k, MAX_NEAREST_LOCKERS);
+
+        var lockers = new ArrayList<ParcelLocker>(limit);
+        var candidates = lockerSpatialIndex.nearestFirst(userLatitude, userLongitude);
+        while (lockers.size() < limit && candidates.hasNext()) {
+            var candidate = candidates.next();
+            if (lockerCapacitySummary.hasFittingSlot(candidate.id(), packageDimensions)) {
+                parcelLockerRepository.findById((long) candidate.id()).ifPresent(lockers::add);
+            }
+        }
+        return lockers;
+    }
+
+    /**
+     * Finds the nearest parcel locker for every location of a batch.
+     * All locations are resolved against one {@link LockerSpatialIndex.View}, regardless of the search strategy,
+     * so a batch sees a consistent set of lockers and runs no queries. Locations are resolved in parallel
+     * on a fork-join pool in chunks; each chunk is passed to the consumer before the next one is resolved,
+     * so the results can be streamed while the rest of the batch is computed.
+     *
+     * @param locations The locations to be resolved.
+     * @param consumer  The consumer receiving the nearest locker of every location, in the order of the locations.
+     * @throws IllegalArgumentException If the batch is too large or no parcel lockers are available.
+     */
+    @Override
+    public void findNearestLockers(List<CoordinatesDto> locations, Consumer<? super NearestLockerDto> consumer) {
+        if (locations.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Batch size must not exceed " + MAX_BATCH_SIZE);
+        }
+        var view = lockerSpatialIndex.view();
+        var results = new NearestLockerDto[Math.min(locations.size(), BATCH_CHUNK_SIZE)];
+        for (int from = 0; from < locations.size(); from += BATCH_CHUNK_SIZE) {
+            var chunk = locations.subList(from, Math.min(from + BATCH_CHUNK_SIZE, locations.size()));
+            batchPool.submit(() -> IntStream.range(0, chunk.size()).parallel().forEach(i -> {
+                var location = chunk.get(i);
+                var nearest = view
+                        .nearest(location.latitude(), location.longitude())
+                        .orElseThrow(() -> new IllegalArgumentException("No nearest locker found"));
+                results[i] = new NearestLockerDto(location.latitude(), location.longitude(), nearest.id(), nearest.distanceKm());
+            })).join();
+            for (int i = 0; i < chunk.size(); i++) {
+                consumer.accept(results[i]);
+            }
+        }
+    }
+
+    /**
+     * Finds the parcel lockers within a radius of the user's location.
+     * The database reads only the bounding box of the circle and orders the lockers by distance itself,
+     * so every locker is passed to the consumer as soon as it is read from the cursor and nothing is
+     * collected in memory.
+     *
+     * @param userLatitude  The latitude of the user's location.
+     * @param userLongitude The longitude of the user's location.
+     * @param radiusKm      The radius of the search in kilometers.
+     * @param limit         The maximum number of lockers to be found.
+     * @param consumer      The consumer receiving the found lockers ordered by distance, nearest first.
+     * @throws IllegalArgumentException If the radius or the limit is not positive.
+     */
+    @Override
+    public void findLockersWithin(double userLatitude, double userLongitude, double radiusKm, int limit,
+                                  Consumer<? super LockerDistanceDto> consumer) {
+        if (radiusKm <= 0) {
+            throw new IllegalArgumentException("Search radius must be positive");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Number of lockers must be positive");
+        }
+        parcelLockerRepository.streamWithin(userLatitude, userLongitude, radiusKm,
+                Math.min(limit, MAX_LOCKERS_WITHIN), consumer);
     }
 
     /**
      * Creates a reservation for a parcel locker based on the provided reservation details.
+     * All writes run in one unit of work, so a failure at any step rolls back the parcel claim, and the
+     * available lockers count of the {@link AvailabilityCounters} changes only once the reservation commits.
+     * The count is checked and changed in memory; the counters write it to the database in the background.
+     * Reservations of one parcel locker run one at a time on the locker's shard of the
+     * {@link LockerShardExecutor}, so they never wait for each other's row locks.
      *
      * @param reservationRequestDto The DTO containing reservation details.
      * @return The created {@link Reservation} object.
      * @throws IllegalStateException If the parcel locker or suitable parcel is not found,
-     *                                or if the parcel locker has no available lockers.
+     *                                or if the parcel locker has no available lockers,
+     *                                or if too many reservations of the parcel locker are pending.
      */
     @Override
     public Reservation makeReservation(ReservationRequestDto reservationRequestDto) {
@@ -68,27 +276,24 @@ public class ParcelLockerServiceImpl implements ParcelLockerService {
                 reservationRequestDto.parcelHeight()
         );
 
-        var parcelLocker = parcelLockerRepository
-                .findById((long) parcelLockerId)
-                .orElseThrow(() -> new IllegalStateException("No parcel lockers of given id"));
-
-        var suitableParcel = parcelLockerRepository
-                .findAvailableParcelByLockerId(parcelLockerId, packageDimensions)
-                .orElseThrow(() -> new IllegalStateException("No matching parcel found"));
-
-        var reserveSuitableParcel = suitableParcel.withStatus(ParcelStatus.RESERVED);
-        parcelRepository.update((long) suitableParcel.getId(), reserveSuitableParcel);
-
-        var reserveInSuitableParcelLocker = parcelLocker.withAvailableLockers(parcelLocker.getAvailableLockers() - 1);
-        parcelLockerRepository.update((long) parcelLockerId, reserveInSuitableParcelLocker);
+        return lockerShardExecutor.execute(parcelLockerId, () -> unitOfWork.inTransaction(() -> {
+            var availableLockers = availabilityCounters
+                    .available(parcelLockerId)
+                    .orElseThrow(() -> new IllegalStateException("No parcel lockers of given id"));
+            if (availableLockers <= 0) {
+                throw new IllegalStateException("No available lockers in the parcel locker");
+            }
 
-        var reservation = new CreateReservationDto(userId, reserveSuitableParcel.getId(),
-                LocalDateTime.now(), LocalDateTime.now().plusWeeks(1))
-                .toReservation()
-                .withId(reservationRepository.getLastReservationsId());
+            var reserveSuitableParcel = slotAllocator
+                    .allocate(parcelLockerId, packageDimensions)
+                    .orElseThrow(() -> new IllegalStateException("No matching parcel found"));
+            availabilityCounters.add(parcelLockerId, -1);
 
+            var reservation = new CreateReservationDto(userId, reserveSuitableParcel.getId(),
+                    LocalDateTime.now(), LocalDateTime.now().plusWeeks(1))
+                    .toReservation();
 
-        reservationRepository.save(reservation);
-        return reservation;
+            return reservationRepository.save(reservation);
+        }));
     }
 }
@@ -0,0 +1,117 @@
+package mostowska.aleksandra.spatial;
+
+import mostowska.aleksandra.model.utils.BoundingBox;
+
+/**
+ * Encodes coordinates as geohashes, the base32 names of nested latitude and longitude cells.
+ *
+ * <p>Every character halves the cell five times, alternating between longitude and latitude,
+ * so nearby coordinates share a prefix and all coordinates of a cell map to the same hash.
+ * At precision 6 a cell is about 1.2 km by 0.6 km, at precision 7 about 150 m by 150 m.</p>
+ */
+public final class GeoHash {
+
+    /**
+     * The longest supported geohash; its cells are a few centimeters wide.
+     */
+    public static final int MAX_PRECISION = 12;
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    private GeoHash() {
+    }
+
+    /**
+     * Encodes the coordinates as a geohash.
+     *
+     * @param latitude  The latitude in degrees.
+     * @param longitude The longitude in degrees.
+     * @param precision The number of characters, from 1 to {@link #MAX_PRECISION}.
+     * @return The geohash of the cell containing the coordinates.
+     * @throws IllegalArgumentException If the precision is out of range.
+     */
+    public static String encode(double latitude, double longitude, int precision) {
+        if (precision < 1 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Geohash precision must be between 1 and " + MAX_PRECISION);
+        }
+        double minLatitude = -90, maxLatitude = 90;
+        double minLongitude = -180, maxLongitude = 180;
+        var hash = new StringBuilder(precision);
+        var evenBit = true;
+        var bits = 0;
+        var character = 0;
+        while (hash.length() < precision) {
+            if (evenBit) {
+                var middle = (minLongitude + maxLongitude) / 2;
+                character <<= 1;
+                if (longitude >= middle) {
+                    character |= 1;
+                    minLongitude = middle;
+                } else {
+                    maxLongitude = middle;
+                }
+            } else {
+                var middle = (minLatitude + maxLatitude) / 2;
+                character <<= 1;
+                if (latitude >= middle) {
+                    character |= 1;
+                    minLatitude = middle;
+                } else {
+                    maxLatitude = middle;
+                }
+            }
+            evenBit = !evenBit;
+            if (++bits == 5) {
+                hash.append(BASE32[character]);
+                bits = 0;
+                character = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Decodes the bounds of the cell named by a geohash.
+     *
+     * @param hash The geohash.
+     * @return The bounds of the cell.
+     * @throws IllegalArgumentException If the hash contains a character outside the geohash alphabet.
+     */
+    public static BoundingBox decode(String hash) {
+        double minLatitude = -90, maxLatitude = 90;
+        double minLongitude = -180, maxLongitude = 180;
+        var evenBit = true;
+        for (var c : hash.toCharArray()) {
+            var value = indexOf(c);
+            for (int bit = 4; bit >= 0; bit--) {
+                var set = ((value >> bit) & 1) == 1;
+                if (evenBit) {
+                    var middle = (minLongitude + maxLongitude) / 2;
+                    if (set) {
+                        minLongitude = middle;
+                    } else {
+                        maxLongitude = middle;
+                    }
+                } else {
+                    var middle = (minLatitude + maxLatitude) / 2;
+                    if (set) {
+                        minLatitude = middle;
+                    } else {
+                        maxLatitude = middle;
+                    }
+                }
+                evenBit = !evenBit;
+            }
+        }
+        return new BoundingBox(minLatitude, minLongitude, maxLatitude, maxLongitude);
+    }
+
+    private static int indexOf(char c) {
+        for (int i = 0; i < BASE32.length; i++) {
+            if (BASE32[i] == c) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Invalid geohash character: " + c);
+    }
+}
@@ -0,0 +1,349 @@
+package mostowska.aleksandra.spatial;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.function.IntPredicate;
+
+/**
+ * Immutable, balanced k-d tree over points on the unit sphere.
+ *
+ * <p>The tree is stored implicitly in flat arrays: the node of the range {@code [lo, hi)} is its
+ * middle element, the left subtree holds {@code [lo, mid)} and the right subtree {@code (mid, hi)}.
+ * Every node splits on the axis with the largest spread of its range. Building takes
+ * O(n log n) and a nearest neighbour query visits O(log n) nodes on average.</p>
+ */
+public final class KdTree {
+
+    private static final KdTree EMPTY = new KdTree(new int[0], new double[3][0], new byte[0]);
+
+    private final int[] ids;
+    private final double[][] coordinates;
+    private final byte[] axes;
+
+    private KdTree(int[] ids, double[][] coordinates, byte[] axes) {
+        this.ids = ids;
+        this.coordinates = coordinates;
+        this.axes = axes;
+    }
+
+    /**
+     * Builds a tree over the given points.
+     *
+     * @param ids    The IDs of the points.
+     * @param points The points, in the same order as the IDs.
+     * @return The built tree.
+     * @throws IllegalArgumentException If the number of IDs and points differ.
+     */
+    public static KdTree build(int[] ids, SpherePoint[] points) {
+        if (ids.length != points.length) {
+            throw new IllegalArgumentException("Number of ids and points differ");
+        }
+        if (ids.length == 0) {
+            return EMPTY;
+        }
+
+        var treeIds = ids.clone();
+        var coordinates = new double[3][ids.length];
+        for (int i = 0; i < points.length; i++) {
+            coordinates[0][i] = points[i].x();
+            coordinates[1][i] = points[i].y();
+            coordinates[2][i] = points[i].z();
+        }
+        var tree = new KdTree(treeIds, coordinates, new byte[ids.length]);
+        tree.build(0, ids.length);
+        return tree;
+    }
+
+    /**
+     * Creates an empty tree.
+     *
+     * @return The empty tree.
+     */
+    public static KdTree empty() {
+        return EMPTY;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Finds the k points nearest to the query point.
+     *
+     * @param query  The query point.
+     * @param k      The maximum number of points to be found.
+     * @param accept Filter of the point IDs; rejected points are skipped.
+     * @return The found points ordered by distance, nearest first.
+     */
+    public List<Neighbor> nearest(SpherePoint query, int k, IntPredicate accept) {
+        if (k <= 0 || ids.length == 0) {
+            return List.of();
+        }
+        var candidates = new Candidates(Math.min(k, ids.length));
+        search(0, ids.length, query, candidates, accept);
+        return candidates.toNeighbors();
+    }
+
+    /**
+     * Iterates over the points in order of increasing distance to the query point.
+     * Points are found lazily with a best-first search, so taking the first few points
+     * costs about as much as a k nearest query.
+     *
+     * @param query  The query point.
+     * @param accept Filter of the point IDs; rejected points are skipped.
+     * @return Iterator over the accepted points, nearest first.
+     */
+    public Iterator<Neighbor> nearestFirst(SpherePoint query, IntPredicate accept) {
+        return new Iterator<>() {
+            private final PriorityQueue<SearchEntry> queue = new PriorityQueue<>();
+            private Neighbor next;
+
+            {
+                if (ids.length > 0) {
+                    queue.add(new SearchEntry(0.0, 0, ids.length, -1));
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && !queue.isEmpty()) {
+                    var entry = queue.poll();
+                    if (entry.point() >= 0) {
+                        next = new Neighbor(ids[entry.point()], SpherePoint.toKilometers(entry.distance()));
+                    } else {
+                        expand(entry);
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public Neighbor next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                var result = next;
+                next = null;
+                return result;
+            }
+
+            /**
+             * Queues the node of the range as a point and its subtrees with a lower bound of their distance.
+             */
+            private void expand(SearchEntry entry) {
+                var lo = entry.lo();
+                var hi = entry.hi();
+                var mid = (lo + hi) >>> 1;
+                if (accept.test(ids[mid])) {
+                    queue.add(new SearchEntry(distanceSquared(mid, query), lo, hi, mid));
+                }
+                if (hi - lo == 1) {
+                    return;
+                }
+
+                var axis = axes[mid];
+                var difference = query.coordinate(axis) - coordinates[axis][mid];
+                var farBound = Math.max(entry.distance(), difference * difference);
+                var leftBound = difference < 0 ? entry.distance() : farBound;
+                var rightBound = difference < 0 ? farBound : entry.distance();
+                if (lo < mid) {
+                    queue.add(new SearchEntry(leftBound, lo, mid, -1));
+                }
+                if (mid + 1 < hi) {
+                    queue.add(new SearchEntry(rightBound, mid + 1, hi, -1));
+                }
+            }
+        };
+    }
+
+    /**
+     * Entry of the best-first search: either a single point with its exact distance,
+     * or a subtree range with a lower bound of the distance of its points.
+     *
+     * @param distance The squared chord distance, exact for points and a lower bound for ranges.
+     * @param lo       The first index of the range.
+     * @param hi       The index after the last element of the range.
+     * @param point    The index of the point, or -1 for a range.
+     */
+    private record SearchEntry(double distance, int lo, int hi, int point) implements Comparable<SearchEntry> {
+        @Override
+        public int compareTo(SearchEntry other) {
+            return Double.compare(distance, other.distance);
+        }
+    }
+
+    private void build(int lo, int hi) {
+        if (hi - lo <= 1) {
+            return;
+        }
+        var axis = widestAxis(lo, hi);
+        var mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, coordinates[axis]);
+        axes[mid] = (byte) axis;
+        build(lo, mid);
+        build(mid + 1, hi);
+    }
+
+    private int widestAxis(int lo, int hi) {
+        var widestAxis = 0;
+        var widestSpread = -1.0;
+        for (int axis = 0; axis < 3; axis++) {
+            var values = coordinates[axis];
+            var min = Double.POSITIVE_INFINITY;
+            var max = Double.NEGATIVE_INFINITY;
+            for (int i = lo; i < hi; i++) {
+                min = Math.min(min, values[i]);
+                max = Math.max(max, values[i]);
+            }
+            if (max - min > widestSpread) {
+                widestSpread = max - min;
+                widestAxis = axis;
+            }
+        }
+        return widestAxis;
+    }
+
+    /**
+     * Moves the element of rank {@code nth} in {@code [left, right]} to its sorted position,
+     * with smaller or equal values before it and greater or equal values after it.
+     */
+    private void select(int left, int right, int nth, double[] values) {
+        while (right > left) {
+            var pivot = values[(left + right) >>> 1];
+            var i = left;
+            var j = right;
+            while (i <= j) {
+                while (values[i] < pivot) {
+                    i++;
+                }
+                while (values[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (nth <= j) {
+                right = j;
+            } else if (nth >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        var id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+        for (var values : coordinates) {
+            var value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+    }
+
+    private void search(int lo, int hi, SpherePoint query, Candidates candidates, IntPredicate accept) {
+        if (lo >= hi) {
+            return;
+        }
+        var mid = (lo + hi) >>> 1;
+        if (accept.test(ids[mid])) {
+            candidates.offer(ids[mid], distanceSquared(mid, query));
+        }
+        if (hi - lo == 1) {
+            return;
+        }
+
+        var axis = axes[mid];
+        var difference = query.coordinate(axis) - coordinates[axis][mid];
+        if (difference < 0) {
+            search(lo, mid, query, candidates, accept);
+            if (difference * difference < candidates.bound()) {
+                search(mid + 1, hi, query, candidates, accept);
+            }
+        } else {
+            search(mid + 1, hi, query, candidates, accept);
+            if (difference * difference < candidates.bound()) {
+                search(lo, mid, query, candidates, accept);
+            }
+        }
+    }
+
+    private double distanceSquared(int index, SpherePoint query) {
+        var dx = coordinates[0][index] - query.x();
+        var dy = coordinates[1][index] - query.y();
+        var dz = coordinates[2][index] - query.z();
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Bounded max-heap of the best candidates found so far, keyed by squared chord distance.
+     */
+    private static final class Candidates {
+        private final int[] ids;
+        private final double[] distances;
+        private int size;
+
+        Candidates(int capacity) {
+            this.ids = new int[capacity];
+            this.distances = new double[capacity];
+        }
+
+        /**
+         * @return The squared distance a point must beat to become a candidate.
+         */
+        double bound() {
+            return size < ids.length ? Double.POSITIVE_INFINITY : distances[0];
+        }
+
+        void offer(int id, double distance) {
+            if (size < ids.length) {
+                var i = size++;
+                while (i > 0 && distances[(i - 1) / 2] < distance) {
+                    var parent = (i - 1) / 2;
+                    ids[i] = ids[parent];
+                    distances[i] = distances[parent];
+                    i = parent;
+                }
+                ids[i] = id;
+                distances[i] = distance;
+            } else if (distance < distances[0]) {
+                var i = 0;
+                while (true) {
+                    var child = 2 * i + 1;
+                    if (child >= size) {
+                        break;
+                    }
+                    if (child + 1 < size && distances[child + 1] > distances[child]) {
+                        child++;
+                    }
+                    if (distances[child] <= distance) {
+                        break;
+                    }
+                    ids[i] = ids[child];
+                    distances[i] = distances[child];
+                    i = child;
+                }
+                ids[i] = id;
+                distances[i] = distance;
+            }
+        }
+
+        List<Neighbor> toNeighbors() {
+            var order = new Integer[size];
+            Arrays.setAll(order, i -> i);
+            Arrays.sort(order, (a, b) -> Double.compare(distances[a], distances[b]));
+            var neighbors = new ArrayList<Neighbor>(size);
+            for (var i : order) {
+                neighbors.add(new Neighbor(ids[i], SpherePoint.toKilometers(distances[i])));
+            }
+            return neighbors;
+        }
+    }
+}
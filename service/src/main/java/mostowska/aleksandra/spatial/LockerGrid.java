@@ -0,0 +1,383 @@
+package mostowska.aleksandra.spatial;
+
+import mostowska.aleksandra.DistanceCalculator;
+import mostowska.aleksandra.config.metrics.MetricsSource;
+import mostowska.aleksandra.model.ParcelLocker;
+import mostowska.aleksandra.repository.ParcelLockerRepository;
+import mostowska.aleksandra.repository.event.EntityChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Precomputed raster answering nearest locker queries in constant time.
+ *
+ * <p>The raster covers the area spanned by all parcel lockers, padded by one cell, with cells of a configured size. Every cell
+ * stores the lockers whose Voronoi regions may intersect it: if the locker nearest to the cell center is
+ * {@code d} away and every point of the cell lies within {@code r} of the center, these are the lockers
+ * within {@code d + 2r} of the center. A lookup finds its cell by arithmetic and compares the exact
+ * {@link DistanceCalculator} distances of those few candidates.</p>
+ *
+ * <p>The raster is built from the {@code parcel_lockers} table in the background and swapped in atomically.
+ * A change of locker coordinates marks the current raster as outdated and schedules a rebuild; until the new
+ * raster is swapped in, lookups return empty and callers fall back to another search.</p>
+ */
+@Component
+public class LockerGrid implements MetricsSource, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(LockerGrid.class);
+
+    private static final double KM_PER_DEGREE = Math.toRadians(SpherePoint.EARTH_RADIUS_KM);
+
+    private final ParcelLockerRepository parcelLockerRepository;
+    private final double cellSizeKm;
+    private final int maxCells;
+    private final long rebuildDelayMillis;
+
+    private final AtomicReference<Raster> raster = new AtomicReference<>();
+    private final AtomicLong changes = new AtomicLong();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService rebuildExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "locker-grid-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+    private volatile long lastRebuildMillis;
+
+    /**
+     * Immutable raster swapped in by a rebuild.
+     *
+     * <p>Candidates are stored in compressed rows: the candidates of cell {@code c} are the positions
+     * {@code candidates[offsets[c]]} to {@code candidates[offsets[c + 1] - 1]} in the locker arrays.</p>
+     *
+     * @param version      The number of changes seen when the build started.
+     * @param minLatitude  The southern bound of the raster in degrees.
+     * @param minLongitude The western bound of the raster in degrees.
+     * @param latitudeStep The height of a cell in degrees.
+     * @param longitudeStep The width of a cell in degrees.
+     * @param rows         The number of cell rows.
+     * @param columns      The number of cell columns.
+     * @param offsets      The start of the candidates of every cell, followed by the total number of candidates.
+     * @param candidates   The positions of the candidates of all cells.
+     * @param ids          The IDs of all lockers, sorted as read by {@code streamAll}.
+     * @param latitudes    The latitudes of all lockers.
+     * @param longitudes   The longitudes of all lockers.
+     */
+    private record Raster(long version, double minLatitude, double minLongitude, double latitudeStep,
+                          double longitudeStep, int rows, int columns, int[] offsets, int[] candidates,
+                          int[] ids, double[] latitudes, double[] longitudes) {
+
+        Optional<Neighbor> nearest(double latitude, double longitude) {
+            var row = (int) Math.floor((latitude - minLatitude) / latitudeStep);
+            var column = (int) Math.floor((longitude - minLongitude) / longitudeStep);
+            if (row < 0 || row >= rows || column < 0 || column >= columns) {
+                return Optional.empty();
+            }
+            var cell = row * columns + column;
+            var best = -1;
+            var bestDistance = Double.POSITIVE_INFINITY;
+            for (int i = offsets[cell]; i < offsets[cell + 1]; i++) {
+                var position = candidates[i];
+                var distance = DistanceCalculator.getDistance(latitude, longitude, latitudes[position], longitudes[position]);
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    best = position;
+                }
+            }
+            return best < 0 ? Optional.empty() : Optional.of(new Neighbor(ids[best], bestDistance));
+        }
+
+        boolean isMoved(int id, Double latitude, Double longitude) {
+            var position = Arrays.binarySearch(ids, id);
+            if (position < 0) {
+                return latitude != null && longitude != null;
+            }
+            return latitude == null || longitude == null
+                    || latitudes[position] != latitude || longitudes[position] != longitude;
+        }
+
+        long memoryBytes() {
+            return 4L * (offsets.length + candidates.length + ids.length) + 8L * (latitudes.length + longitudes.length);
+        }
+
+        double areaKm2() {
+            var middleLatitude = Math.toRadians(minLatitude + rows * latitudeStep / 2);
+            return rows * latitudeStep * KM_PER_DEGREE * columns * longitudeStep * KM_PER_DEGREE * Math.cos(middleLatitude);
+        }
+    }
+
+    /**
+     * Point-in-time view of the raster.
+     *
+     * @param cells                Cells of the current raster.
+     * @param lockers              Lockers of the current raster.
+     * @param avgCandidatesPerCell Average number of candidates stored per cell.
+     * @param memoryBytes          Memory used by the raster arrays.
+     * @param areaKm2              Area covered by the raster.
+     * @param bytesPerKm2          Memory used per square kilometer of the covered area.
+     * @param lastRebuildMillis    Duration of the last rebuild.
+     * @param rebuilds             Number of completed rebuilds.
+     * @param outdated             Whether lockers changed since the current raster was built.
+     * @param hits                 Lookups answered by the raster.
+     * @param misses               Lookups outside the raster or while it was missing or outdated.
+     */
+    public record Snapshot(int cells, int lockers, double avgCandidatesPerCell, long memoryBytes, double areaKm2,
+                           double bytesPerKm2, long lastRebuildMillis, long rebuilds, boolean outdated,
+                           long hits, long misses) {
+    }
+
+    /**
+     * Creates the grid. The raster is built in the background on the first lookup.
+     *
+     * @param parcelLockerRepository The repository the raster is built from.
+     * @param cellSizeKm             The edge length of a cell in kilometers.
+     * @param maxCells               The maximum number of cells; larger areas get proportionally larger cells.
+     * @param rebuildDelayMillis     The delay between a change and the rebuild, coalescing changes made meanwhile.
+     * @throws IllegalArgumentException If the cell size or the maximum number of cells is not positive.
+     */
+    public LockerGrid(ParcelLockerRepository parcelLockerRepository,
+                      @Value("${locker.grid.cell-size-km:1}") double cellSizeKm,
+                      @Value("${locker.grid.max-cells:4000000}") int maxCells,
+                      @Value("${locker.grid.rebuild-delay-ms:1000}") long rebuildDelayMillis) {
+        if (cellSizeKm <= 0 || maxCells <= 0) {
+            throw new IllegalArgumentException("Cell size and maximum number of cells must be positive");
+        }
+        this.parcelLockerRepository = parcelLockerRepository;
+        this.cellSizeKm = cellSizeKm;
+        this.maxCells = maxCells;
+        this.rebuildDelayMillis = rebuildDelayMillis;
+    }
+
+    /**
+     * Finds the parcel locker nearest to the given location using the current raster.
+     *
+     * @param latitude  The latitude of the location.
+     * @param longitude The longitude of the location.
+     * @return The nearest locker and its distance, or empty if the location is outside the raster,
+     *         the raster is not built yet or lockers changed since it was built.
+     */
+    public Optional<Neighbor> nearest(double latitude, double longitude) {
+        var current = raster.get();
+        if (current == null || current.version() != changes.get()) {
+            scheduleRebuild(current == null ? 0 : rebuildDelayMillis);
+            misses.increment();
+            return Optional.empty();
+        }
+        var nearest = current.nearest(latitude, longitude);
+        (nearest.isPresent() ? hits : misses).increment();
+        return nearest;
+    }
+
+    /**
+     * Marks the current raster as outdated and schedules a rebuild, e.g. when it returned a deleted locker.
+     */
+    public void invalidate() {
+        changes.incrementAndGet();
+        scheduleRebuild(rebuildDelayMillis);
+    }
+
+    /**
+     * Invalidates the raster when a locker is added, deleted or moved.
+     * Before the first raster is swapped in every change is counted, as it may have been missed by a running build.
+     *
+     * @param event The change event published by the parcel locker repository.
+     */
+    @EventListener
+    public void onParcelLockerChanged(EntityChangedEvent<ParcelLocker> event) {
+        if (event.id() == null) {
+            return;
+        }
+        var current = raster.get();
+        if (current == null) {
+            changes.incrementAndGet();
+            return;
+        }
+        var id = ((Number) event.id()).intValue();
+        var locker = event.entity();
+        var moved = switch (event.changeType()) {
+            case DELETED -> current.isMoved(id, null, null);
+            case SAVED, UPDATED -> locker != null && locker.getLatitude() != null && locker.getLongitude() != null
+                    && current.isMoved(id, locker.getLatitude(), locker.getLongitude());
+        };
+        if (moved) {
+            invalidate();
+        }
+    }
+
+    /**
+     * Builds a new raster from the database and swaps it in.
+     */
+    public void rebuild() {
+        rebuildScheduled.set(false);
+        var version = changes.get();
+        var startNanos = System.nanoTime();
+        var built = build(version);
+        raster.set(built);
+        lastRebuildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        rebuilds.increment();
+        logger.info("Locker grid rebuilt: {} cells, {} lockers, {} bytes in {} ms",
+                built.offsets().length - 1, built.ids().length, built.memoryBytes(), lastRebuildMillis);
+    }
+
+    @Override
+    public String metricsName() {
+        return "nearestLockerGrid";
+    }
+
+    /**
+     * Takes a snapshot of the raster size, memory use and lookup statistics.
+     *
+     * @return The current {@link Snapshot}.
+     */
+    @Override
+    public Snapshot metricsSnapshot() {
+        var current = raster.get();
+        if (current == null) {
+            return new Snapshot(0, 0, 0.0, 0, 0.0, 0.0, lastRebuildMillis, rebuilds.sum(), false, hits.sum(), misses.sum());
+        }
+        var cells = current.offsets().length - 1;
+        var areaKm2 = current.areaKm2();
+        return new Snapshot(
+                cells,
+                current.ids().length,
+                cells == 0 ? 0.0 : (double) current.candidates().length / cells,
+                current.memoryBytes(),
+                areaKm2,
+                areaKm2 == 0 ? 0.0 : current.memoryBytes() / areaKm2,
+                lastRebuildMillis,
+                rebuilds.sum(),
+                current.version() != changes.get(),
+                hits.sum(),
+                misses.sum());
+    }
+
+    /**
+     * Stops the background rebuilds.
+     */
+    @Override
+    public void close() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    private void scheduleRebuild(long delayMillis) {
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            rebuildExecutor.schedule(() -> {
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    logger.error("Locker grid rebuild failed", e);
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private Raster build(long version) {
+        var ids = new ArrayList<Integer>();
+        var latitudeList = new ArrayList<Double>();
+        var longitudeList = new ArrayList<Double>();
+        parcelLockerRepository.streamAll(locker -> {
+            if (locker.getLatitude() != null && locker.getLongitude() != null) {
+                ids.add(locker.getId());
+                latitudeList.add(locker.getLatitude());
+                longitudeList.add(locker.getLongitude());
+            }
+        });
+        var count = ids.size();
+        var lockerIds = new int[count];
+        var latitudes = new double[count];
+        var longitudes = new double[count];
+        var positions = new int[count];
+        var points = new SpherePoint[count];
+        var minLatitude = 90.0;
+        var maxLatitude = -90.0;
+        var minLongitude = 180.0;
+        var maxLongitude = -180.0;
+        for (int i = 0; i < count; i++) {
+            lockerIds[i] = ids.get(i);
+            latitudes[i] = latitudeList.get(i);
+            longitudes[i] = longitudeList.get(i);
+            positions[i] = i;
+            points[i] = SpherePoint.of(latitudes[i], longitudes[i]);
+            minLatitude = Math.min(minLatitude, latitudes[i]);
+            maxLatitude = Math.max(maxLatitude, latitudes[i]);
+            minLongitude = Math.min(minLongitude, longitudes[i]);
+            maxLongitude = Math.max(maxLongitude, longitudes[i]);
+        }
+        if (count == 0) {
+            return new Raster(version, 0, 0, 1, 1, 0, 0, new int[1], new int[0], lockerIds, latitudes, longitudes);
+        }
+
+        var middleLatitude = Math.toRadians((minLatitude + maxLatitude) / 2);
+        var heightKm = (maxLatitude - minLatitude) * KM_PER_DEGREE;
+        var widthKm = (maxLongitude - minLongitude) * KM_PER_DEGREE * Math.cos(middleLatitude);
+        var cellKm = Math.max(cellSizeKm, Math.sqrt((heightKm + 3 * cellSizeKm) * (widthKm + 3 * cellSizeKm) / maxCells));
+        var latitudeStep = cellKm / KM_PER_DEGREE;
+        var longitudeStep = Math.min(360, latitudeStep / Math.max(Math.cos(middleLatitude), 0.01));
+        minLatitude -= latitudeStep;
+        maxLatitude += latitudeStep;
+        minLongitude -= longitudeStep;
+        maxLongitude += longitudeStep;
+        var rows = (int) Math.floor((maxLatitude - minLatitude) / latitudeStep) + 1;
+        var columns = (int) Math.floor((maxLongitude - minLongitude) / longitudeStep) + 1;
+
+        var tree = KdTree.build(positions, points);
+        var offsets = new int[rows * columns + 1];
+        var candidates = new int[Math.max(16, rows * columns)];
+        var size = 0;
+        for (int row = 0; row < rows; row++) {
+            var south = minLatitude + row * latitudeStep;
+            var north = south + latitudeStep;
+            for (int column = 0; column < columns; column++) {
+                var west = minLongitude + column * longitudeStep;
+                var east = west + longitudeStep;
+                var centerLatitude = (south + north) / 2;
+                var centerLongitude = (west + east) / 2;
+                var center = SpherePoint.of(centerLatitude, centerLongitude);
+                var radiusKm = 0.0;
+                for (var corner : new SpherePoint[]{
+                        SpherePoint.of(south, west), SpherePoint.of(south, east),
+                        SpherePoint.of(north, west), SpherePoint.of(north, east)}) {
+                    radiusKm = Math.max(radiusKm, SpherePoint.toKilometers(center.chordDistanceSquared(corner)));
+                }
+
+                var neighbors = tree.nearestFirst(center, position -> true);
+                var boundKm = Double.POSITIVE_INFINITY;
+                var first = true;
+                while (neighbors.hasNext()) {
+                    var neighbor = neighbors.next();
+                    if (first) {
+                        boundKm = neighbor.distanceKm() + 2 * radiusKm;
+                        first = false;
+                    } else if (neighbor.distanceKm() > boundKm) {
+                        break;
+                    }
+                    if (size == candidates.length) {
+                        candidates = Arrays.copyOf(candidates, candidates.length * 2);
+                    }
+                    candidates[size++] = neighbor.id();
+                }
+                offsets[row * columns + column + 1] = size;
+            }
+        }
+
+        return new Raster(version, minLatitude, minLongitude, latitudeStep, longitudeStep, rows, columns,
+                offsets, Arrays.copyOf(candidates, size), lockerIds, latitudes, longitudes);
+    }
+}
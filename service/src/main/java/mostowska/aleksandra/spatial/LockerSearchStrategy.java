@@ -0,0 +1,17 @@
+package mostowska.aleksandra.spatial;
+
+/**
+ * Where nearest locker searches are answered, selected with the {@code locker.search.strategy} property.
+ */
+public enum LockerSearchStrategy {
+
+    /**
+     * Search the {@link LockerSpatialIndex} held in the memory of each application node.
+     */
+    MEMORY,
+
+    /**
+     * Search the spatial index of the {@code parcel_lockers} table, for catalogs too large to hold in memory.
+     */
+    DATABASE
+}
@@ -0,0 +1,309 @@
+package mostowska.aleksandra.spatial;
+
+import com.google.common.collect.Iterators;
+import lombok.RequiredArgsConstructor;
+import mostowska.aleksandra.model.ParcelLocker;
+import mostowska.aleksandra.repository.ParcelLockerRepository;
+import mostowska.aleksandra.repository.event.EntityChangedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-memory spatial index over the coordinates of all parcel lockers.
+ *
+ * <p>The index is loaded from the database on the first query. Afterwards it follows the
+ * {@link EntityChangedEvent}s of parcel lockers: changed lockers are kept in a small pending set
+ * that is scanned next to the {@link KdTree}, and their old tree entries are skipped. Once the pending
+ * set outgrows the square root of the index size, the tree is rebuilt from memory.</p>
+ *
+ * <p>Queries read an immutable snapshot and take no locks. The index stores coordinates only,
+ * so callers load the current locker state by its ID. Components caching query results register
+ * a {@link LocationListener} to learn about lockers whose location changed.</p>
+ */
+@Component
+@RequiredArgsConstructor
+public class LockerSpatialIndex {
+
+    private static final int MIN_PENDING_LIMIT = 64;
+
+    private final ParcelLockerRepository parcelLockerRepository;
+
+    private final Map<Integer, SpherePoint> points = new HashMap<>();
+    private final List<LocationListener> locationListeners = new CopyOnWriteArrayList<>();
+    private volatile Snapshot snapshot;
+
+    /**
+     * Immutable state read by queries.
+     *
+     * @param tree    The tree built on the last rebuild.
+     * @param pending Lockers added or moved since the last rebuild.
+     * @param stale   IDs whose tree entries were moved or deleted since the last rebuild.
+     */
+    private record Snapshot(KdTree tree, Map<Integer, SpherePoint> pending, Set<Integer> stale) {
+    }
+
+    /**
+     * Receives the changes of locker locations applied to the index.
+     */
+    @FunctionalInterface
+    public interface LocationListener {
+
+        /**
+         * Called after the location of a locker changed in the index.
+         *
+         * @param id       The ID of the parcel locker.
+         * @param previous The previous location, or null if the locker was added.
+         * @param current  The current location, or null if the locker was removed.
+         */
+        void onLocationChanged(int id, SpherePoint previous, SpherePoint current);
+
+        /**
+         * Called after all lockers were reloaded from the database, except for the initial load.
+         */
+        default void onReloaded() {
+        }
+    }
+
+    /**
+     * Registers a listener of locker location changes.
+     *
+     * @param listener The listener to be registered.
+     */
+    public void addLocationListener(LocationListener listener) {
+        locationListeners.add(listener);
+    }
+
+    /**
+     * Retrieves the location of a parcel locker held by the index.
+     *
+     * @param id The ID of the parcel locker.
+     * @return The location of the locker, or empty if it is not indexed.
+     */
+    public synchronized Optional<SpherePoint> location(int id) {
+        snapshot();
+        return Optional.ofNullable(points.get(id));
+    }
+
+    /**
+     * Finds the parcel locker nearest to the given location.
+     *
+     * @param latitude  The latitude of the location.
+     * @param longitude The longitude of the location.
+     * @return The nearest locker and its distance, or empty if there are no lockers.
+     */
+    public Optional<Neighbor> nearest(double latitude, double longitude) {
+        return nearest(latitude, longitude, 1).stream().findFirst();
+    }
+
+    /**
+     * Finds the k parcel lockers nearest to the given location.
+     *
+     * @param latitude  The latitude of the location.
+     * @param longitude The longitude of the location.
+     * @param k         The maximum number of lockers to be found.
+     * @return The found lockers ordered by distance, nearest first.
+     */
+    public List<Neighbor> nearest(double latitude, double longitude, int k) {
+        return nearest(snapshot(), SpherePoint.of(latitude, longitude), k);
+    }
+
+    /**
+     * Captures the current state of the index, so that many queries see the same lockers
+     * regardless of changes applied in the meantime.
+     *
+     * @return An immutable view of the index, safe to query from many threads.
+     */
+    public View view() {
+        return new View(snapshot());
+    }
+
+    /**
+     * Immutable view of the index taken by {@link #view()}.
+     */
+    public static final class View {
+
+        private final Snapshot snapshot;
+
+        private View(Snapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        /**
+         * Finds the parcel locker nearest to the given location.
+         *
+         * @param latitude  The latitude of the location.
+         * @param longitude The longitude of the location.
+         * @return The nearest locker and its distance, or empty if there are no lockers.
+         */
+        public Optional<Neighbor> nearest(double latitude, double longitude) {
+            return LockerSpatialIndex.nearest(snapshot, SpherePoint.of(latitude, longitude), 1).stream().findFirst();
+        }
+    }
+
+    private static List<Neighbor> nearest(Snapshot current, SpherePoint query, int k) {
+        var found = current.tree().nearest(query, k, id -> !current.stale().contains(id));
+        if (current.pending().isEmpty()) {
+            return found;
+        }
+
+        var merged = new ArrayList<>(found);
+        current.pending().forEach((id, point) ->
+                merged.add(new Neighbor(id, SpherePoint.toKilometers(point.chordDistanceSquared(query)))));
+        merged.sort(Comparator.comparingDouble(Neighbor::distanceKm));
+        return merged.size() > k ? List.copyOf(merged.subList(0, k)) : merged;
+    }
+
+    /**
+     * Iterates over all parcel lockers in order of increasing distance to the given location.
+     * The iterator works on the snapshot taken when it was created.
+     *
+     * @param latitude  The latitude of the location.
+     * @param longitude The longitude of the location.
+     * @return Iterator over the lockers and their distances, nearest first.
+     */
+    public Iterator<Neighbor> nearestFirst(double latitude, double longitude) {
+        var current = snapshot();
+        var query = SpherePoint.of(latitude, longitude);
+        var fromTree = current.tree().nearestFirst(query, id -> !current.stale().contains(id));
+        if (current.pending().isEmpty()) {
+            return fromTree;
+        }
+
+        var fromPending = current
+                .pending()
+                .entrySet()
+                .stream()
+                .map(entry -> new Neighbor(entry.getKey(), SpherePoint.toKilometers(entry.getValue().chordDistanceSquared(query))))
+                .sorted(Comparator.comparingDouble(Neighbor::distanceKm))
+                .iterator();
+        return Iterators.mergeSorted(List.of(fromTree, fromPending), Comparator.comparingDouble(Neighbor::distanceKm));
+    }
+
+    /**
+     * Applies a change of a parcel locker to the index. Changes arriving before the index
+     * is loaded are ignored, as the load reads the committed state.
+     *
+     * @param event The change event published by the parcel locker repository.
+     */
+    @EventListener
+    public void onParcelLockerChanged(EntityChangedEvent<ParcelLocker> event) {
+        if (event.id() == null) {
+            return;
+        }
+        var id = ((Number) event.id()).intValue();
+        var locker = event.entity();
+        switch (event.changeType()) {
+            case DELETED -> remove(id);
+            case SAVED, UPDATED -> {
+                if (locker != null && locker.getLatitude() != null && locker.getLongitude() != null) {
+                    put(id, SpherePoint.of(locker.getLatitude(), locker.getLongitude()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes a parcel locker from the index, e.g. when its ID no longer exists in the database.
+     *
+     * @param id The ID of the parcel locker.
+     */
+    public synchronized void remove(int id) {
+        SpherePoint previous;
+        if (snapshot == null || (previous = points.remove(id)) == null) {
+            return;
+        }
+        var current = snapshot;
+        var pending = new HashMap<>(current.pending());
+        pending.remove(id);
+        var stale = new HashSet<>(current.stale());
+        stale.add(id);
+        publish(current.tree(), pending, stale);
+        locationListeners.forEach(listener -> listener.onLocationChanged(id, previous, null));
+    }
+
+    /**
+     * Reloads all parcel lockers from the database and rebuilds the tree.
+     */
+    public synchronized void reload() {
+        var loaded = snapshot != null;
+        points.clear();
+        parcelLockerRepository.streamAll(locker -> {
+            if (locker.getLatitude() != null && locker.getLongitude() != null) {
+                points.put(locker.getId(), SpherePoint.of(locker.getLatitude(), locker.getLongitude()));
+            }
+        });
+        rebuild();
+        if (loaded) {
+            locationListeners.forEach(LocationListener::onReloaded);
+        }
+    }
+
+    public synchronized int size() {
+        snapshot();
+        return points.size();
+    }
+
+    private Snapshot snapshot() {
+        var current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                reload();
+            }
+            return snapshot;
+        }
+    }
+
+    private synchronized void put(int id, SpherePoint point) {
+        if (snapshot == null) {
+            return;
+        }
+        var previous = points.put(id, point);
+        if (point.equals(previous)) {
+            return;
+        }
+        var current = snapshot;
+        var pending = new HashMap<>(current.pending());
+        pending.put(id, point);
+        var stale = new HashSet<>(current.stale());
+        stale.add(id);
+        publish(current.tree(), pending, stale);
+        locationListeners.forEach(listener -> listener.onLocationChanged(id, previous, point));
+    }
+
+    /**
+     * Publishes the next snapshot, rebuilding the tree if too many changes are pending.
+     */
+    private void publish(KdTree tree, Map<Integer, SpherePoint> pending, Set<Integer> stale) {
+        var pendingLimit = Math.max(MIN_PENDING_LIMIT, (int) Math.sqrt(points.size()));
+        if (pending.size() + stale.size() > pendingLimit) {
+            rebuild();
+        } else {
+            snapshot = new Snapshot(tree, Map.copyOf(pending), Set.copyOf(stale));
+        }
+    }
+
+    private void rebuild() {
+        var ids = new int[points.size()];
+        var treePoints = new SpherePoint[points.size()];
+        var i = 0;
+        for (var entry : points.entrySet()) {
+            ids[i] = entry.getKey();
+            treePoints[i++] = entry.getValue();
+        }
+        snapshot = new Snapshot(KdTree.build(ids, treePoints), Map.of(), Set.of());
+    }
+}
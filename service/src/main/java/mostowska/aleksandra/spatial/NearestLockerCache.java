@@ -0,0 +1,250 @@
+package mostowska.aleksandra.spatial;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import mostowska.aleksandra.config.metrics.MetricsSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of nearest locker candidates keyed by the geohash cell of the query location.
+ *
+ * <p>For every cell the cache keeps the lockers that can be nearest to some location inside it:
+ * if the locker nearest to the cell center is {@code d} away and every location of the cell lies within
+ * {@code r} of the center, the nearest locker of any location in the cell lies within {@code d + 2r}
+ * of the center. A query then only compares the distances to these few candidates.</p>
+ *
+ * <p>The cache listens to the location changes applied to the {@link LockerSpatialIndex} and drops
+ * the cells which a changed locker was a candidate of or is now close enough to become one.
+ * Entries are also bounded in number and expire after a fixed time.</p>
+ */
+@Component
+public class NearestLockerCache implements MetricsSource {
+
+    /**
+     * The coarsest supported precision, with cells of about 39 km by 20 km.
+     */
+    public static final int MIN_PRECISION = 4;
+
+    private final LockerSpatialIndex lockerSpatialIndex;
+    private final int precision;
+    private final Cache<String, Cell> cells;
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Number of location changes seen so far, guarded by this cache.
+     * A cell computed while it changed may miss the change and is not stored.
+     */
+    private long generation;
+
+    /**
+     * The candidates of a geohash cell.
+     *
+     * @param center  The center of the cell.
+     * @param boundKm The distance from the center within which all candidates lie.
+     * @param ids     The IDs of the candidate lockers.
+     * @param points  The locations of the candidate lockers.
+     */
+    private record Cell(SpherePoint center, double boundKm, int[] ids, SpherePoint[] points) {
+
+        Optional<Neighbor> nearest(SpherePoint query) {
+            var best = -1;
+            var bestDistance = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < points.length; i++) {
+                var distance = points[i].chordDistanceSquared(query);
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    best = i;
+                }
+            }
+            return best < 0
+                    ? Optional.empty()
+                    : Optional.of(new Neighbor(ids[best], SpherePoint.toKilometers(bestDistance)));
+        }
+
+        boolean isAffectedBy(int id, SpherePoint current) {
+            for (var candidate : ids) {
+                if (candidate == id) {
+                    return true;
+                }
+            }
+            return current != null && SpherePoint.toKilometers(center.chordDistanceSquared(current)) <= boundKm;
+        }
+    }
+
+    /**
+     * Point-in-time view of the cache.
+     *
+     * @param hits          Queries answered from a cached cell.
+     * @param misses        Queries which had to compute their cell.
+     * @param hitRate       The ratio of hits to all queries.
+     * @param evictions     Cells dropped because of the size limit or expiry.
+     * @param invalidations Cells dropped because a locker in or near them changed.
+     * @param size          Cells currently cached.
+     */
+    public record Snapshot(long hits, long misses, double hitRate, long evictions, long invalidations, long size) {
+    }
+
+    /**
+     * Creates the cache.
+     *
+     * @param lockerSpatialIndex The index providing the candidates.
+     * @param precision          The geohash precision of the cells, from {@link #MIN_PRECISION} to {@link GeoHash#MAX_PRECISION}.
+     * @param maximumSize        The maximum number of cached cells.
+     * @param ttlSeconds         The time after which a cached cell expires.
+     * @throws IllegalArgumentException If the precision is out of range.
+     */
+    public NearestLockerCache(LockerSpatialIndex lockerSpatialIndex,
+                              @Value("${locker.nearest-cache.precision:6}") int precision,
+                              @Value("${locker.nearest-cache.maximum-size:10000}") long maximumSize,
+                              @Value("${locker.nearest-cache.ttl-seconds:300}") long ttlSeconds) {
+        if (precision < MIN_PRECISION || precision > GeoHash.MAX_PRECISION) {
+            throw new IllegalArgumentException(
+                    "Cache precision must be between " + MIN_PRECISION + " and " + GeoHash.MAX_PRECISION);
+        }
+        this.lockerSpatialIndex = lockerSpatialIndex;
+        this.precision = precision;
+        this.cells = CacheBuilder
+                .newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        lockerSpatialIndex.addLocationListener(new LockerSpatialIndex.LocationListener() {
+            @Override
+            public void onLocationChanged(int id, SpherePoint previous, SpherePoint current) {
+                invalidate(id, current);
+            }
+
+            @Override
+            public void onReloaded() {
+                invalidateAll();
+            }
+        });
+    }
+
+    /**
+     * Finds the parcel locker nearest to the given location.
+     *
+     * @param latitude  The latitude of the location.
+     * @param longitude The longitude of the location.
+     * @return The nearest locker and its distance, or empty if there are no lockers.
+     */
+    public Optional<Neighbor> nearest(double latitude, double longitude) {
+        var hash = GeoHash.encode(latitude, longitude, precision);
+        var cell = cells.getIfPresent(hash);
+        if (cell == null) {
+            cell = load(hash);
+        }
+        return cell.nearest(SpherePoint.of(latitude, longitude));
+    }
+
+    /**
+     * Drops all cached cells.
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        invalidations.add(cells.size());
+        cells.invalidateAll();
+    }
+
+    @Override
+    public String metricsName() {
+        return "nearestLockerCache";
+    }
+
+    /**
+     * Takes a snapshot of the cache statistics.
+     *
+     * @return The current {@link Snapshot}.
+     */
+    @Override
+    public Snapshot metricsSnapshot() {
+        var stats = cells.stats();
+        return new Snapshot(
+                stats.hitCount(),
+                stats.missCount(),
+                stats.hitRate(),
+                stats.evictionCount(),
+                invalidations.sum(),
+                cells.size());
+    }
+
+    /**
+     * Drops the cells whose candidates may change because a locker was added, moved or removed.
+     *
+     * @param id      The ID of the changed locker.
+     * @param current The current location of the locker, or null if it was removed.
+     */
+    private synchronized void invalidate(int id, SpherePoint current) {
+        generation++;
+        var iterator = cells.asMap().values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isAffectedBy(id, current)) {
+                iterator.remove();
+                invalidations.increment();
+            }
+        }
+    }
+
+    /**
+     * Computes the candidates of a cell and stores them unless a locker changed in the meantime.
+     *
+     * @param hash The geohash of the cell.
+     * @return The computed cell.
+     */
+    private Cell load(String hash) {
+        long startGeneration;
+        synchronized (this) {
+            startGeneration = generation;
+        }
+
+        var box = GeoHash.decode(hash);
+        var centerLatitude = (box.minLatitude() + box.maxLatitude()) / 2;
+        var centerLongitude = (box.minLongitude() + box.maxLongitude()) / 2;
+        var center = SpherePoint.of(centerLatitude, centerLongitude);
+        var radiusKm = 0.0;
+        for (var corner : new SpherePoint[]{
+                SpherePoint.of(box.minLatitude(), box.minLongitude()),
+                SpherePoint.of(box.minLatitude(), box.maxLongitude()),
+                SpherePoint.of(box.maxLatitude(), box.minLongitude()),
+                SpherePoint.of(box.maxLatitude(), box.maxLongitude())}) {
+            radiusKm = Math.max(radiusKm, SpherePoint.toKilometers(center.chordDistanceSquared(corner)));
+        }
+
+        var ids = new ArrayList<Integer>();
+        var points = new ArrayList<SpherePoint>();
+        var boundKm = Double.POSITIVE_INFINITY;
+        var neighbors = lockerSpatialIndex.nearestFirst(centerLatitude, centerLongitude);
+        while (neighbors.hasNext()) {
+            var neighbor = neighbors.next();
+            if (ids.isEmpty()) {
+                boundKm = neighbor.distanceKm() + 2 * radiusKm;
+            } else if (neighbor.distanceKm() > boundKm) {
+                break;
+            }
+            var point = lockerSpatialIndex.location(neighbor.id());
+            if (point.isPresent()) {
+                ids.add(neighbor.id());
+                points.add(point.get());
+            }
+        }
+
+        var cell = new Cell(
+                center,
+                boundKm,
+                ids.stream().mapToInt(Integer::intValue).toArray(),
+                points.toArray(SpherePoint[]::new));
+        synchronized (this) {
+            if (generation == startGeneration) {
+                cells.put(hash, cell);
+            }
+        }
+        return cell;
+    }
+}
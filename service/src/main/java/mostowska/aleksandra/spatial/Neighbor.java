@@ -0,0 +1,10 @@
+package mostowska.aleksandra.spatial;
+
+/**
+ * A result of a nearest neighbour query.
+ *
+ * @param id         The ID of the found parcel locker.
+ * @param distanceKm The great-circle distance to the query point in kilometers.
+ */
+public record Neighbor(int id, double distanceKm) {
+}
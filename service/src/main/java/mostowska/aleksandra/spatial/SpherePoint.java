@@ -0,0 +1,71 @@
+package mostowska.aleksandra.spatial;
+
+/**
+ * Geographic coordinates projected onto the unit sphere.
+ *
+ * <p>The straight-line (chord) distance between two points on the unit sphere grows monotonically
+ * with their great-circle distance, so nearest neighbour queries can use plain euclidean geometry
+ * without trigonometry and without special cases at the poles or the antimeridian.</p>
+ *
+ * @param x The x coordinate, towards latitude 0 and longitude 0.
+ * @param y The y coordinate, towards latitude 0 and longitude 90.
+ * @param z The z coordinate, towards the north pole.
+ */
+public record SpherePoint(double x, double y, double z) {
+
+    /**
+     * Mean radius of the Earth in kilometers, as used by {@link mostowska.aleksandra.DistanceCalculator}.
+     */
+    public static final double EARTH_RADIUS_KM = 6371;
+
+    /**
+     * Projects the given coordinates onto the unit sphere.
+     *
+     * @param latitude  The latitude in degrees.
+     * @param longitude The longitude in degrees.
+     * @return The point on the unit sphere.
+     */
+    public static SpherePoint of(double latitude, double longitude) {
+        var lat = Math.toRadians(latitude);
+        var lon = Math.toRadians(longitude);
+        var cosLat = Math.cos(lat);
+        return new SpherePoint(cosLat * Math.cos(lon), cosLat * Math.sin(lon), Math.sin(lat));
+    }
+
+    /**
+     * Retrieves a coordinate by its axis index.
+     *
+     * @param axis 0 for x, 1 for y, 2 for z.
+     * @return The coordinate value.
+     */
+    public double coordinate(int axis) {
+        return switch (axis) {
+            case 0 -> x;
+            case 1 -> y;
+            default -> z;
+        };
+    }
+
+    /**
+     * Calculates the squared chord distance to another point on the unit sphere.
+     *
+     * @param other The other point.
+     * @return The squared chord distance.
+     */
+    public double chordDistanceSquared(SpherePoint other) {
+        var dx = x - other.x;
+        var dy = y - other.y;
+        var dz = z - other.z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Converts a squared chord distance on the unit sphere to the great-circle distance on the Earth.
+     *
+     * @param chordSquared The squared chord distance.
+     * @return The distance in kilometers.
+     */
+    public static double toKilometers(double chordSquared) {
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(chordSquared) / 2));
+    }
+}
@@ -0,0 +1,124 @@
+package mostowska.aleksandra.benchmark;
+
+import mostowska.aleksandra.model.ParcelLocker;
+import mostowska.aleksandra.repository.ParcelLockerRepository;
+import mostowska.aleksandra.spatial.LockerGrid;
+import mostowska.aleksandra.spatial.LockerSpatialIndex;
+import mostowska.aleksandra.spatial.NearestLockerCache;
+import mostowska.aleksandra.spatial.Neighbor;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Compares the linear scan previously used by {@code findNearestLocker} with the {@link LockerSpatialIndex}.
+ * Lockers are spread uniformly over Poland; the scan runs over lockers already in memory,
+ * so the cost of {@code findAll()} is not included. The {@link NearestLockerCache} is measured with
+ * the query locations repeating, so after the first pass all of their geohash cells are cached.
+ * The {@link LockerGrid} is built with 1 km cells; its size and build time are printed on setup.
+ *
+ * <p>Run from the project root with:
+ * {@code mvn -pl service -am test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt -Dmdep.includeScope=test}
+ * and then {@code java -cp service/target/test-classes:service/target/classes:persistence/target/classes:$(cat cp.txt)
+ * mostowska.aleksandra.benchmark.NearestLockerBenchmark}</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NearestLockerBenchmark {
+
+    private static final int QUERIES = 1024;
+
+    @Param({"1000", "100000"})
+    private int lockers;
+
+    private List<ParcelLocker> parcelLockers;
+    private LockerSpatialIndex lockerSpatialIndex;
+    private NearestLockerCache nearestLockerCache;
+    private LockerGrid lockerGrid;
+    private double[] latitudes;
+    private double[] longitudes;
+    private int query;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        var random = new Random(42);
+        parcelLockers = IntStream
+                .range(0, lockers)
+                .mapToObj(i -> new ParcelLocker(i + 1, "Locker " + i,
+                        random.nextDouble(49.0, 55.0), random.nextDouble(14.0, 24.0), 20L, 10L))
+                .toList();
+
+        var parcelLockerRepository = mock(ParcelLockerRepository.class);
+        doAnswer(invocation -> {
+            parcelLockers.forEach(invocation.<Consumer<ParcelLocker>>getArgument(0));
+            return null;
+        }).when(parcelLockerRepository).streamAll(any(Consumer.class));
+        lockerSpatialIndex = new LockerSpatialIndex(parcelLockerRepository);
+        lockerSpatialIndex.reload();
+        nearestLockerCache = new NearestLockerCache(lockerSpatialIndex, 6, 10_000, 300);
+        lockerGrid = new LockerGrid(parcelLockerRepository, 1, 4_000_000, 1000);
+        lockerGrid.rebuild();
+
+        latitudes = random.doubles(QUERIES, 49.0, 55.0).toArray();
+        longitudes = random.doubles(QUERIES, 14.0, 24.0).toArray();
+    }
+
+    @Benchmark
+    public Optional<ParcelLocker> scan() {
+        var i = query++ & (QUERIES - 1);
+        return parcelLockers
+                .stream()
+                .min(Comparator.comparingDouble(l -> l.getLockersDistance(latitudes[i], longitudes[i])));
+    }
+
+    @Benchmark
+    public Optional<Neighbor> spatialIndex() {
+        var i = query++ & (QUERIES - 1);
+        return lockerSpatialIndex.nearest(latitudes[i], longitudes[i]);
+    }
+
+    @Benchmark
+    public List<Neighbor> spatialIndexTop10() {
+        var i = query++ & (QUERIES - 1);
+        return lockerSpatialIndex.nearest(latitudes[i], longitudes[i], 10);
+    }
+
+    @Benchmark
+    public Optional<Neighbor> nearestLockerCache() {
+        var i = query++ & (QUERIES - 1);
+        return nearestLockerCache.nearest(latitudes[i], longitudes[i]);
+    }
+
+    @Benchmark
+    public Optional<Neighbor> lockerGrid() {
+        var i = query++ & (QUERIES - 1);
+        return lockerGrid.nearest(latitudes[i], longitudes[i]);
+    }
+
+    @TearDown
+    public void tearDown() {
+        lockerGrid.close();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(NearestLockerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
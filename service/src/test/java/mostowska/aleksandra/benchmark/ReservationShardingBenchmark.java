@@ -0,0 +1,117 @@
+package mostowska.aleksandra.benchmark;
+
+import mostowska.aleksandra.concurrent.LockerShardExecutor;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+
+/**
+ * Compares reservations claimed with {@code for update skip locked} with reservations serialized per locker
+ * by the {@link LockerShardExecutor}.
+ *
+ * <p>The database is modelled by a connection pool of {@value #POOL_SIZE} connections and a reservation
+ * transaction taking {@value #TRANSACTION_MICROS} us. Every locker has {@value #PARCELS_PER_LOCKER} parcel rows.
+ * With skip locked a request takes a connection, then locks the first parcel row of its locker not locked
+ * by another transaction and holds it until the transaction ends, as
+ * {@code ParcelRepository.claimAvailableParcel} does; the locker row itself is not written, so claims on one
+ * locker run in parallel. With shards a request waits in the mailbox of its locker's shard and takes
+ * a connection only when its turn comes. A share of the requests, {@code hotShare}, goes to a single hot
+ * locker; the others are spread over {@value #LOCKERS} lockers.</p>
+ *
+ * <p>Run from the project root with:
+ * {@code mvn -pl service -am test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt -Dmdep.includeScope=test}
+ * and then {@code java -cp service/target/test-classes:service/target/classes:persistence/target/classes:$(cat cp.txt)
+ * mostowska.aleksandra.benchmark.ReservationShardingBenchmark}</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(64)
+@Fork(1)
+public class ReservationShardingBenchmark {
+
+    private static final int LOCKERS = 1000;
+    private static final int POOL_SIZE = 10;
+    private static final int SHARDS = POOL_SIZE - LockerShardExecutor.RESERVED_CONNECTIONS;
+    private static final long TRANSACTION_MICROS = 200;
+    private static final int PARCELS_PER_LOCKER = 16;
+
+    @Param({"0.0", "0.5"})
+    private double hotShare;
+
+    private Semaphore connectionPool;
+    private ReentrantLock[][] parcelRowLocks;
+    private LockerShardExecutor lockerShardExecutor;
+
+    @Setup
+    public void setUp() {
+        connectionPool = new Semaphore(POOL_SIZE);
+        parcelRowLocks = IntStream
+                .range(0, LOCKERS)
+                .mapToObj(i -> IntStream.range(0, PARCELS_PER_LOCKER).mapToObj(j -> new ReentrantLock()).toArray(ReentrantLock[]::new))
+                .toArray(ReentrantLock[][]::new);
+        lockerShardExecutor = new LockerShardExecutor(SHARDS, 10_000);
+    }
+
+    @Benchmark
+    public int skipLocked() {
+        var parcelLockerId = nextLockerId();
+        connectionPool.acquireUninterruptibly();
+        try {
+            for (var parcelRowLock : parcelRowLocks[parcelLockerId]) {
+                if (parcelRowLock.tryLock()) {
+                    try {
+                        return transaction(parcelLockerId);
+                    } finally {
+                        parcelRowLock.unlock();
+                    }
+                }
+            }
+            return -1;
+        } finally {
+            connectionPool.release();
+        }
+    }
+
+    @Benchmark
+    public int shards() {
+        var parcelLockerId = nextLockerId();
+        return lockerShardExecutor.execute(parcelLockerId, () -> {
+            connectionPool.acquireUninterruptibly();
+            try {
+                return transaction(parcelLockerId);
+            } finally {
+                connectionPool.release();
+            }
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        lockerShardExecutor.close();
+    }
+
+    private int nextLockerId() {
+        var random = ThreadLocalRandom.current();
+        return random.nextDouble() < hotShare ? 0 : random.nextInt(LOCKERS);
+    }
+
+    private static int transaction(int parcelLockerId) {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(TRANSACTION_MICROS));
+        return parcelLockerId;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ReservationShardingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
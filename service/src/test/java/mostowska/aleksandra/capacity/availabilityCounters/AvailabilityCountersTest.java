@@ -0,0 +1,172 @@
+package mostowska.aleksandra.capacity.availabilityCounters;
+
+import mostowska.aleksandra.capacity.AvailabilityCounters;
+import mostowska.aleksandra.model.ParcelLocker;
+import mostowska.aleksandra.repository.ParcelLockerRepository;
+import mostowska.aleksandra.repository.ParcelRepository;
+import mostowska.aleksandra.repository.event.EntityChangedEvent;
+import mostowska.aleksandra.repository.event.EntityChangedEvent.ChangeType;
+import mostowska.aleksandra.repository.generic.Page;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+public class AvailabilityCountersTest {
+
+    @Mock
+    private ParcelLockerRepository parcelLockerRepository;
+
+    @Mock
+    private ParcelRepository parcelRepository;
+
+    private AvailabilityCounters availabilityCounters;
+
+    private final ParcelLocker lockerA = new ParcelLocker(1, "Locker A", 52.0, 21.0, 10L, 5L);
+    private final ParcelLocker lockerB = new ParcelLocker(2, "Locker B", 52.1, 21.1, 10L, 10L);
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        doAnswer(invocation -> {
+            List.of(lockerA, lockerB).forEach(invocation.<Consumer<ParcelLocker>>getArgument(0));
+            return null;
+        }).when(parcelLockerRepository).streamAll(any(Consumer.class));
+        availabilityCounters = new AvailabilityCounters(parcelLockerRepository, parcelRepository, 60_000, 60_000, 1);
+        availabilityCounters.reload();
+    }
+
+    @AfterEach
+    void tearDown() {
+        availabilityCounters.close();
+    }
+
+    @Test
+    @DisplayName("When reservations change the counters reads see the change before it is written")
+    void testReadsFollowChanges() {
+        availabilityCounters.add(1, -1);
+        availabilityCounters.add(1, -1);
+
+        assertEquals(Optional.of(3L), availabilityCounters.available(1));
+        assertEquals(3L, availabilityCounters.withCurrentAvailability(lockerA).getAvailableLockers());
+        var page = availabilityCounters.withCurrentAvailability(new Page<>(List.of(lockerA, lockerB), null));
+        assertEquals(List.of(3L, 10L), page.items().stream().map(ParcelLocker::getAvailableLockers).toList());
+    }
+
+    @Test
+    @DisplayName("When the counters are flushed only pending changes are written, once")
+    void testFlush() {
+        availabilityCounters.add(1, -2);
+        availabilityCounters.add(2, 1);
+        availabilityCounters.add(2, -1);
+
+        availabilityCounters.flush();
+        availabilityCounters.flush();
+
+        verify(parcelLockerRepository, times(1)).addAvailable(Map.of(1, -2L));
+        assertEquals(Optional.of(3L), availabilityCounters.available(1));
+        var snapshot = availabilityCounters.metricsSnapshot();
+        assertEquals(1, snapshot.flushes());
+        assertEquals(0, snapshot.pendingLockers());
+    }
+
+    @Test
+    @DisplayName("When the counters are flushed reads see the same count while the changes are written")
+    void testReadsDuringFlush() {
+        availabilityCounters.add(1, -2);
+        doAnswer(invocation -> {
+            assertEquals(Optional.of(3L), availabilityCounters.available(1));
+            return null;
+        }).when(parcelLockerRepository).addAvailable(Map.of(1, -2L));
+
+        availabilityCounters.flush();
+
+        assertEquals(Optional.of(3L), availabilityCounters.available(1));
+        assertEquals(0, availabilityCounters.metricsSnapshot().pendingLockers());
+    }
+
+    @Test
+    @DisplayName("When a flush fails the changes stay pending for the next flush")
+    void testFlushFailure() {
+        availabilityCounters.add(1, -1);
+        doThrow(new IllegalStateException("Connection lost")).doNothing()
+                .when(parcelLockerRepository).addAvailable(Map.of(1, -1L));
+
+        availabilityCounters.flush();
+        assertEquals(1, availabilityCounters.metricsSnapshot().pendingLockers());
+        availabilityCounters.flush();
+
+        verify(parcelLockerRepository, times(2)).addAvailable(Map.of(1, -1L));
+        var snapshot = availabilityCounters.metricsSnapshot();
+        assertEquals(1, snapshot.flushFailures());
+        assertEquals(0, snapshot.pendingLockers());
+        assertEquals(Optional.of(4L), availabilityCounters.available(1));
+    }
+
+    @Test
+    @DisplayName("When a drift persists over two reconciliations it is corrected and alarmed")
+    void testReconcile() {
+        when(parcelRepository.countAvailableByParcelLockerId()).thenReturn(Map.of(1, 2L, 2, 10L));
+
+        availabilityCounters.reconcile();
+        assertEquals(Optional.of(5L), availabilityCounters.available(1));
+        availabilityCounters.reconcile();
+
+        verify(parcelLockerRepository, times(1)).addAvailable(Map.of(1, -3L));
+        assertEquals(Optional.of(2L), availabilityCounters.available(1));
+        var snapshot = availabilityCounters.metricsSnapshot();
+        assertEquals(2, snapshot.reconciliations());
+        assertEquals(1, snapshot.corrections());
+        assertEquals(2, snapshot.driftAlarms());
+    }
+
+    @Test
+    @DisplayName("When a locker is unknown it is loaded from the repository")
+    void testUnknownLocker() {
+        when(parcelLockerRepository.findById(3L)).thenReturn(Optional.of(new ParcelLocker(3, "Locker C", 50.0, 20.0, 4L, 4L)));
+        when(parcelLockerRepository.findById(4L)).thenReturn(Optional.empty());
+
+        assertEquals(Optional.of(4L), availabilityCounters.available(3));
+        assertEquals(Optional.of(4L), availabilityCounters.available(3));
+        assertEquals(Optional.empty(), availabilityCounters.available(4));
+        verify(parcelLockerRepository, times(1)).findById(3L);
+    }
+
+    @Test
+    @DisplayName("When a locker is updated with an explicit count the counter follows it and keeps pending changes")
+    void testEvents() {
+        availabilityCounters.add(1, -1);
+        availabilityCounters.onParcelLockerChanged(new EntityChangedEvent<>(ParcelLocker.class, 1, lockerA.withAvailableLockers(8L), ChangeType.UPDATED));
+        availabilityCounters.onParcelLockerChanged(new EntityChangedEvent<>(ParcelLocker.class, 2, ParcelLocker.builder().id(2).build(), ChangeType.UPDATED));
+
+        assertEquals(Optional.of(7L), availabilityCounters.available(1));
+        assertEquals(Optional.of(10L), availabilityCounters.available(2));
+        availabilityCounters.flush();
+        verify(parcelLockerRepository).addAvailable(Map.of(1, -1L));
+    }
+
+    @Test
+    @DisplayName("When a locker is read back after a partial update its count is ignored")
+    void testReadBackEvents() {
+        availabilityCounters.add(2, -1);
+        availabilityCounters.onParcelLockerChanged(new EntityChangedEvent<>(ParcelLocker.class, 2, lockerB, ChangeType.UPDATED, true));
+
+        assertEquals(Optional.of(9L), availabilityCounters.available(2));
+    }
+}
@@ -0,0 +1,100 @@
+package mostowska.aleksandra.capacity.lockerCapacitySummary;
+
+import mostowska.aleksandra.capacity.LockerCapacitySummary;
+import mostowska.aleksandra.capacity.LockerCapacitySummary.SlotSize;
+import mostowska.aleksandra.model.Parcel;
+import mostowska.aleksandra.model.utils.PackageDimensions;
+import mostowska.aleksandra.model.utils.ParcelStatus;
+import mostowska.aleksandra.repository.ParcelRepository;
+import mostowska.aleksandra.repository.event.EntityChangedEvent;
+import mostowska.aleksandra.repository.event.EntityChangedEvent.ChangeType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+public class LockerCapacitySummaryTest {
+
+    @Mock
+    private ParcelRepository parcelRepository;
+
+    @InjectMocks
+    private LockerCapacitySummary lockerCapacitySummary;
+
+    private final PackageDimensions smallPackage = new PackageDimensions(10.0, 10.0, 10.0);
+    private final PackageDimensions largePackage = new PackageDimensions(40.0, 40.0, 40.0);
+
+    private final Parcel small = new Parcel(1, 1, 1L, ParcelStatus.AVAILABLE, 20.0, 20.0, 20.0);
+    private final Parcel large = new Parcel(2, 1, 2L, ParcelStatus.AVAILABLE, 50.0, 50.0, 50.0);
+    private final Parcel reserved = new Parcel(3, 2, 1L, ParcelStatus.RESERVED, 50.0, 50.0, 50.0);
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        doAnswer(invocation -> {
+            List.of(small, large, reserved).forEach(invocation.<Consumer<Parcel>>getArgument(0));
+            return null;
+        }).when(parcelRepository).streamAll(any(Consumer.class));
+    }
+
+    private static EntityChangedEvent<Parcel> event(int id, Parcel parcel, ChangeType changeType) {
+        return new EntityChangedEvent<>(Parcel.class, id, parcel, changeType);
+    }
+
+    @Test
+    @DisplayName("When the summary is loaded only available parcels are counted")
+    void testLoad() {
+        assertTrue(lockerCapacitySummary.hasFittingSlot(1, largePackage));
+        assertFalse(lockerCapacitySummary.hasFittingSlot(2, smallPackage));
+        assertEquals(
+                Map.of(new SlotSize(20.0, 20.0, 20.0), 1, new SlotSize(50.0, 50.0, 50.0), 1),
+                lockerCapacitySummary.availableSlots(1));
+        verify(parcelRepository, times(1)).streamAll(any(Consumer.class));
+    }
+
+    @Test
+    @DisplayName("When parcels are claimed and released the summary follows the events")
+    void testEvents() {
+        lockerCapacitySummary.hasFittingSlot(1, smallPackage);
+
+        lockerCapacitySummary.onParcelChanged(event(2, large.withStatus(ParcelStatus.RESERVED), ChangeType.UPDATED));
+        assertFalse(lockerCapacitySummary.hasFittingSlot(1, largePackage));
+        assertTrue(lockerCapacitySummary.hasFittingSlot(1, smallPackage));
+
+        lockerCapacitySummary.onParcelChanged(event(3, reserved.withStatus(ParcelStatus.AVAILABLE), ChangeType.UPDATED));
+        assertTrue(lockerCapacitySummary.hasFittingSlot(2, largePackage));
+
+        lockerCapacitySummary.onParcelChanged(event(1, small, ChangeType.DELETED));
+        assertFalse(lockerCapacitySummary.hasFittingSlot(1, smallPackage));
+        assertEquals(Map.of(), lockerCapacitySummary.availableSlots(1));
+    }
+
+    @Test
+    @DisplayName("When a parcel is partially updated it is loaded from the repository")
+    void testPartialUpdate() {
+        lockerCapacitySummary.hasFittingSlot(1, smallPackage);
+        var partial = new Parcel();
+        partial.setStatus(ParcelStatus.OCCUPIED);
+        when(parcelRepository.findById(1L)).thenReturn(Optional.of(small.withStatus(ParcelStatus.OCCUPIED)));
+
+        lockerCapacitySummary.onParcelChanged(event(1, partial, ChangeType.UPDATED));
+
+        assertEquals(Map.of(new SlotSize(50.0, 50.0, 50.0), 1), lockerCapacitySummary.availableSlots(1));
+    }
+}
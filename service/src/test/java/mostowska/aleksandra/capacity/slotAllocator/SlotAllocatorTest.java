@@ -0,0 +1,121 @@
+package mostowska.aleksandra.capacity.slotAllocator;
+
+import mostowska.aleksandra.capacity.SlotAllocator;
+import mostowska.aleksandra.model.Parcel;
+import mostowska.aleksandra.model.utils.PackageDimensions;
+import mostowska.aleksandra.model.utils.ParcelStatus;
+import mostowska.aleksandra.repository.ParcelRepository;
+import mostowska.aleksandra.repository.event.EntityChangedEvent;
+import mostowska.aleksandra.repository.event.EntityChangedEvent.ChangeType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+public class SlotAllocatorTest {
+
+    @Mock
+    private ParcelRepository parcelRepository;
+
+    @InjectMocks
+    private SlotAllocator slotAllocator;
+
+    private final PackageDimensions smallPackage = new PackageDimensions(10.0, 10.0, 10.0);
+    private final PackageDimensions flatPackage = new PackageDimensions(60.0, 10.0, 5.0);
+
+    private final Parcel large = new Parcel(1, 1, 1L, ParcelStatus.AVAILABLE, 50.0, 50.0, 50.0);
+    private final Parcel small = new Parcel(2, 1, 2L, ParcelStatus.AVAILABLE, 20.0, 20.0, 20.0);
+    private final Parcel flat = new Parcel(3, 1, 3L, ParcelStatus.AVAILABLE, 60.0, 30.0, 10.0);
+    private final Parcel reserved = new Parcel(4, 1, 4L, ParcelStatus.RESERVED, 10.0, 10.0, 10.0);
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        doAnswer(invocation -> {
+            List.of(large, small, flat, reserved).forEach(invocation.<Consumer<Parcel>>getArgument(0));
+            return null;
+        }).when(parcelRepository).streamAll(any(Consumer.class));
+    }
+
+    private static EntityChangedEvent<Parcel> event(int id, Parcel parcel, ChangeType changeType) {
+        return new EntityChangedEvent<>(Parcel.class, id, parcel, changeType);
+    }
+
+    @Test
+    @DisplayName("When slots are allocated the smallest fitting slot is claimed first")
+    void testBestFit() {
+        when(parcelRepository.claimParcel(any(Parcel.class))).thenReturn(true);
+
+        assertEquals(Optional.of(small.withStatus(ParcelStatus.RESERVED)), slotAllocator.allocate(1, smallPackage));
+        assertEquals(Optional.of(flat.withStatus(ParcelStatus.RESERVED)), slotAllocator.allocate(1, smallPackage));
+        assertEquals(Optional.of(large.withStatus(ParcelStatus.RESERVED)), slotAllocator.allocate(1, smallPackage));
+        verify(parcelRepository, times(3)).claimParcel(any(Parcel.class));
+
+        var snapshot = slotAllocator.metricsSnapshot();
+        assertEquals(3, snapshot.allocations());
+        assertEquals(0, snapshot.availableSlots());
+        assertEquals(0, snapshot.fallbacks());
+    }
+
+    @Test
+    @DisplayName("When a larger slot does not fit in every dimension it is skipped")
+    void testSkipNonFitting() {
+        when(parcelRepository.claimParcel(flat)).thenReturn(true);
+
+        assertEquals(Optional.of(flat.withStatus(ParcelStatus.RESERVED)), slotAllocator.allocate(1, flatPackage));
+        assertEquals(2, slotAllocator.metricsSnapshot().availableSlots());
+    }
+
+    @Test
+    @DisplayName("When the chosen slot is already taken in the database the next one is tried")
+    void testStaleEntry() {
+        when(parcelRepository.claimParcel(small)).thenReturn(false);
+        when(parcelRepository.claimParcel(flat)).thenReturn(true);
+
+        assertEquals(Optional.of(flat.withStatus(ParcelStatus.RESERVED)), slotAllocator.allocate(1, smallPackage));
+
+        var snapshot = slotAllocator.metricsSnapshot();
+        assertEquals(1, snapshot.staleEntries());
+        assertEquals(1.0, snapshot.staleRate());
+        assertEquals(1, snapshot.availableSlots());
+    }
+
+    @Test
+    @DisplayName("When no slot is found in memory the database is queried")
+    void testFallback() {
+        when(parcelRepository.claimAvailableParcel(2, smallPackage)).thenReturn(Optional.empty());
+
+        assertEquals(Optional.empty(), slotAllocator.allocate(2, smallPackage));
+        verify(parcelRepository, never()).claimParcel(any(Parcel.class));
+        assertEquals(1, slotAllocator.metricsSnapshot().fallbacks());
+    }
+
+    @Test
+    @DisplayName("When parcels change status the allocator follows the events")
+    void testEvents() {
+        slotAllocator.reload();
+
+        slotAllocator.onParcelChanged(event(2, small.withStatus(ParcelStatus.OCCUPIED), ChangeType.UPDATED));
+        slotAllocator.onParcelChanged(event(3, flat, ChangeType.DELETED));
+        slotAllocator.onParcelChanged(event(4, reserved.withStatus(ParcelStatus.AVAILABLE), ChangeType.UPDATED));
+
+        when(parcelRepository.claimParcel(reserved.withStatus(ParcelStatus.AVAILABLE))).thenReturn(true);
+        assertEquals(Optional.of(reserved), slotAllocator.allocate(1, smallPackage));
+        assertEquals(1, slotAllocator.metricsSnapshot().availableSlots());
+    }
+}
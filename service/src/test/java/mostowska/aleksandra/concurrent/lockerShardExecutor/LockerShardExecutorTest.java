@@ -0,0 +1,112 @@
+package mostowska.aleksandra.concurrent.lockerShardExecutor;
+
+import mostowska.aleksandra.concurrent.LockerShardExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LockerShardExecutorTest {
+
+    private LockerShardExecutor lockerShardExecutor;
+
+    @AfterEach
+    void tearDown() {
+        lockerShardExecutor.close();
+    }
+
+    @Test
+    @DisplayName("When work of one locker is submitted concurrently it runs one task at a time")
+    void testSerializedPerLocker() {
+        lockerShardExecutor = new LockerShardExecutor(4, 1000);
+        var running = new AtomicInteger();
+        var maxRunning = new AtomicInteger();
+
+        try (var callers = Executors.newFixedThreadPool(8)) {
+            var futures = IntStream
+                    .range(0, 200)
+                    .mapToObj(i -> CompletableFuture.runAsync(() -> lockerShardExecutor.execute(5, () -> {
+                        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        Thread.onSpinWait();
+                        return running.decrementAndGet();
+                    }), callers))
+                    .toArray(CompletableFuture[]::new);
+            CompletableFuture.allOf(futures).join();
+        }
+
+        assertEquals(1, maxRunning.get());
+        assertEquals(200, lockerShardExecutor.metricsSnapshot().completed());
+    }
+
+    @Test
+    @DisplayName("When work fails its exception is rethrown to the caller")
+    void testException() {
+        lockerShardExecutor = new LockerShardExecutor(2, 10);
+
+        var thrown = assertThrows(IllegalStateException.class, () -> lockerShardExecutor.execute(1, () -> {
+            throw new IllegalStateException("No matching parcel found");
+        }));
+        assertEquals("No matching parcel found", thrown.getMessage());
+    }
+
+    @Test
+    @DisplayName("When the shards need more connections than the pool can spare the configuration is rejected")
+    void testPoolSize() {
+        lockerShardExecutor = new LockerShardExecutor(6, 10);
+
+        lockerShardExecutor.checkPoolSize(6 + LockerShardExecutor.RESERVED_CONNECTIONS);
+        assertThrows(IllegalArgumentException.class, () -> lockerShardExecutor.checkPoolSize(9));
+    }
+
+    @Test
+    @DisplayName("When work is submitted from its own shard it runs directly")
+    void testNested() {
+        lockerShardExecutor = new LockerShardExecutor(2, 1);
+
+        assertEquals(3, lockerShardExecutor.execute(1, () -> lockerShardExecutor.execute(3, () -> 3)));
+    }
+
+    @Test
+    @DisplayName("When the mailbox of a shard is full further work is rejected")
+    void testMailboxFull() throws InterruptedException {
+        lockerShardExecutor = new LockerShardExecutor(1, 1);
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+
+        try (var callers = Executors.newFixedThreadPool(2)) {
+            var blocking = CompletableFuture.supplyAsync(() -> lockerShardExecutor.execute(1, () -> {
+                started.countDown();
+                try {
+                    return release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }), callers);
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            var queued = CompletableFuture.supplyAsync(() -> lockerShardExecutor.execute(2, () -> 2), callers);
+            while (lockerShardExecutor.metricsSnapshot().queued() == 0) {
+                Thread.onSpinWait();
+            }
+
+            var thrown = assertThrows(IllegalStateException.class, () -> lockerShardExecutor.execute(3, () -> 3));
+            assertEquals("Too many pending reservations for the parcel locker", thrown.getMessage());
+
+            var shard = lockerShardExecutor.metricsSnapshot().shards().getFirst();
+            assertEquals(1, shard.queueDepth());
+            assertEquals(1, shard.maxQueueDepth());
+            assertEquals(1, shard.rejected());
+
+            release.countDown();
+            assertTrue(blocking.join());
+            assertEquals(2, queued.join());
+        }
+    }
+}
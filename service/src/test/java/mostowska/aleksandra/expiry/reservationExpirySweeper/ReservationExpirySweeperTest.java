@@ -0,0 +1,142 @@
+package mostowska.aleksandra.expiry.reservationExpirySweeper;
+
+import mostowska.aleksandra.capacity.AvailabilityCounters;
+import mostowska.aleksandra.expiry.ReservationExpirySweeper;
+import mostowska.aleksandra.model.Parcel;
+import mostowska.aleksandra.model.Reservation;
+import mostowska.aleksandra.model.utils.ParcelStatus;
+import mostowska.aleksandra.repository.ParcelRepository;
+import mostowska.aleksandra.repository.ReservationRepository;
+import mostowska.aleksandra.repository.event.EntityChangedEvent;
+import mostowska.aleksandra.repository.event.EntityChangedEvent.ChangeType;
+import mostowska.aleksandra.repository.transaction.UnitOfWork;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+public class ReservationExpirySweeperTest {
+
+    @Mock
+    private ReservationRepository reservationRepository;
+
+    @Mock
+    private ParcelRepository parcelRepository;
+
+    @Mock
+    private UnitOfWork unitOfWork;
+
+    @Mock
+    private AvailabilityCounters availabilityCounters;
+
+    private ReservationExpirySweeper reservationExpirySweeper;
+
+    private final LocalDateTime now = LocalDateTime.now();
+    private final Reservation expiredA = new Reservation(1, 1, 11, now.minusWeeks(1), now.minusHours(2));
+    private final Reservation expiredB = new Reservation(2, 1, 12, now.minusWeeks(1), now.minusHours(1));
+    private final Reservation expiredC = new Reservation(3, 2, 13, now.minusWeeks(1), now.minusMinutes(1));
+    private final Reservation upcoming = new Reservation(4, 2, 14, now.minusWeeks(1), now.plusMinutes(30));
+
+    private static Parcel released(int id, int parcelLockerId) {
+        return new Parcel(id, parcelLockerId, 1L, ParcelStatus.AVAILABLE, 10.0, 10.0, 10.0);
+    }
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        doAnswer(invocation -> {
+            List.of(expiredA, expiredB, expiredC, upcoming).forEach(invocation.<Consumer<Reservation>>getArgument(1));
+            return null;
+        }).when(reservationRepository).streamReleasingUntil(any(LocalDateTime.class), any(Consumer.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        reservationExpirySweeper.close();
+    }
+
+    private void createSweeper(int chunkSize) {
+        reservationExpirySweeper = new ReservationExpirySweeper(
+                reservationRepository, parcelRepository, unitOfWork, availabilityCounters, 60, chunkSize);
+        reservationExpirySweeper.load();
+    }
+
+    private void runTransactions() {
+        when(unitOfWork.inTransaction(any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
+    }
+
+    @Test
+    @DisplayName("When reservations have expired their parcels are released in chunks and counted as available")
+    void testReleaseInChunks() {
+        createSweeper(2);
+        runTransactions();
+        when(parcelRepository.releaseExpiredParcels(eq(List.of(11, 12)), any(LocalDateTime.class)))
+                .thenReturn(List.of(released(11, 1), released(12, 1)));
+        when(parcelRepository.releaseExpiredParcels(eq(List.of(13)), any(LocalDateTime.class)))
+                .thenReturn(List.of());
+
+        assertEquals(2, reservationExpirySweeper.releaseExpired());
+
+        verify(availabilityCounters, times(1)).add(1, 2L);
+        verifyNoMoreInteractions(availabilityCounters);
+        var snapshot = reservationExpirySweeper.metricsSnapshot();
+        assertEquals(1, snapshot.queued());
+        assertEquals(2, snapshot.released());
+        assertEquals(1, snapshot.skipped());
+        assertEquals(2, snapshot.chunks());
+        assertTrue(snapshot.maxLagMillis() >= 2 * 60 * 60 * 1000 - 1000);
+    }
+
+    @Test
+    @DisplayName("When reservations are loaded again those already queued are not queued twice")
+    void testLoadTwice() {
+        createSweeper(10);
+        reservationExpirySweeper.load();
+
+        assertEquals(4, reservationExpirySweeper.metricsSnapshot().queued());
+    }
+
+    @Test
+    @DisplayName("When a chunk fails its reservations are queued again by the next load")
+    void testFailedChunk() {
+        createSweeper(10);
+        when(unitOfWork.inTransaction(any())).thenThrow(new IllegalStateException("Connection lost"));
+
+        assertEquals(0, reservationExpirySweeper.releaseExpired());
+        assertEquals(1, reservationExpirySweeper.metricsSnapshot().queued());
+        assertEquals(1, reservationExpirySweeper.metricsSnapshot().failures());
+
+        reservationExpirySweeper.load();
+        assertEquals(4, reservationExpirySweeper.metricsSnapshot().queued());
+        verifyNoInteractions(availabilityCounters);
+    }
+
+    @Test
+    @DisplayName("When a reservation is saved it is queued only if it ends within the loaded horizon")
+    void testSavedReservation() {
+        createSweeper(10);
+
+        reservationExpirySweeper.onReservationChanged(new EntityChangedEvent<>(Reservation.class, 5,
+                new Reservation(null, 3, 15, now, now.plusMinutes(10)), ChangeType.SAVED));
+        reservationExpirySweeper.onReservationChanged(new EntityChangedEvent<>(Reservation.class, 6,
+                new Reservation(null, 3, 16, now, now.plusWeeks(1)), ChangeType.SAVED));
+
+        assertEquals(5, reservationExpirySweeper.metricsSnapshot().queued());
+    }
+}
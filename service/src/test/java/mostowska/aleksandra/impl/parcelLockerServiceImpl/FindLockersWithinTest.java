@@ -0,0 +1,81 @@
+package mostowska.aleksandra.impl.parcelLockerServiceImpl;
+
+import mostowska.aleksandra.impl.ParcelLockerServiceImpl;
+import mostowska.aleksandra.model.ParcelLocker;
+import mostowska.aleksandra.model.dto.LockerDistanceDto;
+import mostowska.aleksandra.repository.ParcelLockerRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static mostowska.aleksandra.ParcelLockerService.MAX_LOCKERS_WITHIN;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+public class FindLockersWithinTest {
+
+    @Mock
+    private ParcelLockerRepository parcelLockerRepository;
+
+    @InjectMocks
+    private ParcelLockerServiceImpl parcelLockerService;
+
+    private final ParcelLocker centre = new ParcelLocker(1, "Warsaw Centre", 52.2296756, 21.0122287, 20L, 5L);
+    private final ParcelLocker wola = new ParcelLocker(3, "Warsaw Wola", 52.2390, 20.9830, 20L, 5L);
+
+    private List<LockerDistanceDto> findLockersWithin(double radiusKm, int limit) {
+        var found = new ArrayList<LockerDistanceDto>();
+        parcelLockerService.findLockersWithin(52.2296756, 21.0122287, radiusKm, limit, found::add);
+        return found;
+    }
+
+    @Test
+    @DisplayName("When lockers are streamed by the repository they are passed on in its order as they arrive")
+    @SuppressWarnings("unchecked")
+    void testStreamedInRepositoryOrder() {
+        var found = new ArrayList<LockerDistanceDto>();
+        doAnswer(invocation -> {
+            Consumer<LockerDistanceDto> consumer = invocation.getArgument(4);
+            consumer.accept(new LockerDistanceDto(centre, 0.0));
+            assertEquals(1, found.size());
+            consumer.accept(new LockerDistanceDto(wola, 2.3));
+            return null;
+        }).when(parcelLockerRepository).streamWithin(eq(52.2296756), eq(21.0122287), eq(10.0), eq(100), any(Consumer.class));
+
+        parcelLockerService.findLockersWithin(52.2296756, 21.0122287, 10, 100, found::add);
+
+        assertEquals(List.of(centre, wola), found.stream().map(LockerDistanceDto::parcelLocker).toList());
+        verify(parcelLockerRepository, never()).findAll();
+    }
+
+    @Test
+    @DisplayName("When the limit exceeds the maximum it is capped before querying")
+    @SuppressWarnings("unchecked")
+    void testLimitIsCapped() {
+        findLockersWithin(50, MAX_LOCKERS_WITHIN + 1);
+
+        verify(parcelLockerRepository).streamWithin(anyDouble(), anyDouble(), eq(50.0), eq(MAX_LOCKERS_WITHIN), any(Consumer.class));
+    }
+
+    @Test
+    @DisplayName("When the radius or the limit is not positive an exception is thrown")
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> findLockersWithin(50, 0));
+        assertThrows(IllegalArgumentException.class, () -> findLockersWithin(0, 2));
+        verifyNoInteractions(parcelLockerRepository);
+    }
+}
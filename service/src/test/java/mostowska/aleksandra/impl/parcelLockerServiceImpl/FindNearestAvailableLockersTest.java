@@ -0,0 +1,78 @@
+package mostowska.aleksandra.impl.parcelLockerServiceImpl;
+
+import mostowska.aleksandra.capacity.LockerCapacitySummary;
+import mostowska.aleksandra.impl.ParcelLockerServiceImpl;
+import mostowska.aleksandra.model.ParcelLocker;
+import mostowska.aleksandra.model.utils.PackageDimensions;
+import mostowska.aleksandra.repository.ParcelLockerRepository;
+import mostowska.aleksandra.spatial.LockerSpatialIndex;
+import mostowska.aleksandra.spatial.Neighbor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+public class FindNearestAvailableLockersTest {
+
+    @Mock
+    private ParcelLockerRepository parcelLockerRepository;
+    @Mock
+    private LockerSpatialIndex lockerSpatialIndex;
+    @Mock
+    private LockerCapacitySummary lockerCapacitySummary;
+
+    @InjectMocks
+    private ParcelLockerServiceImpl parcelLockerService;
+
+    private final PackageDimensions packageDimensions = new PackageDimensions(10.0, 10.0, 10.0);
+    private final ParcelLocker locker2 = new ParcelLocker(2, "Locker B", 52.406374, 16.9251681, 30L, 10L);
+    private final ParcelLocker locker4 = new ParcelLocker(4, "Locker D", 52.5, 17.0, 30L, 10L);
+
+    @Test
+    @DisplayName("When the nearest lockers are full they are skipped")
+    void testSkipsFullLockers() {
+        when(lockerSpatialIndex.nearestFirst(52.4, 16.9)).thenReturn(List.of(
+                new Neighbor(1, 1.0), new Neighbor(2, 2.0), new Neighbor(3, 3.0), new Neighbor(4, 4.0), new Neighbor(5, 5.0)
+        ).iterator());
+        when(lockerCapacitySummary.hasFittingSlot(anyInt(), eq(packageDimensions)))
+                .thenAnswer(invocation -> invocation.<Integer>getArgument(0) % 2 == 0);
+        when(parcelLockerRepository.findById(2L)).thenReturn(Optional.of(locker2));
+        when(parcelLockerRepository.findById(4L)).thenReturn(Optional.of(locker4));
+
+        var result = parcelLockerService.findNearestAvailableLockers(52.4, 16.9, packageDimensions, 2);
+
+        assertEquals(List.of(locker2, locker4), result);
+        verify(lockerCapacitySummary, times(4)).hasFittingSlot(anyInt(), eq(packageDimensions));
+        verify(parcelLockerRepository, times(2)).findById(anyLong());
+    }
+
+    @Test
+    @DisplayName("When no locker has a fitting parcel")
+    void testNoAvailableLocker() {
+        when(lockerSpatialIndex.nearestFirst(52.4, 16.9)).thenReturn(List.of(new Neighbor(1, 1.0)).iterator());
+        when(lockerCapacitySummary.hasFittingSlot(1, packageDimensions)).thenReturn(false);
+
+        assertTrue(parcelLockerService.findNearestAvailableLockers(52.4, 16.9, packageDimensions, 3).isEmpty());
+        verify(parcelLockerRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    @DisplayName("When k is not positive")
+    void testInvalidK() {
+        assertThrows(IllegalArgumentException.class, () ->
+                parcelLockerService.findNearestAvailableLockers(52.4, 16.9, packageDimensions, 0));
+    }
+}
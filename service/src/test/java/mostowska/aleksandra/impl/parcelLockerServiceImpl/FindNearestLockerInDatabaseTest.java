@@ -0,0 +1,65 @@
+package mostowska.aleksandra.impl.parcelLockerServiceImpl;
+
+import mostowska.aleksandra.impl.ParcelLockerServiceImpl;
+import mostowska.aleksandra.model.ParcelLocker;
+import mostowska.aleksandra.repository.ParcelLockerRepository;
+import mostowska.aleksandra.spatial.LockerSpatialIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+public class FindNearestLockerInDatabaseTest {
+
+    @Mock
+    private ParcelLockerRepository parcelLockerRepository;
+    @Mock
+    private LockerSpatialIndex lockerSpatialIndex;
+
+    @InjectMocks
+    private ParcelLockerServiceImpl parcelLockerService;
+
+    private final ParcelLocker locker = new ParcelLocker(2, "Locker B", 52.406374, 16.9251681, 30L, 10L);
+
+    @BeforeEach
+    void setUp() {
+        parcelLockerService.setSearchStrategy("database");
+        parcelLockerService.setInitialSearchRadiusKm(5);
+    }
+
+    @Test
+    @DisplayName("When no locker is within the initial radius the radius is doubled")
+    void testExpandingRadius() {
+        when(parcelLockerRepository.findNearest(52.0, 17.0, 1, 5)).thenReturn(List.of());
+        when(parcelLockerRepository.findNearest(52.0, 17.0, 1, 10)).thenReturn(List.of());
+        when(parcelLockerRepository.findNearest(52.0, 17.0, 1, 20)).thenReturn(List.of());
+        when(parcelLockerRepository.findNearest(52.0, 17.0, 1, 40)).thenReturn(List.of());
+        when(parcelLockerRepository.findNearest(52.0, 17.0, 1, 80)).thenReturn(List.of(locker));
+
+        assertEquals(locker, parcelLockerService.findNearestLocker(52.0, 17.0));
+        verifyNoInteractions(lockerSpatialIndex);
+    }
+
+    @Test
+    @DisplayName("When there are no lockers at all")
+    void testNoLockers() {
+        when(parcelLockerRepository.findNearest(anyDouble(), anyDouble(), eq(1), anyDouble())).thenReturn(List.of());
+
+        assertThrows(IllegalArgumentException.class, () -> parcelLockerService.findNearestLocker(52.0, 17.0));
+        verify(parcelLockerRepository, times(13)).findNearest(anyDouble(), anyDouble(), eq(1), anyDouble());
+        verify(parcelLockerRepository, never()).findAll();
+    }
+}
@@ -3,6 +3,10 @@ package mostowska.aleksandra.impl.parcelLockerServiceImpl;
 import mostowska.aleksandra.impl.ParcelLockerServiceImpl;
 import mostowska.aleksandra.model.ParcelLocker;
 import mostowska.aleksandra.repository.ParcelLockerRepository;
+import mostowska.aleksandra.spatial.LockerGrid;
+import mostowska.aleksandra.spatial.LockerSpatialIndex;
+import mostowska.aleksandra.spatial.NearestLockerCache;
+import mostowska.aleksandra.spatial.Neighbor;
 import org.junit.jupiter.api.DynamicTest;
 import org.junit.jupiter.api.TestFactory;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -13,7 +17,7 @@ import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 
 import java.time.Duration;
-import java.util.List;
+import java.util.Optional;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -25,6 +29,12 @@ import static org.mockito.Mockito.*;
 public class FindNearestLockerTest {
     @Mock
     private ParcelLockerRepository parcelLockerRepository;
+    @Mock
+    private LockerSpatialIndex lockerSpatialIndex;
+    @Mock
+    private NearestLockerCache nearestLockerCache;
+    @Mock
+    private LockerGrid lockerGrid;
 
     @InjectMocks
     private ParcelLockerServiceImpl parcelLockerService;
@@ -40,26 +50,55 @@ public class FindNearestLockerTest {
                 DynamicTest.dynamicTest(
                         "Test when finding the nearest locker",
                         () -> {
-                            when(parcelLockerRepository.findAll()).thenReturn(List.of(locker1, locker2));
+                            when(nearestLockerCache.nearest(52.406374, 16.9251681))
+                                    .thenReturn(Optional.of(new Neighbor(2, 0.0)));
+                            when(parcelLockerRepository.findById(2L)).thenReturn(Optional.of(locker2));
                             assertEquals(locker2, parcelLockerService.findNearestLocker(52.406374, 16.9251681));
-                            verify(parcelLockerRepository, times(1)).findAll();
+                            verify(parcelLockerRepository, times(1)).findById(2L);
+                            verify(parcelLockerRepository, never()).findAll();
                         }
                 ),
                 DynamicTest.dynamicTest(
                         "Test when no lockers are available",
                         () -> {
-                            when(parcelLockerRepository.findAll()).thenReturn(List.of());
+                            when(nearestLockerCache.nearest(52.406374, 16.9251681)).thenReturn(Optional.empty());
                             assertThrows(IllegalArgumentException.class, () ->
                                     parcelLockerService.findNearestLocker(52.406374, 16.9251681));
                         }
                 ),
+                DynamicTest.dynamicTest(
+                        "Test when the index returns a deleted locker",
+                        () -> {
+                            when(nearestLockerCache.nearest(52.2296756, 21.0122287))
+                                    .thenReturn(Optional.of(new Neighbor(3, 0.0)))
+                                    .thenReturn(Optional.of(new Neighbor(1, 0.0)));
+                            when(parcelLockerRepository.findById(3L)).thenReturn(Optional.empty());
+                            when(parcelLockerRepository.findById(1L)).thenReturn(Optional.of(locker1));
+                            assertEquals(locker1, parcelLockerService.findNearestLocker(52.2296756, 21.0122287));
+                            verify(lockerSpatialIndex, times(1)).remove(3);
+                            verify(lockerGrid, atLeastOnce()).invalidate();
+                        }
+                ),
                 DynamicTest.dynamicTest(
                         "Timeout test for method findNearestLocker",
                         () -> {
-                            when(parcelLockerRepository.findAll()).thenReturn(List.of(locker1, locker2));
+                            when(nearestLockerCache.nearest(52.406374, 16.9251681))
+                                    .thenReturn(Optional.of(new Neighbor(2, 0.0)));
+                            when(parcelLockerRepository.findById(2L)).thenReturn(Optional.of(locker2));
                             assertTimeout(Duration.ofMillis(1000), () ->
                                     parcelLockerService.findNearestLocker(52.406374, 16.9251681));
                         }
+                ),
+                DynamicTest.dynamicTest(
+                        "Test when the grid answers the query",
+                        () -> {
+                            clearInvocations(nearestLockerCache);
+                            when(lockerGrid.nearest(52.2296756, 21.0122287))
+                                    .thenReturn(Optional.of(new Neighbor(1, 0.0)));
+                            when(parcelLockerRepository.findById(1L)).thenReturn(Optional.of(locker1));
+                            assertEquals(locker1, parcelLockerService.findNearestLocker(52.2296756, 21.0122287));
+                            verify(nearestLockerCache, never()).nearest(52.2296756, 21.0122287);
+                        }
                 )
         );
     }
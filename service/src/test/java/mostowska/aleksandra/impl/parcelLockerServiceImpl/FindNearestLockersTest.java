@@ -0,0 +1,105 @@
+package mostowska.aleksandra.impl.parcelLockerServiceImpl;
+
+import mostowska.aleksandra.impl.ParcelLockerServiceImpl;
+import mostowska.aleksandra.model.dto.CoordinatesDto;
+import mostowska.aleksandra.model.dto.NearestLockerDto;
+import mostowska.aleksandra.repository.ParcelLockerRepository;
+import mostowska.aleksandra.spatial.LockerSpatialIndex;
+import mostowska.aleksandra.spatial.Neighbor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static mostowska.aleksandra.ParcelLockerService.MAX_BATCH_SIZE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+public class FindNearestLockersTest {
+
+    @Mock
+    private ParcelLockerRepository parcelLockerRepository;
+    @Mock
+    private LockerSpatialIndex lockerSpatialIndex;
+    @Mock
+    private LockerSpatialIndex.View view;
+
+    @InjectMocks
+    private ParcelLockerServiceImpl parcelLockerService;
+
+    @AfterEach
+    void tearDown() {
+        parcelLockerService.close();
+    }
+
+    @Test
+    @DisplayName("When a batch is resolved the results follow the order of the locations")
+    void testInputOrder() {
+        when(lockerSpatialIndex.view()).thenReturn(view);
+        when(view.nearest(anyDouble(), anyDouble())).thenAnswer(invocation ->
+                Optional.of(new Neighbor((int) invocation.<Double>getArgument(0).doubleValue(), invocation.getArgument(1))));
+        var locations = IntStream
+                .range(0, 3000)
+                .mapToObj(i -> new CoordinatesDto(i, i / 10.0))
+                .toList();
+
+        var results = new ArrayList<NearestLockerDto>();
+        parcelLockerService.findNearestLockers(locations, results::add);
+
+        assertEquals(3000, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(new NearestLockerDto(i, i / 10.0, i, i / 10.0), results.get(i));
+        }
+        verify(lockerSpatialIndex, times(1)).view();
+        verifyNoInteractions(parcelLockerRepository);
+    }
+
+    @Test
+    @DisplayName("When there are no lockers nothing is passed to the consumer")
+    void testNoLockers() {
+        when(lockerSpatialIndex.view()).thenReturn(view);
+        when(view.nearest(anyDouble(), anyDouble())).thenReturn(Optional.empty());
+
+        var results = new ArrayList<NearestLockerDto>();
+        assertThrows(IllegalArgumentException.class, () ->
+                parcelLockerService.findNearestLockers(List.of(new CoordinatesDto(52.0, 21.0)), results::add));
+        assertTrue(results.isEmpty());
+    }
+
+    @Test
+    @DisplayName("When the batch is too large an exception is thrown")
+    void testBatchSizeCap() {
+        var locations = Collections.nCopies(MAX_BATCH_SIZE + 1, new CoordinatesDto(52.0, 21.0));
+        assertThrows(IllegalArgumentException.class, () -> parcelLockerService.findNearestLockers(locations, result -> {
+        }));
+        verifyNoInteractions(lockerSpatialIndex);
+    }
+
+    @Test
+    @DisplayName("When the batch parallelism is configured batches are resolved on a pool of that size")
+    void testBatchParallelism() {
+        parcelLockerService.setBatchParallelism(2);
+        when(lockerSpatialIndex.view()).thenReturn(view);
+        when(view.nearest(anyDouble(), anyDouble())).thenReturn(Optional.of(new Neighbor(1, 0.5)));
+
+        var results = new ArrayList<NearestLockerDto>();
+        parcelLockerService.findNearestLockers(Collections.nCopies(2000, new CoordinatesDto(52.0, 21.0)), results::add);
+
+        assertEquals(2000, results.size());
+        assertThrows(IllegalArgumentException.class, () -> parcelLockerService.setBatchParallelism(-1));
+    }
+}
@@ -1,5 +1,8 @@
 package mostowska.aleksandra.impl.parcelLockerServiceImpl;
 
+import mostowska.aleksandra.capacity.AvailabilityCounters;
+import mostowska.aleksandra.capacity.SlotAllocator;
+import mostowska.aleksandra.concurrent.LockerShardExecutor;
 import mostowska.aleksandra.impl.ParcelLockerServiceImpl;
 import mostowska.aleksandra.model.Parcel;
 import mostowska.aleksandra.model.ParcelLocker;
@@ -8,8 +11,8 @@ import mostowska.aleksandra.model.dto.ReservationRequestDto;
 import mostowska.aleksandra.model.utils.PackageDimensions;
 import mostowska.aleksandra.model.utils.ParcelStatus;
 import mostowska.aleksandra.repository.ParcelLockerRepository;
-import mostowska.aleksandra.repository.ParcelRepository;
 import mostowska.aleksandra.repository.ReservationRepository;
+import mostowska.aleksandra.repository.transaction.UnitOfWork;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -24,6 +27,7 @@ import org.slf4j.LoggerFactory;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -37,11 +41,20 @@ public class MakeReservationTest {
     @Mock
     private ParcelLockerRepository parcelLockerRepository;
     @Mock
-    private ParcelRepository parcelRepository;
+    private SlotAllocator slotAllocator;
 
     @Mock
     private ReservationRepository reservationRepository;
 
+    @Mock
+    private UnitOfWork unitOfWork;
+
+    @Mock
+    private LockerShardExecutor lockerShardExecutor;
+
+    @Mock
+    private AvailabilityCounters availabilityCounters;
+
     @InjectMocks
     private ParcelLockerServiceImpl parcelLockerService;
 
@@ -54,6 +67,8 @@ public class MakeReservationTest {
     @BeforeEach
     void setUp() {
 //        MockitoAnnotations.openMocks(this);
+        when(lockerShardExecutor.execute(eq(1), any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        when(unitOfWork.inTransaction(any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
 
         parcelLocker = ParcelLocker.builder()
                 .id(1)
@@ -88,9 +103,11 @@ public class MakeReservationTest {
     @Test
     @DisplayName("When there is suitable parcel")
     void testValidRequest() {
-        when(parcelLockerRepository.findById(1L)).thenReturn(Optional.of(parcelLocker));
-        when(parcelLockerRepository.findAvailableParcelByLockerId(1, packageDimensions)).thenReturn(Optional.ofNullable(parcel));
-        when(reservationRepository.getLastReservationsId()).thenReturn(1);
+        when(availabilityCounters.available(1)).thenReturn(Optional.of(5L));
+        when(slotAllocator.allocate(1, packageDimensions))
+                .thenReturn(Optional.of(parcel.withStatus(ParcelStatus.RESERVED)));
+        when(reservationRepository.save(any(Reservation.class)))
+                .thenAnswer(invocation -> invocation.<Reservation>getArgument(0).withId(1));
 //        when(reservationRepository.findByUserIdAndParcelId(1, 1)).thenReturn(List.of());
 
         logger.info("Mocked ParcelLocker: {}", parcelLocker);
@@ -103,19 +120,17 @@ public class MakeReservationTest {
 
         assertNotNull(result);
         assertEquals(1, result.getId());
-        assertEquals(4, parcelLocker.getAvailableLockers() - 1);
-        verify(parcelLockerRepository, times(1)).findById(1L);
-        verify(parcelLockerRepository, times(1))
-                .findAvailableParcelByLockerId(1, packageDimensions);
-        verify(reservationRepository, times(1)).getLastReservationsId();
+        verify(availabilityCounters, times(1)).add(1, -1);
+        verifyNoInteractions(parcelLockerRepository);
+        verify(slotAllocator, times(1)).allocate(1, packageDimensions);
 //        verify(reservationRepository, times(1)).findByUserIdAndParcelId(1, 1);
-        verify(reservationRepository, times(1)).save(result);
+        verify(reservationRepository, times(1)).save(argThat(saved -> saved.getId() == null));
     }
 
     @Test
     @DisplayName("When invalid locker id passed")
     void testInvalidLockerId() {
-        when(parcelLockerRepository.findById(1L)).thenReturn(Optional.empty());
+        when(availabilityCounters.available(1)).thenReturn(Optional.empty());
 
         var thrown = assertThrows(IllegalStateException.class, () ->
                 parcelLockerService.makeReservation(new ReservationRequestDto(
@@ -124,11 +139,23 @@ public class MakeReservationTest {
     }
 
 
+    @Test
+    @DisplayName("When the parcel locker has no available lockers")
+    void testNoAvailableLockers() {
+        when(availabilityCounters.available(1)).thenReturn(Optional.of(0L));
+
+        var thrown = assertThrows(IllegalStateException.class, () ->
+                parcelLockerService.makeReservation(new ReservationRequestDto(
+                        1, 10.0, 20.0, 15.0, 1)));
+        assertEquals("No available lockers in the parcel locker", thrown.getMessage());
+        verifyNoInteractions(slotAllocator);
+    }
+
     @Test
     @DisplayName("When there is no suitable parcel found")
     void testNoSuitableParcel() {
-        when(parcelLockerRepository.findById(1L)).thenReturn(Optional.of(parcelLocker));
-        when(parcelLockerRepository.findAvailableParcelByLockerId(1,
+        when(availabilityCounters.available(1)).thenReturn(Optional.of(5L));
+        when(slotAllocator.allocate(1,
                 new PackageDimensions((double) 10,(double)  25, (double) 20)))
                 .thenReturn(Optional.empty());
 
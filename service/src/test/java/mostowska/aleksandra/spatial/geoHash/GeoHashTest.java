@@ -0,0 +1,38 @@
+package mostowska.aleksandra.spatial.geoHash;
+
+import mostowska.aleksandra.spatial.GeoHash;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GeoHashTest {
+
+    @TestFactory
+    Stream<DynamicTest> testGeoHash() {
+        return Stream.of(
+                DynamicTest.dynamicTest("Test when encoding a known location",
+                        () -> assertEquals("u4pruydqqvj", GeoHash.encode(57.64911, 10.40744, 11))),
+
+                DynamicTest.dynamicTest("Test when a shorter hash is a prefix of a longer one",
+                        () -> assertTrue(GeoHash.encode(52.2296756, 21.0122287, 9)
+                                .startsWith(GeoHash.encode(52.2296756, 21.0122287, 5)))),
+
+                DynamicTest.dynamicTest("Test when the decoded cell contains the encoded location",
+                        () -> {
+                            var box = GeoHash.decode(GeoHash.encode(-33.8688, 151.2093, 6));
+                            assertTrue(box.contains(-33.8688, 151.2093));
+                            assertEquals(180.0 / (1 << 15), box.maxLatitude() - box.minLatitude(), 1e-12);
+                            assertEquals(360.0 / (1 << 15), box.maxLongitude() - box.minLongitude(), 1e-12);
+                        }),
+
+                DynamicTest.dynamicTest("Test when the precision is out of range",
+                        () -> assertThrows(IllegalArgumentException.class, () -> GeoHash.encode(0, 0, 13))),
+
+                DynamicTest.dynamicTest("Test when decoding an invalid character",
+                        () -> assertThrows(IllegalArgumentException.class, () -> GeoHash.decode("u4a")))
+        );
+    }
+}
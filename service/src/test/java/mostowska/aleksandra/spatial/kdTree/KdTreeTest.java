@@ -0,0 +1,121 @@
+package mostowska.aleksandra.spatial.kdTree;
+
+import mostowska.aleksandra.DistanceCalculator;
+import mostowska.aleksandra.spatial.KdTree;
+import mostowska.aleksandra.spatial.Neighbor;
+import mostowska.aleksandra.spatial.SpherePoint;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KdTreeTest {
+
+    private static final int POINTS = 5_000;
+
+    private final Random random = new Random(42);
+    private final double[] latitudes = new double[POINTS];
+    private final double[] longitudes = new double[POINTS];
+
+    private KdTree buildRandomTree() {
+        var ids = new int[POINTS];
+        var points = new SpherePoint[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            ids[i] = i + 1;
+            latitudes[i] = random.nextDouble(-90, 90);
+            longitudes[i] = random.nextDouble(-180, 180);
+            points[i] = SpherePoint.of(latitudes[i], longitudes[i]);
+        }
+        return KdTree.build(ids, points);
+    }
+
+    private List<Integer> scanNearest(double latitude, double longitude, int k) {
+        return IntStream
+                .range(0, POINTS)
+                .boxed()
+                .sorted(Comparator.comparingDouble(
+                        i -> DistanceCalculator.getDistance(latitudes[i], longitudes[i], latitude, longitude)))
+                .limit(k)
+                .map(i -> i + 1)
+                .toList();
+    }
+
+    @Test
+    @DisplayName("When k nearest points are found they match a full scan")
+    void testNearestMatchesScan() {
+        var tree = buildRandomTree();
+
+        for (int query = 0; query < 200; query++) {
+            var latitude = random.nextDouble(-90, 90);
+            var longitude = random.nextDouble(-180, 180);
+
+            var found = tree.nearest(SpherePoint.of(latitude, longitude), 5, id -> true);
+
+            assertEquals(scanNearest(latitude, longitude, 5), found.stream().map(Neighbor::id).toList());
+            var nearest = found.getFirst();
+            assertEquals(
+                    DistanceCalculator.getDistance(latitudes[nearest.id() - 1], longitudes[nearest.id() - 1], latitude, longitude),
+                    nearest.distanceKm(),
+                    1e-6);
+        }
+    }
+
+    @Test
+    @DisplayName("When points are iterated by distance the order matches a full scan")
+    void testNearestFirstMatchesScan() {
+        var tree = buildRandomTree();
+
+        for (int query = 0; query < 20; query++) {
+            var latitude = random.nextDouble(-90, 90);
+            var longitude = random.nextDouble(-180, 180);
+
+            var iterator = tree.nearestFirst(SpherePoint.of(latitude, longitude), id -> id % 2 == 0);
+            var found = new ArrayList<Integer>();
+            var previousDistance = 0.0;
+            while (iterator.hasNext()) {
+                var neighbor = iterator.next();
+                assertTrue(neighbor.distanceKm() >= previousDistance);
+                previousDistance = neighbor.distanceKm();
+                found.add(neighbor.id());
+            }
+
+            var expected = scanNearest(latitude, longitude, POINTS).stream().filter(id -> id % 2 == 0).toList();
+            assertEquals(expected.size(), found.size());
+            assertEquals(expected.subList(0, 50), found.subList(0, 50));
+        }
+    }
+
+    @Test
+    @DisplayName("When points are rejected by the filter they are skipped")
+    void testNearestWithFilter() {
+        var tree = buildRandomTree();
+        var nearest = tree.nearest(SpherePoint.of(10.0, 10.0), 1, id -> true).getFirst();
+
+        var next = tree.nearest(SpherePoint.of(10.0, 10.0), 1, id -> id != nearest.id()).getFirst();
+
+        assertNotEquals(nearest.id(), next.id());
+        assertEquals(scanNearest(10.0, 10.0, 2).get(1), next.id());
+    }
+
+    @Test
+    @DisplayName("When the query crosses the antimeridian")
+    void testNearestAcrossAntimeridian() {
+        var tree = KdTree.build(
+                new int[]{1, 2},
+                new SpherePoint[]{SpherePoint.of(0.0, 179.9), SpherePoint.of(0.0, 178.0)});
+
+        assertEquals(1, tree.nearest(SpherePoint.of(0.0, -179.9), 1, id -> true).getFirst().id());
+    }
+
+    @Test
+    @DisplayName("When the tree is empty")
+    void testEmptyTree() {
+        assertTrue(KdTree.build(new int[0], new SpherePoint[0]).nearest(SpherePoint.of(0, 0), 3, id -> true).isEmpty());
+    }
+}
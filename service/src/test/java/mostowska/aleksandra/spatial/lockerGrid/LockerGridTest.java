@@ -0,0 +1,117 @@
+package mostowska.aleksandra.spatial.lockerGrid;
+
+import mostowska.aleksandra.DistanceCalculator;
+import mostowska.aleksandra.model.ParcelLocker;
+import mostowska.aleksandra.repository.ParcelLockerRepository;
+import mostowska.aleksandra.repository.event.EntityChangedEvent;
+import mostowska.aleksandra.repository.event.EntityChangedEvent.ChangeType;
+import mostowska.aleksandra.spatial.LockerGrid;
+import mostowska.aleksandra.spatial.Neighbor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+public class LockerGridTest {
+
+    @Mock
+    private ParcelLockerRepository parcelLockerRepository;
+
+    private final List<ParcelLocker> lockers = new ArrayList<>();
+    private LockerGrid lockerGrid;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        var random = new Random(3);
+        for (int id = 1; id <= 1000; id++) {
+            lockers.add(new ParcelLocker(id, "Locker " + id,
+                    random.nextDouble(49.0, 55.0), random.nextDouble(14.0, 24.0), 20L, 5L));
+        }
+        doAnswer(invocation -> {
+            lockers.forEach(invocation.<Consumer<ParcelLocker>>getArgument(0));
+            return null;
+        }).when(parcelLockerRepository).streamAll(any(Consumer.class));
+
+        lockerGrid = new LockerGrid(parcelLockerRepository, 5, 1_000_000, 60_000);
+        lockerGrid.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        lockerGrid.close();
+    }
+
+    private static EntityChangedEvent<ParcelLocker> event(ParcelLocker locker, ChangeType changeType) {
+        return new EntityChangedEvent<>(ParcelLocker.class, locker.getId(), locker, changeType);
+    }
+
+    @Test
+    @DisplayName("When queried the grid returns the same nearest locker as a full scan")
+    void testNearestMatchesScan() {
+        var random = new Random(5);
+        for (int i = 0; i < 5000; i++) {
+            var latitude = random.nextDouble(49.0, 55.0);
+            var longitude = random.nextDouble(14.0, 24.0);
+            var expected = lockers
+                    .stream()
+                    .min(Comparator.comparingDouble(locker ->
+                            DistanceCalculator.getDistance(latitude, longitude, locker.getLatitude(), locker.getLongitude())))
+                    .orElseThrow();
+            var actual = lockerGrid.nearest(latitude, longitude).orElseThrow();
+            assertEquals(expected.getLockersDistance(latitude, longitude), actual.distanceKm(), 1e-9);
+        }
+
+        var snapshot = lockerGrid.metricsSnapshot();
+        assertEquals(5000, snapshot.hits());
+        assertEquals(1000, snapshot.lockers());
+        assertTrue(snapshot.avgCandidatesPerCell() >= 1);
+        assertTrue(snapshot.bytesPerKm2() > 0);
+    }
+
+    @Test
+    @DisplayName("When the location is outside the raster the grid returns empty")
+    void testOutsideRaster() {
+        assertTrue(lockerGrid.nearest(-33.8688, 151.2093).isEmpty());
+        assertEquals(1, lockerGrid.metricsSnapshot().misses());
+    }
+
+    @Test
+    @DisplayName("When a locker moves the grid is outdated until it is rebuilt")
+    void testMovedLocker() {
+        var moved = new ParcelLocker(1, "Locker 1", 52.0, 19.0, 20L, 5L);
+        lockerGrid.onParcelLockerChanged(event(moved, ChangeType.UPDATED));
+        assertTrue(lockerGrid.nearest(52.0, 19.0).isEmpty());
+        assertTrue(lockerGrid.metricsSnapshot().outdated());
+
+        lockers.set(0, moved);
+        lockerGrid.rebuild();
+        assertEquals(new Neighbor(1, 0.0), lockerGrid.nearest(52.0, 19.0).orElseThrow());
+        assertFalse(lockerGrid.metricsSnapshot().outdated());
+    }
+
+    @Test
+    @DisplayName("When a locker changes without moving the grid stays current")
+    void testUnmovedLocker() {
+        lockerGrid.onParcelLockerChanged(event(lockers.get(0).withAvailableLockers(4L), ChangeType.UPDATED));
+        assertFalse(lockerGrid.metricsSnapshot().outdated());
+        assertTrue(lockerGrid.nearest(52.0, 19.0).isPresent());
+    }
+}
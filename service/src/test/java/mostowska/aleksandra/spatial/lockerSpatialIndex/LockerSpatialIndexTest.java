@@ -0,0 +1,106 @@
+package mostowska.aleksandra.spatial.lockerSpatialIndex;
+
+import mostowska.aleksandra.model.ParcelLocker;
+import mostowska.aleksandra.repository.ParcelLockerRepository;
+import mostowska.aleksandra.repository.event.EntityChangedEvent;
+import mostowska.aleksandra.repository.event.EntityChangedEvent.ChangeType;
+import mostowska.aleksandra.spatial.LockerSpatialIndex;
+import mostowska.aleksandra.spatial.Neighbor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+public class LockerSpatialIndexTest {
+
+    @Mock
+    private ParcelLockerRepository parcelLockerRepository;
+
+    @InjectMocks
+    private LockerSpatialIndex lockerSpatialIndex;
+
+    private final ParcelLocker warsaw = new ParcelLocker(1, "Locker A", 52.2296756, 21.0122287, 20L, 5L);
+    private final ParcelLocker poznan = new ParcelLocker(2, "Locker B", 52.406374, 16.9251681, 30L, 10L);
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        doAnswer(invocation -> {
+            List.of(warsaw, poznan).forEach(invocation.<Consumer<ParcelLocker>>getArgument(0));
+            return null;
+        }).when(parcelLockerRepository).streamAll(any(Consumer.class));
+    }
+
+    private static EntityChangedEvent<ParcelLocker> event(ParcelLocker locker, ChangeType changeType) {
+        return new EntityChangedEvent<>(ParcelLocker.class, locker.getId(), locker, changeType);
+    }
+
+    @Test
+    @DisplayName("When the index is queried it is loaded once from the repository")
+    void testLoad() {
+        assertEquals(2, lockerSpatialIndex.nearest(52.4, 16.9).map(Neighbor::id).orElseThrow());
+        assertEquals(1, lockerSpatialIndex.nearest(52.2, 21.0).map(Neighbor::id).orElseThrow());
+        assertEquals(List.of(1, 2), lockerSpatialIndex.nearest(52.0, 22.0, 5).stream().map(Neighbor::id).toList());
+        verify(parcelLockerRepository, times(1)).streamAll(any(Consumer.class));
+    }
+
+    @Test
+    @DisplayName("When lockers are added, moved and deleted the index follows the events")
+    void testIncrementalRefresh() {
+        lockerSpatialIndex.nearest(0, 0);
+
+        var gdansk = new ParcelLocker(3, "Locker C", 54.3520252, 18.6466384, 10L, 10L);
+        lockerSpatialIndex.onParcelLockerChanged(event(gdansk, ChangeType.SAVED));
+        assertEquals(3, lockerSpatialIndex.nearest(54.3, 18.6).map(Neighbor::id).orElseThrow());
+
+        var movedWarsaw = new ParcelLocker(1, "Locker A", 50.0646501, 19.9449799, 20L, 5L);
+        lockerSpatialIndex.onParcelLockerChanged(event(movedWarsaw, ChangeType.UPDATED));
+        assertEquals(1, lockerSpatialIndex.nearest(50.0, 19.9).map(Neighbor::id).orElseThrow());
+        assertTrue(lockerSpatialIndex.nearest(52.2296756, 21.0122287).map(Neighbor::distanceKm).orElseThrow() > 200);
+
+        lockerSpatialIndex.onParcelLockerChanged(event(poznan, ChangeType.DELETED));
+        assertEquals(List.of(1, 3), lockerSpatialIndex.nearest(52.4, 16.9, 5).stream().map(Neighbor::id).sorted().toList());
+        assertEquals(2, lockerSpatialIndex.size());
+        verify(parcelLockerRepository, times(1)).streamAll(any(Consumer.class));
+    }
+
+    @Test
+    @DisplayName("When many lockers change the tree is rebuilt from memory")
+    void testRebuild() {
+        lockerSpatialIndex.nearest(0, 0);
+
+        for (int id = 100; id < 400; id++) {
+            var locker = new ParcelLocker(id, "Locker", -10.0 - id / 100.0, 120.0, 10L, 10L);
+            lockerSpatialIndex.onParcelLockerChanged(event(locker, ChangeType.SAVED));
+        }
+
+        assertEquals(302, lockerSpatialIndex.size());
+        assertEquals(399, lockerSpatialIndex.nearest(-14.0, 120.0).map(Neighbor::id).orElseThrow());
+        assertEquals(2, lockerSpatialIndex.nearest(52.4, 16.9).map(Neighbor::id).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("When lockers change after a view was taken the view keeps seeing the old lockers")
+    void testView() {
+        var view = lockerSpatialIndex.view();
+
+        lockerSpatialIndex.onParcelLockerChanged(event(poznan, ChangeType.DELETED));
+        assertEquals(2, view.nearest(52.4, 16.9).map(Neighbor::id).orElseThrow());
+        assertEquals(1, lockerSpatialIndex.nearest(52.4, 16.9).map(Neighbor::id).orElseThrow());
+        assertEquals(1, lockerSpatialIndex.view().nearest(52.4, 16.9).map(Neighbor::id).orElseThrow());
+    }
+}
@@ -0,0 +1,127 @@
+package mostowska.aleksandra.spatial.nearestLockerCache;
+
+import mostowska.aleksandra.model.ParcelLocker;
+import mostowska.aleksandra.repository.ParcelLockerRepository;
+import mostowska.aleksandra.repository.event.EntityChangedEvent;
+import mostowska.aleksandra.repository.event.EntityChangedEvent.ChangeType;
+import mostowska.aleksandra.spatial.LockerSpatialIndex;
+import mostowska.aleksandra.spatial.NearestLockerCache;
+import mostowska.aleksandra.spatial.Neighbor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.STRICT_STUBS)
+public class NearestLockerCacheTest {
+
+    @Mock
+    private ParcelLockerRepository parcelLockerRepository;
+
+    private final List<ParcelLocker> lockers = new ArrayList<>();
+    private LockerSpatialIndex lockerSpatialIndex;
+    private NearestLockerCache nearestLockerCache;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        var random = new Random(7);
+        for (int id = 1; id <= 500; id++) {
+            lockers.add(new ParcelLocker(id, "Locker " + id,
+                    52.0 + random.nextDouble() * 0.5, 20.8 + random.nextDouble() * 0.5, 20L, 5L));
+        }
+        doAnswer(invocation -> {
+            lockers.forEach(invocation.<Consumer<ParcelLocker>>getArgument(0));
+            return null;
+        }).when(parcelLockerRepository).streamAll(any(Consumer.class));
+
+        lockerSpatialIndex = new LockerSpatialIndex(parcelLockerRepository);
+        nearestLockerCache = new NearestLockerCache(lockerSpatialIndex, 5, 1000, 300);
+    }
+
+    private static EntityChangedEvent<ParcelLocker> event(ParcelLocker locker, ChangeType changeType) {
+        return new EntityChangedEvent<>(ParcelLocker.class, locker.getId(), locker, changeType);
+    }
+
+    @Test
+    @DisplayName("When queried the cache returns the same nearest locker as the index")
+    void testNearestMatchesIndex() {
+        var random = new Random(11);
+        for (int i = 0; i < 2000; i++) {
+            var latitude = 51.9 + random.nextDouble() * 0.7;
+            var longitude = 20.7 + random.nextDouble() * 0.7;
+            var expected = lockerSpatialIndex.nearest(latitude, longitude).orElseThrow();
+            var actual = nearestLockerCache.nearest(latitude, longitude).orElseThrow();
+            assertEquals(expected.distanceKm(), actual.distanceKm(), 1e-9);
+        }
+        assertTrue(nearestLockerCache.metricsSnapshot().hits() > 0);
+    }
+
+    @Test
+    @DisplayName("When the same cell is queried twice the second query is a hit")
+    void testHitsAndMisses() {
+        nearestLockerCache.nearest(52.2296756, 21.0122287);
+        nearestLockerCache.nearest(52.2296757, 21.0122288);
+        var snapshot = nearestLockerCache.metricsSnapshot();
+        assertEquals(1, snapshot.hits());
+        assertEquals(1, snapshot.misses());
+        assertEquals(1, snapshot.size());
+    }
+
+    @Test
+    @DisplayName("When a locker is added next to a cached cell the cell is invalidated")
+    void testInvalidateOnAddedLocker() {
+        nearestLockerCache.nearest(52.25, 21.05);
+        var added = new ParcelLocker(501, "Locker 501", 52.25, 21.05, 20L, 5L);
+        lockerSpatialIndex.onParcelLockerChanged(event(added, ChangeType.SAVED));
+
+        assertEquals(1, nearestLockerCache.metricsSnapshot().invalidations());
+        assertEquals(501, nearestLockerCache.nearest(52.25, 21.05).map(Neighbor::id).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("When a locker is deleted the cells it was a candidate of are invalidated")
+    void testInvalidateOnDeletedLocker() {
+        var nearest = nearestLockerCache.nearest(52.25, 21.05).orElseThrow();
+        var deleted = lockers.get(nearest.id() - 1);
+        lockerSpatialIndex.onParcelLockerChanged(event(deleted, ChangeType.DELETED));
+
+        assertEquals(1, nearestLockerCache.metricsSnapshot().invalidations());
+        assertNotEquals(nearest.id(), nearestLockerCache.nearest(52.25, 21.05).map(Neighbor::id).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("When a locker changes without moving the cached cells are kept")
+    void testKeepOnUnchangedLocation() {
+        var nearest = nearestLockerCache.nearest(52.25, 21.05).orElseThrow();
+        var locker = lockers.get(nearest.id() - 1);
+        lockerSpatialIndex.onParcelLockerChanged(event(locker.withAvailableLockers(4L), ChangeType.UPDATED));
+        nearestLockerCache.nearest(52.25, 21.05);
+
+        var snapshot = nearestLockerCache.metricsSnapshot();
+        assertEquals(0, snapshot.invalidations());
+        assertEquals(1, snapshot.hits());
+    }
+
+    @Test
+    @DisplayName("When the precision is out of range an exception is thrown")
+    void testInvalidPrecision() {
+        assertThrows(IllegalArgumentException.class, () -> new NearestLockerCache(lockerSpatialIndex, 3, 1000, 300));
+        assertThrows(IllegalArgumentException.class, () -> new NearestLockerCache(lockerSpatialIndex, 13, 1000, 300));
+        assertEquals(500, lockerSpatialIndex.size());
+    }
+}